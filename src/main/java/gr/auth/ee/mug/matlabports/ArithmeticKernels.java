@@ -0,0 +1,60 @@
+package gr.auth.ee.mug.matlabports;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+
+/**
+ * SIMD kernels of {@link ArithmeticOperators}, written with the Vector API ({@code jdk.incubator.vector}).
+ * <p>
+ * The library targets Java 8, so the implementation, {@code VectorArithmeticKernels}, is compiled separately on JDK
+ * 17 or later (profile {@code vector} of the pom) into {@code META-INF/versions/17} of a multi-release jar, and is
+ * loaded by reflection. It is used when the JVM runs with {@code --add-modules jdk.incubator.vector}; otherwise, and
+ * on older JVMs, {@link #VECTOR} is null and ArithmeticOperators runs its scalar loops.
+ * <p>
+ * Only the loops that C2 does not vectorize by itself have a kernel: addEps, and the int[] operations with an
+ * integral value. The plain double[] operations (add, subtract, etc) are vectorized by C2 already, and the int[]
+ * operations with a fractional value are slower with the Vector API, because of the conversions from double to int
+ * (see ArithmeticOperatorsBenchmark).
+ * <p>
+ * The kernels process the first n items and do not check their arguments.
+ */
+abstract class ArithmeticKernels {
+
+    /**
+     * Arrays shorter than this are left to the scalar loops.
+     */
+    static final int MIN_LENGTH = 32;
+
+    /**
+     * The Vector API kernels, or null if they are not available.
+     */
+    @Nullable
+    static final ArithmeticKernels VECTOR = load();
+
+    /**
+     * {@code y = x + eps(x)}, with the same result as {@link Math#ulp(double)}.
+     */
+    abstract void addEps(@Nonnull double[] x, @Nonnull double[] y, int n);
+
+    /**
+     * {@code x = x + w} on ints, saturated to the int range, where w is in the int range.
+     */
+    abstract void addInPlace(@Nonnull int[] x, long w, int n);
+
+    /**
+     * {@code x = x * w} on ints, saturated to the int range, where w is in the int range.
+     */
+    abstract void multiplyInPlace(@Nonnull int[] x, long w, int n);
+
+    @Nullable
+    private static ArithmeticKernels load() {
+        try {
+            return (ArithmeticKernels) Class.forName("gr.auth.ee.mug.matlabports.VectorArithmeticKernels")
+                    .getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            // Not compiled in, too old a JVM, or jdk.incubator.vector not added
+            return null;
+        }
+    }
+}
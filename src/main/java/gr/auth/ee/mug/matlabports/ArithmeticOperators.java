@@ -4,15 +4,26 @@ import javax.annotation.Nonnull;
 
 import gr.auth.ee.mug.matlabports.exceptions.LengthMismatchException;
 
+import static gr.auth.ee.mug.matlabports.ArithmeticKernels.MIN_LENGTH;
+import static gr.auth.ee.mug.matlabports.ArithmeticKernels.VECTOR;
 import static gr.auth.ee.mug.matlabports.Checks.checkEqualLength;
 
 
 /**
  * Arithmetic operators (addition, subtraction, etc).
+ * <p>
+ * Some element-wise operations use the SIMD kernels of {@link ArithmeticKernels} when the JVM supports them (Java 17
+ * or later, with {@code --add-modules jdk.incubator.vector}), and scalar loops otherwise.
  */
 @SuppressWarnings({"unused", "WeakerAccess"})
 public final class ArithmeticOperators {
 
+    private static final long EXPONENT_MASK = 0x7ff0000000000000L;
+    /**
+     * 52 subtracted from the exponent field of a double.
+     */
+    private static final long ULP_SHIFT = 52L << 52;
+
     /**
      * Adds two arrays element-wise.
      * <p>
@@ -87,6 +98,40 @@ public final class ArithmeticOperators {
         }
     }
 
+    /**
+     * Adds two views element-wise.
+     * <p>
+     * MATLAB:
+     * <pre>{@code z(k1:s1:e1) = x(k2:s2:e2) + y(k3:s3:e3);}</pre>
+     * As in MATLAB, z may overlap x or y; the inputs are read as they were before the operation.
+     *
+     * @param x The first input view.
+     * @param y The second input view.
+     * @param z The output view.
+     */
+    public static void add(@Nonnull DoubleView x, @Nonnull DoubleView y, @Nonnull DoubleView z)
+            throws LengthMismatchException {
+        checkEqualLength(x, y);
+        checkEqualLength(x, z);
+        if (z.overlaps(x)) {
+            x = DoubleView.of(x.toArray());
+        }
+        if (z.overlaps(y)) {
+            y = DoubleView.of(y.toArray());
+        }
+
+        final double[] a = x.array();
+        final double[] b = y.array();
+        final double[] c = z.array();
+        final int sx = x.stride();
+        final int sy = y.stride();
+        final int sz = z.stride();
+        for (int i = 0, j = x.offset(), k = y.offset(), l = z.offset(); i < x.length();
+             i++, j += sx, k += sy, l += sz) {
+            c[l] = a[j] + b[k];
+        }
+    }
+
     /**
      * Adds the machine epsilon to all items of an array.
      * <p>
@@ -101,8 +146,19 @@ public final class ArithmeticOperators {
             throws LengthMismatchException {
         checkEqualLength(x, y);
 
+        if (VECTOR != null && x.length >= MIN_LENGTH) {
+            VECTOR.addEps(x, y, x.length);
+            return;
+        }
         for (int i = 0; i < x.length; i++) {
-            y[i] = x[i] + Math.ulp(x[i]);
+            // For normal numbers the ulp is a power of two with the exponent decreased by 52
+            final double v = x[i];
+            final long e = Double.doubleToRawLongBits(v) & EXPONENT_MASK;
+            if (e > ULP_SHIFT && e != EXPONENT_MASK) {
+                y[i] = v + Double.longBitsToDouble(e - ULP_SHIFT);
+            } else {
+                y[i] = v + Math.ulp(v);
+            }
         }
     }
 
@@ -136,6 +192,23 @@ public final class ArithmeticOperators {
         add(x, v, x);
     }
 
+    /**
+     * Adds a value to all items of a view. Operation is <b>in place</b>.
+     * <p>
+     * MATLAB:
+     * <pre>{@code x(start:step:stop) = x(start:step:stop) + v;}</pre>
+     *
+     * @param x The view to modify.
+     * @param v The value to add to the view.
+     */
+    public static void addInPlace(@Nonnull DoubleView x, double v) {
+        final double[] a = x.array();
+        final int s = x.stride();
+        for (int i = 0, j = x.offset(); i < x.length(); i++, j += s) {
+            a[j] += v;
+        }
+    }
+
     /**
      * Adds a value to all items of an array. Operation is <b>in place</b>.
      * <p>
@@ -146,8 +219,20 @@ public final class ArithmeticOperators {
      * @param v The value to add to the array.
      */
     public static void addInPlace(@Nonnull int[] x, double v) {
-        for (int i = 0; i < x.length; i++) {
-            x[i] += v;
+        if (v == (int) v) {
+            // Same result in long arithmetic, without converting each item to double and back
+            final long w = (long) v;
+            if (VECTOR != null && x.length >= MIN_LENGTH) {
+                VECTOR.addInPlace(x, w, x.length);
+                return;
+            }
+            for (int i = 0; i < x.length; i++) {
+                x[i] = saturate(x[i] + w);
+            }
+        } else {
+            for (int i = 0; i < x.length; i++) {
+                x[i] += v;
+            }
         }
     }
 
@@ -297,6 +382,23 @@ public final class ArithmeticOperators {
         multiply(x, v, x);
     }
 
+    /**
+     * Multiplies each element of a view with a value. Operation is <b>in place</b>.
+     * <p>
+     * MATLAB:
+     * <pre>{@code x(start:step:stop) = x(start:step:stop) * v;}</pre>
+     *
+     * @param x The view to modify.
+     * @param v The value to multiply with.
+     */
+    public static void multiplyInPlace(@Nonnull DoubleView x, double v) {
+        final double[] a = x.array();
+        final int s = x.stride();
+        for (int i = 0, j = x.offset(); i < x.length(); i++, j += s) {
+            a[j] *= v;
+        }
+    }
+
     /**
      * Multiplies each element of an array with a value. Operation is <b>in place</b>.
      * <p>
@@ -307,8 +409,20 @@ public final class ArithmeticOperators {
      * @param v The value to multiply with.
      */
     public static void multiplyInPlace(@Nonnull int[] x, double v) {
-        for (int i = 0; i < x.length; i++) {
-            x[i] *= v;
+        if (v == (int) v) {
+            // Same result in long arithmetic (the product of two ints cannot overflow a long)
+            final long w = (long) v;
+            if (VECTOR != null && x.length >= MIN_LENGTH) {
+                VECTOR.multiplyInPlace(x, w, x.length);
+                return;
+            }
+            for (int i = 0; i < x.length; i++) {
+                x[i] = saturate(x[i] * w);
+            }
+        } else {
+            for (int i = 0; i < x.length; i++) {
+                x[i] *= v;
+            }
         }
     }
 
@@ -365,6 +479,40 @@ public final class ArithmeticOperators {
         }
     }
 
+    /**
+     * Subtracts two views element-wise.
+     * <p>
+     * MATLAB:
+     * <pre>{@code z(k1:s1:e1) = x(k2:s2:e2) - y(k3:s3:e3);}</pre>
+     * As in MATLAB, z may overlap x or y; the inputs are read as they were before the operation.
+     *
+     * @param x The first input view.
+     * @param y The second input view.
+     * @param z The output view.
+     */
+    public static void subtract(@Nonnull DoubleView x, @Nonnull DoubleView y, @Nonnull DoubleView z)
+            throws LengthMismatchException {
+        checkEqualLength(x, y);
+        checkEqualLength(x, z);
+        if (z.overlaps(x)) {
+            x = DoubleView.of(x.toArray());
+        }
+        if (z.overlaps(y)) {
+            y = DoubleView.of(y.toArray());
+        }
+
+        final double[] a = x.array();
+        final double[] b = y.array();
+        final double[] c = z.array();
+        final int sx = x.stride();
+        final int sy = y.stride();
+        final int sz = z.stride();
+        for (int i = 0, j = x.offset(), k = y.offset(), l = z.offset(); i < x.length();
+             i++, j += sx, k += sy, l += sz) {
+            c[l] = a[j] - b[k];
+        }
+    }
+
     /**
      * Subtract two arrays element-wise.
      * <p>
@@ -383,4 +531,11 @@ public final class ArithmeticOperators {
         subtract(x, y, z);
         return z;
     }
+
+    /**
+     * Converts a long to int like the conversion from double does, saturating at the limits of int.
+     */
+    private static int saturate(long v) {
+        return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, v));
+    }
 }
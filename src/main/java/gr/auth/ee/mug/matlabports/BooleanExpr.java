@@ -0,0 +1,338 @@
+package gr.auth.ee.mug.matlabports;
+
+import javax.annotation.Nonnull;
+
+import gr.auth.ee.mug.matlabports.exceptions.LengthMismatchException;
+
+
+/**
+ * Lazy element-wise logical expression, such as {@code Expr.of(x).gt(0).and(Expr.of(y).lt(1))}. Evaluated in blocks,
+ * like {@link Expr}; the terminal operations {@link #count()}, {@link #any()} and {@link #all()} allocate no array
+ * of the full length, and the last two stop at the first block that decides the result.
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public abstract class BooleanExpr {
+
+    private final int length;
+
+    BooleanExpr(int length) {
+        this.length = length;
+    }
+
+    /**
+     * @param b The array
+     * @return The expression of the items of b.
+     */
+    @Nonnull
+    public static BooleanExpr of(@Nonnull boolean[] b) {
+        return new BooleanExpr(b.length) {
+            @Override
+            void eval(int start, int n, @Nonnull boolean[] out, @Nonnull Expr.Workspace workspace) {
+                System.arraycopy(b, start, out, 0, n);
+            }
+        };
+    }
+
+    /**
+     * @return The number of items.
+     */
+    public final int length() {
+        return length;
+    }
+
+    /**
+     * Writes items start, ..., start + n - 1 to out[0], ..., out[n - 1], with n at most {@link Expr#BLOCK}.
+     */
+    abstract void eval(int start, int n, @Nonnull boolean[] out, @Nonnull Expr.Workspace workspace);
+
+    // Operators
+
+    /**
+     * MATLAB: <pre>{@code b & c}</pre>
+     */
+    @Nonnull
+    public final BooleanExpr and(@Nonnull BooleanExpr c) throws LengthMismatchException {
+        return new Logical(this, Op.AND, c);
+    }
+
+    /**
+     * MATLAB: <pre>{@code b | c}</pre>
+     */
+    @Nonnull
+    public final BooleanExpr or(@Nonnull BooleanExpr c) throws LengthMismatchException {
+        return new Logical(this, Op.OR, c);
+    }
+
+    /**
+     * MATLAB: <pre>{@code ~b}</pre>
+     */
+    @Nonnull
+    public final BooleanExpr not() {
+        final BooleanExpr b = this;
+        return new BooleanExpr(length) {
+            @Override
+            void eval(int start, int n, @Nonnull boolean[] out, @Nonnull Expr.Workspace workspace) {
+                b.eval(start, n, out, workspace);
+                for (int i = 0; i < n; i++) {
+                    out[i] = !out[i];
+                }
+            }
+        };
+    }
+
+    // Terminal operations
+
+    /**
+     * Evaluates the expression into a new array.
+     *
+     * @return The values.
+     */
+    @Nonnull
+    public final boolean[] toArray() {
+        final boolean[] b = new boolean[length];
+        final Expr.Workspace workspace = new Expr.Workspace();
+        final boolean[] block = workspace.takeBooleans();
+        for (int start = 0; start < length; start += Expr.BLOCK) {
+            final int n = Math.min(Expr.BLOCK, length - start);
+            eval(start, n, block, workspace);
+            System.arraycopy(block, 0, b, start, n);
+        }
+
+        return b;
+    }
+
+    /**
+     * Evaluates the expression into a new mask, without a full-length boolean array.
+     *
+     * @return The values.
+     */
+    @Nonnull
+    public final Mask toMask() {
+        final Mask m = new Mask(length);
+        final long[] words = m.words();
+        final Expr.Workspace workspace = new Expr.Workspace();
+        final boolean[] block = workspace.takeBooleans();
+        for (int start = 0; start < length; start += Expr.BLOCK) {
+            final int n = Math.min(Expr.BLOCK, length - start);
+            eval(start, n, block, workspace);
+            for (int i = 0; i < n; i++) {
+                words[(start + i) >>> 6] |= (block[i] ? 1L : 0L) << i;
+            }
+        }
+
+        return m;
+    }
+
+    /**
+     * MATLAB: <pre>{@code nnz(b)}</pre>
+     *
+     * @return The number of true items.
+     */
+    public final int count() {
+        final Expr.Workspace workspace = new Expr.Workspace();
+        final boolean[] block = workspace.takeBooleans();
+        int count = 0;
+        for (int start = 0; start < length; start += Expr.BLOCK) {
+            final int n = Math.min(Expr.BLOCK, length - start);
+            eval(start, n, block, workspace);
+            for (int i = 0; i < n; i++) {
+                if (block[i]) {
+                    count++;
+                }
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * MATLAB: <pre>{@code any(b)}</pre>
+     *
+     * @return True if any item is true.
+     */
+    public final boolean any() {
+        return find(true);
+    }
+
+    /**
+     * MATLAB: <pre>{@code all(b)}</pre>
+     *
+     * @return True if all items are true (also if there are none).
+     */
+    public final boolean all() {
+        return !find(false);
+    }
+
+    /**
+     * @return True if any item equals v.
+     */
+    private boolean find(boolean v) {
+        final Expr.Workspace workspace = new Expr.Workspace();
+        final boolean[] block = workspace.takeBooleans();
+        for (int start = 0; start < length; start += Expr.BLOCK) {
+            final int n = Math.min(Expr.BLOCK, length - start);
+            eval(start, n, block, workspace);
+            for (int i = 0; i < n; i++) {
+                if (block[i] == v) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    final void checkLength(int n) throws LengthMismatchException {
+        if (n != length) {
+            throw new LengthMismatchException("Length " + n + " (should be " + length + ")");
+        }
+    }
+
+    /**
+     * Comparison and logical operators.
+     */
+    enum Op {
+        LT, LE, GT, GE, EQ, AND, OR
+    }
+
+    static final class Compare extends BooleanExpr {
+        @Nonnull
+        private final Expr x;
+        @Nonnull
+        private final Op op;
+        private final double v;
+
+        Compare(@Nonnull Expr x, @Nonnull Op op, double v) {
+            super(x.length());
+            this.x = x;
+            this.op = op;
+            this.v = v;
+        }
+
+        @Override
+        void eval(int start, int n, @Nonnull boolean[] out, @Nonnull Expr.Workspace workspace) {
+            final double[] a = workspace.takeDoubles();
+            x.eval(start, n, a, workspace);
+            switch (op) {
+                case LT:
+                    for (int i = 0; i < n; i++) {
+                        out[i] = a[i] < v;
+                    }
+                    break;
+                case LE:
+                    for (int i = 0; i < n; i++) {
+                        out[i] = a[i] <= v;
+                    }
+                    break;
+                case GT:
+                    for (int i = 0; i < n; i++) {
+                        out[i] = a[i] > v;
+                    }
+                    break;
+                case GE:
+                    for (int i = 0; i < n; i++) {
+                        out[i] = a[i] >= v;
+                    }
+                    break;
+                case EQ:
+                    for (int i = 0; i < n; i++) {
+                        out[i] = a[i] == v;
+                    }
+                    break;
+                default:
+                    throw new AssertionError(op);
+            }
+            workspace.releaseDoubles();
+        }
+    }
+
+    static final class CompareBinary extends BooleanExpr {
+        @Nonnull
+        private final Expr x;
+        @Nonnull
+        private final Op op;
+        @Nonnull
+        private final Expr y;
+
+        CompareBinary(@Nonnull Expr x, @Nonnull Op op, @Nonnull Expr y) throws LengthMismatchException {
+            super(x.length());
+            x.checkLength(y.length());
+            this.x = x;
+            this.op = op;
+            this.y = y;
+        }
+
+        @Override
+        void eval(int start, int n, @Nonnull boolean[] out, @Nonnull Expr.Workspace workspace) {
+            final double[] a = workspace.takeDoubles();
+            final double[] b = workspace.takeDoubles();
+            x.eval(start, n, a, workspace);
+            y.eval(start, n, b, workspace);
+            switch (op) {
+                case LT:
+                    for (int i = 0; i < n; i++) {
+                        out[i] = a[i] < b[i];
+                    }
+                    break;
+                case LE:
+                    for (int i = 0; i < n; i++) {
+                        out[i] = a[i] <= b[i];
+                    }
+                    break;
+                case GT:
+                    for (int i = 0; i < n; i++) {
+                        out[i] = a[i] > b[i];
+                    }
+                    break;
+                case GE:
+                    for (int i = 0; i < n; i++) {
+                        out[i] = a[i] >= b[i];
+                    }
+                    break;
+                case EQ:
+                    for (int i = 0; i < n; i++) {
+                        out[i] = a[i] == b[i];
+                    }
+                    break;
+                default:
+                    throw new AssertionError(op);
+            }
+            workspace.releaseDoubles();
+            workspace.releaseDoubles();
+        }
+    }
+
+    private static final class Logical extends BooleanExpr {
+        @Nonnull
+        private final BooleanExpr b;
+        @Nonnull
+        private final Op op;
+        @Nonnull
+        private final BooleanExpr c;
+
+        Logical(@Nonnull BooleanExpr b, @Nonnull Op op, @Nonnull BooleanExpr c) throws LengthMismatchException {
+            super(b.length);
+            b.checkLength(c.length);
+            this.b = b;
+            this.op = op;
+            this.c = c;
+        }
+
+        @Override
+        void eval(int start, int n, @Nonnull boolean[] out, @Nonnull Expr.Workspace workspace) {
+            b.eval(start, n, out, workspace);
+            final boolean[] d = workspace.takeBooleans();
+            c.eval(start, n, d, workspace);
+            if (op == Op.AND) {
+                for (int i = 0; i < n; i++) {
+                    out[i] &= d[i];
+                }
+            } else {
+                for (int i = 0; i < n; i++) {
+                    out[i] |= d[i];
+                }
+            }
+            workspace.releaseBooleans();
+        }
+    }
+}
@@ -90,4 +90,20 @@ public final class Checks {
             return false;
         }
     }
+
+    public static boolean checkEqualLength(@Nonnull DoubleView x, @Nonnull DoubleView y)
+            throws LengthMismatchException {
+        return checkEqualLength(x, y, true);
+    }
+
+    public static boolean checkEqualLength(@Nonnull DoubleView x, @Nonnull DoubleView y, boolean abort)
+            throws LengthMismatchException {
+        if (x.length() == y.length()) {
+            return true;
+        } else if (abort) {
+            throw new LengthMismatchException();
+        } else {
+            return false;
+        }
+    }
 }
@@ -17,6 +17,36 @@ import static gr.auth.ee.mug.matlabports.Checks.checkEqualLength;
 @SuppressWarnings({"unused", "WeakerAccess"})
 public final class CommonFunctions {
 
+    /**
+     * Summation algorithms, for the sums and means of double arrays.
+     */
+    public enum Summation {
+        /**
+         * One running sum, in order. The error grows linearly with the length.
+         */
+        NAIVE,
+        /**
+         * Four interleaved running sums, added at the end. Faster than NAIVE, as the additions do not wait for each
+         * other; similar error.
+         */
+        UNROLLED,
+        /**
+         * Pairwise (cascade) summation of unrolled blocks. The error grows with the logarithm of the length, at
+         * about the speed of UNROLLED.
+         */
+        PAIRWISE,
+        /**
+         * Kahan-Babuska (Neumaier) compensated summation. The error does not grow with the length, but each
+         * addition costs about four.
+         */
+        KAHAN_BABUSKA
+    }
+
+    /**
+     * Ranges up to this length are summed directly by pairwise summation.
+     */
+    private static final int PAIRWISE_BLOCK = 128;
+
     /**
      * Computes the absolute value of each item of the array.
      * <p>
@@ -166,6 +196,45 @@ public final class CommonFunctions {
         return z;
     }
 
+    /**
+     * MATLAB:
+     * <pre>{@code c = dot(x(start:step:stop), y(start:step:stop));}</pre>
+     *
+     * @param x The first of the two input views.
+     * @param y The second of the two input views.
+     * @return The inner product.
+     */
+    public static double innerProduct(@Nonnull DoubleView x, @Nonnull DoubleView y)
+            throws LengthMismatchException {
+        checkEqualLength(x, y);
+
+        final double[] a = x.array();
+        final double[] b = y.array();
+        final int sx = x.stride();
+        final int sy = y.stride();
+        double z = 0;
+        for (int i = 0, j = x.offset(), k = y.offset(); i < x.length(); i++, j += sx, k += sy) {
+            z += a[j] * b[k];
+        }
+
+        return z;
+    }
+
+    /**
+     * Kurtosis of an array, in a single pass.
+     * <p>
+     * MATLAB:
+     * <pre>{@code y = kurtosis(x);}</pre>
+     *
+     * @param x The input array.
+     * @return The (biased) kurtosis; 3 for the normal distribution.
+     */
+    public static double kurtosis(@Nonnull double[] x) {
+        final Moments moments = new Moments();
+        moments.add(x);
+        return moments.kurtosis();
+    }
+
     /**
      * Calculates the Neper logarithm on each item of the array. Operation is <b>in place</b>.
      * <p>
@@ -220,6 +289,43 @@ public final class CommonFunctions {
         return idx;
     }
 
+    /**
+     * MATLAB:
+     * <pre>{@code v = max(x(start:step:stop));}</pre>
+     *
+     * @param x The input view, not empty.
+     * @return The maximum item.
+     */
+    public static double max(@Nonnull DoubleView x) {
+        return x.get(maxIdx(x));
+    }
+
+    /**
+     * Returns the index of the maximum item of a view.
+     * <p>
+     * MATLAB:
+     * <pre>{@code [~, idx] = max(x(start:step:stop));}</pre>
+     *
+     * @param x The input view, not empty.
+     * @return The index in the view of the maximum item.
+     */
+    public static int maxIdx(@Nonnull DoubleView x) {
+        if (x.stride() == 1) {
+            return maxIdx(x.array(), x.offset(), x.offset() + x.length() - 1) - x.offset();
+        }
+
+        final double[] a = x.array();
+        final int s = x.stride();
+        int idx = 0;
+        for (int i = 1, j = x.offset() + s; i < x.length(); i++, j += s) {
+            if (a[x.index(idx)] < a[j]) {
+                idx = i;
+            }
+        }
+
+        return idx;
+    }
+
     /**
      * Average of an array.
      * <p>
@@ -277,26 +383,87 @@ public final class CommonFunctions {
     }
 
     /**
-     * Median of an array.
+     * Average of a view.
+     * <p>
+     * MATLAB:
+     * <pre>{@code y = mean(x(start:step:stop));}</pre>
+     *
+     * @param x The input view.
+     * @return The average.
+     */
+    public static double mean(@Nonnull DoubleView x) {
+        return sum(x) / x.length();
+    }
+
+    /**
+     * Mean of an array, with the given summation algorithm.
+     * <p>
+     * MATLAB:
+     * <pre>{@code y = mean(x);}</pre>
+     *
+     * @param x         The input array.
+     * @param summation The summation algorithm.
+     * @return The mean.
+     */
+    public static double mean(@Nonnull double[] x, @Nonnull Summation summation) {
+        return mean(x, 0, x.length, summation);
+    }
+
+    /**
+     * Mean of a part of an array, with the given summation algorithm.
+     * <p>
+     * MATLAB:
+     * <pre>{@code y = mean(x(start:stop - 1))}</pre>
+     *
+     * @param x         The array to compute the mean of.
+     * @param start     The index from which to start computing the mean (inclusive).
+     * @param stop      The index at which to stop computing the mean (exclusive).
+     * @param summation The summation algorithm.
+     * @return The partial mean.
+     */
+    public static double mean(
+            @Nonnull final double[] x, final int start, final int stop, @Nonnull final Summation summation) {
+        return sum(x, start, stop, summation) / (stop - start);
+    }
+
+    /**
+     * Median of an array. NaN values are sorted last, as by {@link Arrays#sort(double[])}. Runs in O(n) expected
+     * time.
      * <p>
      * MATLAB:
      * <pre>{@code y = median(x);}</pre>
      *
      * @param x The input array.
-     * @return The median.
+     * @return The median, or NaN if the array is empty.
      */
     public static double median(@Nonnull double[] x) {
-        // Sort
-        final double[] y = x.clone();
-        Arrays.sort(y);
-
-        // Middle item index
-        int i = y.length / 2 - 1;
+        return medianInPlace(x.clone());
+    }
 
-        if (y.length % 2 == 0) {
-            return (y[i] + y[i + 1]) / 2;
+    /**
+     * Median of an array, reordering the array instead of copying it. Useful with a scratch buffer.
+     * <p>
+     * MATLAB:
+     * <pre>{@code y = median(x);}</pre>
+     *
+     * @param x The input array; reordered.
+     * @return The median, or NaN if the array is empty.
+     */
+    public static double medianInPlace(@Nonnull double[] x) {
+        final int n = x.length;
+        final int m = Selection.moveNaNsLast(x, 0, n);
+
+        // Middle item index (the upper one, for even length)
+        final int i = n / 2;
+
+        if (i >= m) {
+            return Double.NaN;
+        } else if (n % 2 == 0) {
+            Selection.select(x, 0, m, new int[]{i - 1, i});
+            return (x[i - 1] + x[i]) / 2;
         } else {
-            return y[i + 1];
+            Selection.select(x, 0, m, i);
+            return x[i];
         }
     }
 
@@ -340,6 +507,43 @@ public final class CommonFunctions {
         return idx;
     }
 
+    /**
+     * MATLAB:
+     * <pre>{@code v = min(x(start:step:stop));}</pre>
+     *
+     * @param x The input view, not empty.
+     * @return The minimum item.
+     */
+    public static double min(@Nonnull DoubleView x) {
+        return x.get(minIdx(x));
+    }
+
+    /**
+     * Returns the index of the minimum item of a view.
+     * <p>
+     * MATLAB:
+     * <pre>{@code [~, idx] = min(x(start:step:stop));}</pre>
+     *
+     * @param x The input view, not empty.
+     * @return The index in the view of the minimum item.
+     */
+    public static int minIdx(@Nonnull DoubleView x) {
+        if (x.stride() == 1) {
+            return minIdx(x.array(), x.offset(), x.offset() + x.length() - 1) - x.offset();
+        }
+
+        final double[] a = x.array();
+        final int s = x.stride();
+        int idx = 0;
+        for (int i = 1, j = x.offset() + s; i < x.length(); i++, j += s) {
+            if (a[x.index(idx)] > a[j]) {
+                idx = i;
+            }
+        }
+
+        return idx;
+    }
+
     /**
      * Norm of level 1 of an array.
      * <p>
@@ -361,6 +565,26 @@ public final class CommonFunctions {
         return y;
     }
 
+    /**
+     * Norm of level 1 of a view.
+     * <p>
+     * MATLAB:
+     * <pre>{@code y = norm(x(start:step:stop), 1);}</pre>
+     *
+     * @param x The input view.
+     * @return Its level 1 norm.
+     */
+    public static double normL1(@Nonnull DoubleView x) {
+        final double[] a = x.array();
+        final int s = x.stride();
+        double y = 0;
+        for (int i = 0, j = x.offset(); i < x.length(); i++, j += s) {
+            y += Math.abs(a[j]);
+        }
+
+        return y;
+    }
+
     /**
      * Norm of level 2 of an array.
      * <p>
@@ -385,6 +609,26 @@ public final class CommonFunctions {
         return y;
     }
 
+    /**
+     * Norm of level 2 of a view.
+     * <p>
+     * MATLAB:
+     * <pre>{@code y = norm(x(start:step:stop), 2);}</pre>
+     *
+     * @param x The input view.
+     * @return Its level 2 norm.
+     */
+    public static double normL2(@Nonnull DoubleView x) {
+        final double[] a = x.array();
+        final int s = x.stride();
+        double y = 0;
+        for (int i = 0, j = x.offset(); i < x.length(); i++, j += s) {
+            y += a[j] * a[j];
+        }
+
+        return Math.sqrt(y);
+    }
+
     /**
      * Raises each element of an array to a power. Operation is <b>in place</b>.
      * <p>
@@ -400,6 +644,138 @@ public final class CommonFunctions {
         }
     }
 
+    /**
+     * Percentiles of an array, ignoring NaN values. All percentiles are computed with a single partial sort,
+     * in O(n) expected time for a few percentiles.
+     * <p>
+     * MATLAB:
+     * <pre>{@code y = prctile(x, p);}</pre>
+     *
+     * @param x The input array.
+     * @param p The percentiles, in [0, 100].
+     * @return The percentiles of x, or NaN if x has no values.
+     */
+    @Nonnull
+    public static double[] prctile(@Nonnull double[] x, @Nonnull double[] p) {
+        return prctileInPlace(x.clone(), p);
+    }
+
+    /**
+     * Percentile of an array, ignoring NaN values.
+     * <p>
+     * MATLAB:
+     * <pre>{@code y = prctile(x, p);}</pre>
+     *
+     * @param x The input array.
+     * @param p The percentile, in [0, 100].
+     * @return The percentile of x, or NaN if x has no values.
+     */
+    public static double prctile(@Nonnull double[] x, double p) {
+        return prctileInPlace(x.clone(), new double[]{p})[0];
+    }
+
+    /**
+     * Percentiles of an array, ignoring NaN values, reordering the array instead of copying it.
+     * <p>
+     * MATLAB:
+     * <pre>{@code y = prctile(x, p);}</pre>
+     *
+     * @param x The input array; reordered.
+     * @param p The percentiles, in [0, 100].
+     * @return The percentiles of x, or NaN if x has no values.
+     */
+    @Nonnull
+    public static double[] prctileInPlace(@Nonnull double[] x, @Nonnull double[] p) {
+        final double[] q = new double[p.length];
+        for (int j = 0; j < p.length; j++) {
+            if (!(p[j] >= 0 && p[j] <= 100)) {
+                throw new IllegalArgumentException("Bad percentile " + p[j] + " (should be in [0, 100])");
+            }
+            q[j] = p[j] / 100;
+        }
+
+        return quantileInPlace(x, q);
+    }
+
+    /**
+     * Quantiles of an array, ignoring NaN values. All quantiles are computed with a single partial sort,
+     * in O(n) expected time for a few quantiles.
+     * <p>
+     * MATLAB:
+     * <pre>{@code y = quantile(x, q);}</pre>
+     *
+     * @param x The input array.
+     * @param q The quantiles, in [0, 1].
+     * @return The quantiles of x, or NaN if x has no values.
+     */
+    @Nonnull
+    public static double[] quantile(@Nonnull double[] x, @Nonnull double[] q) {
+        return quantileInPlace(x.clone(), q);
+    }
+
+    /**
+     * Quantile of an array, ignoring NaN values.
+     * <p>
+     * MATLAB:
+     * <pre>{@code y = quantile(x, q);}</pre>
+     *
+     * @param x The input array.
+     * @param q The quantile, in [0, 1].
+     * @return The quantile of x, or NaN if x has no values.
+     */
+    public static double quantile(@Nonnull double[] x, double q) {
+        return quantileInPlace(x.clone(), new double[]{q})[0];
+    }
+
+    /**
+     * Quantiles of an array, ignoring NaN values, reordering the array instead of copying it.
+     * <p>
+     * The sorted values are taken to be the quantiles 0.5 / n, 1.5 / n, ..., (n - 0.5) / n; other quantiles are
+     * interpolated linearly, or take the minimum or maximum value outside this range.
+     * <p>
+     * MATLAB:
+     * <pre>{@code y = quantile(x, q);}</pre>
+     *
+     * @param x The input array; reordered.
+     * @param q The quantiles, in [0, 1].
+     * @return The quantiles of x, or NaN if x has no values.
+     */
+    @Nonnull
+    public static double[] quantileInPlace(@Nonnull double[] x, @Nonnull double[] q) {
+        for (double v : q) {
+            if (!(v >= 0 && v <= 1)) {
+                throw new IllegalArgumentException("Bad quantile " + v + " (should be in [0, 1])");
+            }
+        }
+
+        final double[] y = new double[q.length];
+        final int n = Selection.moveNaNsLast(x, 0, x.length);
+        if (n == 0) {
+            Arrays.fill(y, Double.NaN);
+            return y;
+        }
+
+        // Select the two items around each quantile at once
+        final double[] r = new double[q.length];
+        final int[] ranks = new int[2 * q.length];
+        for (int j = 0; j < q.length; j++) {
+            r[j] = Math.min(Math.max(n * q[j] - 0.5, 0), n - 1);
+            ranks[2 * j] = (int) r[j];
+            ranks[2 * j + 1] = Math.min(ranks[2 * j] + 1, n - 1);
+        }
+        Arrays.sort(ranks);
+        Selection.select(x, 0, n, ranks);
+
+        // Interpolate
+        for (int j = 0; j < q.length; j++) {
+            final int i = (int) r[j];
+            final double f = r[j] - i;
+            y[j] = f == 0 ? x[i] : x[i] + f * (x[i + 1] - x[i]);
+        }
+
+        return y;
+    }
+
     /**
      * Sign of an array.
      * <p>
@@ -435,6 +811,21 @@ public final class CommonFunctions {
         }
     }
 
+    /**
+     * Skewness of an array, in a single pass.
+     * <p>
+     * MATLAB:
+     * <pre>{@code y = skewness(x);}</pre>
+     *
+     * @param x The input array.
+     * @return The (biased) skewness.
+     */
+    public static double skewness(@Nonnull double[] x) {
+        final Moments moments = new Moments();
+        moments.add(x);
+        return moments.skewness();
+    }
+
     /**
      * Sqrt of an array.
      * <p>
@@ -529,6 +920,71 @@ public final class CommonFunctions {
         return y;
     }
 
+    /**
+     * Sum of a view.
+     * <p>
+     * MATLAB:
+     * <pre>{@code y = sum(x(start:step:stop))}</pre>
+     *
+     * @param x The input view.
+     * @return Its sum.
+     */
+    public static double sum(@Nonnull DoubleView x) {
+        if (x.stride() == 1) {
+            return sum(x.array(), x.offset(), x.offset() + x.length());
+        }
+
+        final double[] a = x.array();
+        final int s = x.stride();
+        double y = 0;
+        for (int i = 0, j = x.offset(); i < x.length(); i++, j += s) {
+            y += a[j];
+        }
+
+        return y;
+    }
+
+    /**
+     * Sum of an array, with the given summation algorithm.
+     * <p>
+     * MATLAB:
+     * <pre>{@code y = sum(x);}</pre>
+     *
+     * @param x         The input array
+     * @param summation The summation algorithm
+     * @return Its sum
+     */
+    public static double sum(@Nonnull double[] x, @Nonnull Summation summation) {
+        return sum(x, 0, x.length, summation);
+    }
+
+    /**
+     * Sum of a part of an array, with the given summation algorithm.
+     * <p>
+     * MATLAB:
+     * <pre>{@code y = sum(x(start:stop - 1))}</pre>
+     *
+     * @param x         The array to compute the sum of.
+     * @param start     The index from which to start summing (inclusive).
+     * @param stop      The index at which to stop summing (exclusive).
+     * @param summation The summation algorithm.
+     * @return The partial sum.
+     */
+    public static double sum(
+            @Nonnull final double[] x, final int start, final int stop, @Nonnull final Summation summation) {
+        switch (summation) {
+            case UNROLLED:
+                return sumUnrolled(x, start, stop);
+            case PAIRWISE:
+                return sumPairwise(x, start, stop);
+            case KAHAN_BABUSKA:
+                return sumKahanBabuska(x, start, stop);
+            default:
+                return sum(x, start, stop);
+        }
+    }
+
+
     /**
      * Sum of an array.
      * <p>
@@ -583,46 +1039,85 @@ public final class CommonFunctions {
     }
 
     /**
-     * Set unique. Returns an array with the same values of the input array but with no repetitions.
+     * Set unique. Returns an array with the same values of the input array but with no repetitions,
+     * in the order of their first occurrence. Values are compared with {@code ==}, so each NaN is distinct
+     * and -0.0 equals 0.0. Runs in O(n) expected time.
      * <p>
      * MATLAB:
-     * <pre>{@code y = unique(x);}</pre>
+     * <pre>{@code y = unique(x, 'stable');}</pre>
      *
      * @param x The input array.
      * @return The unique array.
      */
     @Nonnull
     public static double[] unique(@Nonnull double[] x) throws LengthMismatchException {
-        // Initialise selected items array
-        boolean[] s = new boolean[x.length];
-
-        // Set first as true
-        s[0] = true;
-
-        // Loop and detect uniqueness
-        for (int i = 1; i < x.length; i++) {
+        return SelectorsSetters.select(x, uniqueSelector(x));
+    }
 
-            // Set x[i] as selected
-            s[i] = true;
+    /**
+     * Set unique, sorted. Returns the distinct values of the input array in increasing order, together with
+     * the index of the first occurrence of each one and the index of the value of each item. Values are
+     * compared with {@code ==}, so each NaN is distinct (and sorted last) and -0.0 equals 0.0. Runs in
+     * O(n log n) time.
+     * <p>
+     * MATLAB:
+     * <pre>{@code [y, ia, ic] = unique(x);}</pre>
+     *
+     * @param x The input array.
+     * @return The unique values, ia and ic (0-based).
+     */
+    @Nonnull
+    public static Unique uniqueSorted(@Nonnull double[] x) {
+        final int n = x.length;
 
-            // Loop on previous data
-            for (int j = 0; j < i; j++) {
+        // Sort, with -0.0 turned to 0.0 (x + 0.0), so that they are found equal by binary search too
+        final double[] sorted = new double[n];
+        for (int i = 0; i < n; i++) {
+            sorted[i] = x[i] + 0.0;
+        }
+        Arrays.sort(sorted);
+
+        // Remove repetitions of numbers (NaNs are sorted last)
+        int m = 0;
+        int nans = 0;
+        for (int i = 0; i < n; i++) {
+            if (Double.isNaN(sorted[i])) {
+                nans = n - i;
+                break;
+            }
+            if (m == 0 || sorted[i] != sorted[m - 1]) {
+                sorted[m++] = sorted[i];
+            }
+        }
 
-                // If the same value exists, deselect and break search
-                if (x[i] == x[j]) {
-                    s[i] = false;
-                    break;
-                }
+        // Find the value of each item, and the first item of each value; each NaN is a value of its own
+        final int[] ia = new int[m + nans];
+        final int[] ic = new int[n];
+        Arrays.fill(ia, -1);
+        int nan = m;
+        for (int i = 0; i < n; i++) {
+            final int k = Double.isNaN(x[i]) ? nan++ : Arrays.binarySearch(sorted, 0, m, x[i] + 0.0);
+            ic[i] = k;
+            if (ia[k] < 0) {
+                ia[k] = i;
             }
         }
 
-        return SelectorsSetters.select(x, s);
+        // Values as in the input (the sign of the first zero is kept)
+        final double[] y = new double[ia.length];
+        for (int k = 0; k < ia.length; k++) {
+            y[k] = x[ia[k]];
+        }
+
+        return new Unique(y, ia, ic);
     }
 
     /**
      * Set unique. Returns a boolean array indicating the unique items of the
      * input array. For items contained more than once in the array, the first
      * one is marked true (unique) and all the other false (duplicates).
+     * Values are compared with {@code ==}, so each NaN is unique and -0.0 equals 0.0.
+     * Runs in O(n) expected time.
      * <p>
      * MATLAB:
      * <pre>{@code [~, idx, ~] = unique(x);
@@ -634,27 +1129,12 @@ public final class CommonFunctions {
      */
     @Nonnull
     public static boolean[] uniqueSelector(@Nonnull double[] x) {
-        // Initialise selected items array
-        boolean[] s = new boolean[x.length];
-
-        // Set first as true
-        s[0] = true;
-
-        // Loop and detect uniqueness
-        for (int i = 1; i < x.length; i++) {
-
-            // Set x[i] as selected
-            s[i] = true;
+        final boolean[] s = new boolean[x.length];
+        final LongHashSet seen = new LongHashSet(x.length);
 
-            // Loop on previous data
-            for (int j = 0; j < i; j++) {
-
-                // If the same value exists, deselect and break search
-                if (x[i] == x[j]) {
-                    s[i] = false;
-                    break;
-                }
-            }
+        for (int i = 0; i < x.length; i++) {
+            // NaN equals nothing; -0.0 + 0.0 is 0.0, so that both zeros have the same bits
+            s[i] = Double.isNaN(x[i]) || seen.add(Double.doubleToRawLongBits(x[i] + 0.0));
         }
 
         return s;
@@ -664,6 +1144,7 @@ public final class CommonFunctions {
      * Set unique. Returns a boolean array indicating the unique items of the
      * input array. For items contained more than once in the array, the first
      * one is marked true (unique) and all the other false (duplicates).
+     * Runs in O(n) expected time.
      * <p>
      * MATLAB:
      * <pre>{@code [~, idx, ~] = unique(x);
@@ -675,34 +1156,18 @@ public final class CommonFunctions {
      */
     @Nonnull
     public static boolean[] uniqueSelector(@Nonnull int[] x) {
-        // Initialise selected items array
-        boolean[] s = new boolean[x.length];
-
-        // Set first as true
-        s[0] = true;
+        final boolean[] s = new boolean[x.length];
+        final LongHashSet seen = new LongHashSet(x.length);
 
-        // Loop and detect uniqueness
-        for (int i = 1; i < x.length; i++) {
-
-            // Set x[i] as selected
-            s[i] = true;
-
-            // Loop on previous data
-            for (int j = 0; j < i; j++) {
-
-                // If the same value exists, deselect and break search
-                if (x[i] == x[j]) {
-                    s[i] = false;
-                    break;
-                }
-            }
+        for (int i = 0; i < x.length; i++) {
+            s[i] = seen.add(x[i]);
         }
 
         return s;
     }
 
     /**
-     * Variance of a part of an array.
+     * Variance of a part of an array, in a single pass.
      * <p>
      * MATLAB:
      * <pre>{@code y = var(x(start:stop - 1));}</pre>
@@ -716,15 +1181,25 @@ public final class CommonFunctions {
     public static double var(
             @Nonnull final double[] x, final boolean unbiased, final int start, final int stop) {
 
-        // Estimate mean of x
-        double mu = mean(x, start, stop);
-
-        // Initialise sum
+        // Blocks that fit in the cache take two passes each and are merged (Chan et al.), so x is read once
+        long n = 0;
+        double mu = 0;
         double y = 0;
+        for (int b = start; b < stop; b += Moments.BLOCK) {
+            final int e = Math.min(b + Moments.BLOCK, stop);
+            final int nb = e - b;
+            final double mb = sum(x, b, e) / nb;
+            double yb = 0;
+            for (int i = b; i < e; i++) {
+                final double d = x[i] - mb;
+                yb += d * d;
+            }
 
-        // Loop and update sum
-        for (int i = start; i < stop; i++) {
-            y += Math.pow(x[i] - mu, 2);
+            final double delta = mb - mu;
+            final long nc = n + nb;
+            y += yb + delta * delta * n * nb / nc;
+            mu += delta * nb / nc;
+            n = nc;
         }
 
         if (unbiased) {
@@ -749,4 +1224,52 @@ public final class CommonFunctions {
     public static double var(@Nonnull final double[] x, final boolean unbiased) {
         return var(x, unbiased, 0, x.length);
     }
+
+    private static double sumUnrolled(@Nonnull final double[] x, final int start, final int stop) {
+        double s0 = 0;
+        double s1 = 0;
+        double s2 = 0;
+        double s3 = 0;
+        int i = start;
+        for (; i + 3 < stop; i += 4) {
+            s0 += x[i];
+            s1 += x[i + 1];
+            s2 += x[i + 2];
+            s3 += x[i + 3];
+        }
+        for (; i < stop; i++) {
+            s0 += x[i];
+        }
+
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    private static double sumPairwise(@Nonnull final double[] x, final int start, final int stop) {
+        if (stop - start <= PAIRWISE_BLOCK) {
+            return sumUnrolled(x, start, stop);
+        }
+
+        // Split at a multiple of the block length, so that only the last block is partial
+        final int blocks = (stop - start + PAIRWISE_BLOCK - 1) / PAIRWISE_BLOCK;
+        final int middle = start + blocks / 2 * PAIRWISE_BLOCK;
+        return sumPairwise(x, start, middle) + sumPairwise(x, middle, stop);
+    }
+
+    private static double sumKahanBabuska(@Nonnull final double[] x, final int start, final int stop) {
+        double s = 0;
+        double c = 0;
+        for (int i = start; i < stop; i++) {
+            final double v = x[i];
+            final double t = s + v;
+            if (Math.abs(s) >= Math.abs(v)) {
+                c += (s - t) + v;
+            } else {
+                c += (v - t) + s;
+            }
+            s = t;
+        }
+
+        // The compensation is NaN if the sum overflowed
+        return Double.isInfinite(s) ? s : s + c;
+    }
 }
@@ -13,8 +13,10 @@ public class Converters {
     public static double[] toPrimitive(@Nonnull final List<Double> x) {
         @Nonnull final double[] y = new double[x.size()];
 
-        for (int i = 0; i < y.length; i++) {
-            y[i] = x.get(i);
+        // Iterate, as get(i) may not be O(1)
+        int i = 0;
+        for (double v : x) {
+            y[i++] = v;
         }
 
         return y;
@@ -1,13 +1,11 @@
 package gr.auth.ee.mug.matlabports;
 
-import org.apache.commons.math3.stat.descriptive.rank.Median;
-import org.apache.commons.math3.util.MathArrays;
 import org.apache.commons.math3.util.MedianOf3PivotingStrategy;
 import org.junit.jupiter.api.condition.EnabledOnJre;
 
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
 
 import javax.annotation.Nonnull;
 
@@ -15,16 +13,12 @@ import gr.auth.ee.mug.matlabports.exceptions.BadArrayLengthException;
 import gr.auth.ee.mug.matlabports.exceptions.LengthMismatchException;
 import gr.auth.ee.mug.matlabports.exceptions.UnknownTimeUnitException;
 
-import static gr.auth.ee.mug.matlabports.ArithmeticOperators.add;
 import static gr.auth.ee.mug.matlabports.Checks.checkEqualLength;
 import static gr.auth.ee.mug.matlabports.CommonFunctions.diff;
-import static gr.auth.ee.mug.matlabports.CommonFunctions.innerProduct;
 import static gr.auth.ee.mug.matlabports.CommonFunctions.mean;
-import static gr.auth.ee.mug.matlabports.CommonFunctions.normL2;
-import static gr.auth.ee.mug.matlabports.SelectorsSetters.createSelector;
-import static gr.auth.ee.mug.matlabports.SelectorsSetters.select;
 import static gr.auth.ee.mug.matlabports.Tools.getTimeFactor;
-import static gr.auth.ee.mug.matlabports.Tools.toPrimitive;
+import static gr.auth.ee.mug.matlabports.Various.nextPow2;
+import static java.lang.Math.max;
 import static java.lang.Math.min;
 
 
@@ -33,9 +27,19 @@ import static java.lang.Math.min;
  */
 @SuppressWarnings({"unused", "WeakerAccess"})
 public final class DSP {
+    /**
+     * Relative cost of one butterfly of the FFT with respect to one multiply-add of the direct auto-correlation
+     * loop. Used to decide which of the two algorithms {@link #autocorr(double[], int)} runs; measured with
+     * {@code DSPBenchmark}.
+     */
+    static final double AUTOCORR_FFT_COST = 2.5;
+
     /**
      * Sample auto-correlation for lags 0, 1, ..., m.
      * <p>
+     * For large m this is computed through the FFT (O(n log n)) and for small m directly (O(n m)). Both give the
+     * same values up to rounding errors.
+     * <p>
      * MATLAB:
      * <pre>{@code r = autocorr(x, m);}</pre>
      *
@@ -45,15 +49,7 @@ public final class DSP {
      */
     @Nonnull
     public static double[] autocorr(@Nonnull double[] x, int m) {
-        final double[] y = new double[m + 1];
-
-        final double mu = mean(x);
-        for (int l = 0; l <= m; l++) {
-            y[l] = 0;
-            for (int i = 0; i < x.length - l; i++) {
-                y[l] += (x[i] - mu) * (x[i + l] - mu);
-            }
-        }
+        final double[] y = autocorrUseFft(x.length, m) ? autocorrFft(x, m) : autocorrDirect(x, m);
 
         final double y0 = y[0];
         for (int i = 0; i < y.length; i++) {
@@ -76,10 +72,21 @@ public final class DSP {
     public static double corr(@Nonnull double[] x, @Nonnull double[] y) throws LengthMismatchException {
         checkEqualLength(x, y);
 
-        final double[] x0 = add(x, -mean(x));
-        final double[] y0 = add(y, -mean(y));
+        // One pass over the centered values, without materializing them
+        final double mx = mean(x);
+        final double my = mean(y);
+        double sxy = 0;
+        double sxx = 0;
+        double syy = 0;
+        for (int i = 0; i < x.length; i++) {
+            final double x0 = x[i] - mx;
+            final double y0 = y[i] - my;
+            sxy += x0 * y0;
+            sxx += x0 * x0;
+            syy += y0 * y0;
+        }
 
-        return innerProduct(x0, y0) / (normL2(x0) * normL2(y0));
+        return sxy / (Math.sqrt(sxx) * Math.sqrt(syy));
     }
 
     /**
@@ -143,10 +150,33 @@ public final class DSP {
      */
     public static void dil1d(@Nonnull double[] x, @Nonnull double[] y, int m, boolean shift)
             throws LengthMismatchException {
-        // TODO This is not checked yet.
+        try {
+            dil1d(x, y, m, shift, new int[x.length]);
+        } catch (BadArrayLengthException e) {
+            // This should never happen
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * One-dimensional dilation of an array on pre-allocated output, using a pre-allocated work buffer. Runs in O(n)
+     * regardless of the length of the structure element and allocates no memory.
+     *
+     * @param x     The input array
+     * @param y     The output array
+     * @param m     Parameter that defines the length of the structure element
+     * @param shift If true, output array is shifted by -1
+     * @param work  Work buffer of length at least equal to the length of x
+     */
+    public static void dil1d(@Nonnull double[] x, @Nonnull double[] y, int m, boolean shift, @Nonnull int[] work)
+            throws LengthMismatchException, BadArrayLengthException {
         if (x.length != y.length) {
             throw new LengthMismatchException();
         }
+        if (work.length < x.length) {
+            throw new BadArrayLengthException(
+                    "Too short work buffer; is " + work.length + " (should be >= " + x.length + ")");
+        }
 
         // Define left and write offsets
         int nl;
@@ -165,20 +195,8 @@ public final class DSP {
             nr++;
         }
 
-        // Dilate the fist N2 elements
-        for (int i = 0; i < m; i++) {
-            y[i] = CommonFunctions.max(x, 0, i + nr);
-        }
-
-        // Dilate the middle elements
-        for (int i = m; i < x.length - m; i++) {
-            y[i] = CommonFunctions.max(x, i - nl, i + nr);
-        }
-
-        // Dilate the last N2 elements
-        for (int i = x.length - m; i < x.length; i++) {
-            y[i] = CommonFunctions.max(x, i - nl, x.length - 1);
-        }
+        // Dilate; the first and last m elements use truncated windows
+        RunningExtremum.max(x, y, m, nl, nr, work);
     }
 
     /**
@@ -222,10 +240,33 @@ public final class DSP {
      */
     public static void ero1d(@Nonnull double[] x, @Nonnull double[] y, int m, boolean shift)
             throws LengthMismatchException {
-        // TODO This is not checked yet.
+        try {
+            ero1d(x, y, m, shift, new int[x.length]);
+        } catch (BadArrayLengthException e) {
+            // This should never happen
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * One-dimensional erosion of an array on pre-allocated output, using a pre-allocated work buffer. Runs in O(n)
+     * regardless of the length of the structuring element and allocates no memory.
+     *
+     * @param x     The input array
+     * @param y     The output array
+     * @param m     Parameter that defines the length of the stucturing element
+     * @param shift If true, output array is shifted by -1
+     * @param work  Work buffer of length at least equal to the length of x
+     */
+    public static void ero1d(@Nonnull double[] x, @Nonnull double[] y, int m, boolean shift, @Nonnull int[] work)
+            throws LengthMismatchException, BadArrayLengthException {
         if (x.length != y.length) {
             throw new LengthMismatchException();
         }
+        if (work.length < x.length) {
+            throw new BadArrayLengthException(
+                    "Too short work buffer; is " + work.length + " (should be >= " + x.length + ")");
+        }
 
         // Define left and write offsets
         int nl;
@@ -244,20 +285,8 @@ public final class DSP {
             nr++;
         }
 
-        // Erode the first n elements
-        for (int i = 0; i < m; i++) {
-            y[i] = CommonFunctions.min(x, 0, i + nr);
-        }
-
-        // Erode the middle elements
-        for (int i = m; i < x.length - m; i++) {
-            y[i] = CommonFunctions.min(x, i - nl, i + nr);
-        }
-
-        // Erode the last N2 elements
-        for (int i = x.length - m; i < x.length; i++) {
-            y[i] = CommonFunctions.min(x, i - nl, x.length - 1);
-        }
+        // Erode; the first and last m elements use truncated windows
+        RunningExtremum.min(x, y, m, nl, nr, work);
     }
 
     /**
@@ -317,18 +346,22 @@ public final class DSP {
         }
 
         final double[] dt = diff(t);
-        Arrays.sort(dt);
         final int n = dt.length;
         final int i1 = Math.max(0, (int) Math.round(.1 * n) - 1);
         final int i2 = min(n - 1, (int) Math.round(.9 * n) - 1);
 
-        final boolean[] b = createSelector(i1, 1, i2, dt.length);
-        final double[] sdt = select(dt, b);
-        return 1 / getTimeFactor(timeUnit) / mean(sdt);
+        // Only the set of items of rank i1 to i2 is needed, not their order; NaNs go last, as when sorting
+        final int m = Selection.moveNaNsLast(dt, 0, n);
+        if (i2 < m) {
+            Selection.select(dt, 0, m, new int[]{i1, i2});
+        }
+        return 1 / getTimeFactor(timeUnit) / mean(dt, i1, i2 + 1);
     }
 
     /**
      * Frequencies of FFT
+     * <p>
+     * Bin i of a transform of length n computed with {@link FFT} corresponds to frequency f[i].
      *
      * @param n  The number of samples of the FFT
      * @param fs The sampling frequencies
@@ -353,6 +386,126 @@ public final class DSP {
         return f;
     }
 
+    /**
+     * Zero-phase digital filtering.
+     * <p>
+     * The input is extended at both ends by 3 * (max(length(b), length(a)) - 1) samples reflected about the end
+     * points, filtered forwards and backwards starting from the steady state of a step of the first sample, and
+     * trimmed, as MATLAB does.
+     * <p>
+     * MATLAB:
+     * <pre>{@code y = filtfilt(b, a, x);}</pre>
+     *
+     * @param b The numerator coefficients
+     * @param a The denominator coefficients
+     * @param x The input signal; should be longer than 3 times the filter order
+     * @return The filtered signal
+     */
+    @Nonnull
+    public static double[] filtfilt(@Nonnull double[] b, @Nonnull double[] a, @Nonnull double[] x)
+            throws BadArrayLengthException {
+        final double[] y = new double[x.length];
+        try {
+            filtfilt(b, a, x, y);
+        } catch (LengthMismatchException e) {
+            // This should never happen
+            throw new RuntimeException(e);
+        }
+
+        return y;
+    }
+
+    /**
+     * Zero-phase digital filtering; see {@link #filtfilt(double[], double[], double[])}.
+     *
+     * @param b The numerator coefficients
+     * @param a The denominator coefficients
+     * @param x The input signal; should be longer than 3 times the filter order
+     * @param y The output signal (can be x)
+     */
+    public static void filtfilt(@Nonnull double[] b, @Nonnull double[] a, @Nonnull double[] x, @Nonnull double[] y)
+            throws LengthMismatchException, BadArrayLengthException {
+        filtfilt(b, a, x, y, new double[filtfiltWorkLength(b, a, x.length)]);
+    }
+
+    /**
+     * Zero-phase digital filtering with a caller-supplied work buffer, which is the only memory used besides a few
+     * arrays of the filter order; see {@link #filtfilt(double[], double[], double[])}.
+     *
+     * @param b    The numerator coefficients
+     * @param a    The denominator coefficients
+     * @param x    The input signal; should be longer than 3 times the filter order
+     * @param y    The output signal (can be x)
+     * @param work The work buffer, of length at least {@link #filtfiltWorkLength(double[], double[], int)}
+     */
+    public static void filtfilt(
+            @Nonnull double[] b,
+            @Nonnull double[] a,
+            @Nonnull double[] x,
+            @Nonnull double[] y,
+            @Nonnull double[] work)
+            throws LengthMismatchException, BadArrayLengthException {
+        checkEqualLength(x, y);
+        filtfiltCheck(b, a, x.length, work.length);
+
+        final double[][] coeffs = filtfiltCoefficients(b, a);
+        filtfiltKernel(coeffs[0], coeffs[1], coeffs[2], x, y, work);
+    }
+
+    /**
+     * Zero-phase digital filtering of several channels; see {@link #filtfilt(double[], double[], double[])}.
+     *
+     * @param b        The numerator coefficients
+     * @param a        The denominator coefficients
+     * @param x        The input signals, {@code x[c]} being channel c; should be longer than 3 times the filter
+     *                 order
+     * @param y        The output signals (can be x)
+     * @param parallel If true, the channels are filtered in parallel (in the common fork-join pool)
+     */
+    public static void filtfilt(
+            @Nonnull double[] b,
+            @Nonnull double[] a,
+            @Nonnull double[][] x,
+            @Nonnull double[][] y,
+            boolean parallel)
+            throws LengthMismatchException, BadArrayLengthException {
+        if (x.length != y.length) {
+            throw new LengthMismatchException("Number of channels of x=" + x.length + " and y=" + y.length);
+        }
+        for (int c = 0; c < x.length; c++) {
+            checkEqualLength(x[c], y[c]);
+            filtfiltCheck(b, a, x[c].length, filtfiltWorkLength(b, a, x[c].length));
+        }
+
+        final double[][] coeffs = filtfiltCoefficients(b, a);
+        if (parallel) {
+            IntStream.range(0, x.length).parallel().forEach(c -> filtfiltKernel(
+                    coeffs[0], coeffs[1], coeffs[2], x[c], y[c],
+                    new double[filtfiltWorkLength(b, a, x[c].length)]));
+        } else {
+            int length = 0;
+            for (double[] xc : x) {
+                length = max(length, filtfiltWorkLength(b, a, xc.length));
+            }
+            final double[] work = new double[length];
+            for (int c = 0; c < x.length; c++) {
+                filtfiltKernel(coeffs[0], coeffs[1], coeffs[2], x[c], y[c], work);
+            }
+        }
+    }
+
+    /**
+     * Length of the work buffer needed by {@link #filtfilt(double[], double[], double[], double[], double[])}.
+     *
+     * @param b The numerator coefficients
+     * @param a The denominator coefficients
+     * @param n The length of the signal
+     * @return The length of the work buffer
+     */
+    public static int filtfiltWorkLength(@Nonnull double[] b, @Nonnull double[] a, int n) {
+        return n + 6 * (max(b.length, a.length) - 1);
+    }
+
     /**
      * Find signal peaks.
      * <p>
@@ -370,22 +523,80 @@ public final class DSP {
         }
 
         /* Find peaks */
-        @Nonnull ArrayList<Integer> idx = findPeaksBase(x);
-        if (idx.isEmpty()) {
-            return new int[0];
+        int[] idx = findPeaksBase(x);
+        if (idx.length == 0) {
+            return idx;
         }
 
         if (minPeakProminence > 0) {
-            idx = findPeaksPeakProminence(x, idx, minPeakProminence);
+            final double[] proms = findPeaksProminences(x, idx);
+            int count = 0;
+            for (int i = 0; i < idx.length; i++) {
+                if (proms[i] > minPeakProminence) {
+                    idx[count++] = idx[i];
+                }
+            }
+            idx = Arrays.copyOf(idx, count);
+        }
+        if (minPeakDistance > 0 && idx.length > 0) {
+            final int[] keep = findPeaksPeakDistance(x, idx, minPeakDistance);
+            for (int i = 0; i < keep.length; i++) {
+                idx[i] = idx[keep[i]];
+            }
+            idx = Arrays.copyOf(idx, keep.length);
         }
-        if (minPeakDistance > 0) {
-            idx = findPeaksPeakDistance(x, idx, minPeakDistance);
+
+        return idx;
+    }
+
+    /**
+     * Find signal peaks, along with their prominences and widths.
+     * <p>
+     * Prominences are computed in linear time, and widths are measured at half the prominence, with linear
+     * interpolation between samples.
+     * <p>
+     * MATLAB:
+     * <pre>{@code
+     * [~, i, w, p] = findpeaks(x, 'MinPeakDistance', minPeakDistance, 'MinPeakProminence', minPeakProminence);
+     * }</pre>
+     *
+     * @param x                 The input signal.
+     * @param minPeakDistance   Minimum distance between peaks.
+     * @param minPeakProminence Minimum prominence of each peak.
+     * @return The peaks (the same indices as {@link #findPeaks(double[], int, double)}) and their properties.
+     */
+    @Nonnull
+    public static Peaks findPeaksWithProperties(@Nonnull double[] x, int minPeakDistance, double minPeakProminence) {
+        if (x.length < 3) {
+            return new Peaks(new int[0], new double[0], new double[0]); // no peaks
         }
 
-        final int[] r = toPrimitive(idx, -1);
-        Arrays.sort(r);
+        int[] idx = findPeaksBase(x);
+        double[] proms = findPeaksProminences(x, idx);
+
+        if (minPeakProminence > 0) {
+            int count = 0;
+            for (int i = 0; i < idx.length; i++) {
+                if (proms[i] > minPeakProminence) {
+                    idx[count] = idx[i];
+                    proms[count] = proms[i];
+                    count++;
+                }
+            }
+            idx = Arrays.copyOf(idx, count);
+            proms = Arrays.copyOf(proms, count);
+        }
+        if (minPeakDistance > 0 && idx.length > 0) {
+            final int[] keep = findPeaksPeakDistance(x, idx, minPeakDistance);
+            for (int i = 0; i < keep.length; i++) {
+                idx[i] = idx[keep[i]];
+                proms[i] = proms[keep[i]];
+            }
+            idx = Arrays.copyOf(idx, keep.length);
+            proms = Arrays.copyOf(proms, keep.length);
+        }
 
-        return r;
+        return new Peaks(idx, proms, findPeaksWidths(x, idx, proms));
     }
 
     /**
@@ -441,6 +652,90 @@ public final class DSP {
         return x;
     }
 
+    /**
+     * Computes a hann window.
+     * <p>
+     * MATLAB:
+     * <pre>{@code x = hann(n);}</pre>
+     *
+     * @param n Window length.
+     * @return The window.
+     */
+    public static double[] hann(int n) {
+        final double[] x = new double[n];
+        for (int i = 0; i < n; i++) {
+            x[i] = 0.5 - 0.5 * Math.cos(2 * Math.PI * i / (n - 1));
+        }
+
+        return x;
+    }
+
+    /**
+     * One-dimensional bottom-hat filtering of an array (image-closing minus the array).
+     * <p>
+     * MATLAB:
+     * <pre>{@code y = imbothat(x, ones(n, 1));}</pre>
+     *
+     * @param x The input array
+     * @param n Parameter that defines the length of the structure element
+     * @return The bottom-hat filtered array
+     */
+    @Nonnull
+    public static double[] imbothat(@Nonnull double[] x, int n) {
+        final double[] y = new double[x.length];
+        morphology(x, y, n, new MorphologyWorkspace(), false, true);
+        return y;
+    }
+
+    /**
+     * One-dimensional bottom-hat filtering of an array on pre-allocated output. The output can be the input array
+     * itself. No memory is allocated once the workspace is large enough.
+     *
+     * @param x         The input array
+     * @param y         The output array
+     * @param n         Parameter that defines the length of the structure element
+     * @param workspace The workspace to use
+     */
+    public static void imbothat(
+            @Nonnull double[] x, @Nonnull double[] y, int n, @Nonnull MorphologyWorkspace workspace)
+            throws LengthMismatchException {
+        checkEqualLength(x, y);
+        morphology(x, y, n, workspace, false, true);
+    }
+
+    /**
+     * One-dimensional image-closing of an array.
+     * <p>
+     * MATLAB:
+     * <pre>{@code y = imclose(x, ones(n, 1));}</pre>
+     *
+     * @param x The input array
+     * @param n Parameter that defines the length of the structure element
+     * @return The image-closed array
+     */
+    @Nonnull
+    public static double[] imclose(@Nonnull double[] x, int n) {
+        final double[] y = new double[x.length];
+        morphology(x, y, n, new MorphologyWorkspace(), false, false);
+        return y;
+    }
+
+    /**
+     * One-dimensional image-closing of an array on pre-allocated output. The output can be the input array itself.
+     * No memory is allocated once the workspace is large enough.
+     *
+     * @param x         The input array
+     * @param y         The output array
+     * @param n         Parameter that defines the length of the structure element
+     * @param workspace The workspace to use
+     */
+    public static void imclose(
+            @Nonnull double[] x, @Nonnull double[] y, int n, @Nonnull MorphologyWorkspace workspace)
+            throws LengthMismatchException {
+        checkEqualLength(x, y);
+        morphology(x, y, n, workspace, false, false);
+    }
+
     /**
      * One-dimensional image-opening of an array.
      *
@@ -449,36 +744,72 @@ public final class DSP {
      * @return The image-opened array
      */
     public static double[] imopen(double[] x, int n) throws LengthMismatchException {
-        // TODO This is not checked yet.
         // Check if x is null
         if (x == null) {
             return null;
         }
 
-        int m = x.length;
-
-        // Padding
-        double[] y = new double[m + 2 * n];
-        for (int i = 0; i < n; i++) {
-            y[i] = x[0];
-            y[y.length - 1 - i] = x[m - 1];
-        }
-        System.arraycopy(x, 0, y, n, m);
-
-        // Perform image opening
-        y = dil1d(ero1d(y, n), n);
+        final double[] y = new double[x.length];
+        morphology(x, y, n, new MorphologyWorkspace(), true, false);
+        return y;
+    }
 
-        // Initialise return buffer
-        double[] z = new double[m];
+    /**
+     * One-dimensional image-opening of an array on pre-allocated output. The output can be the input array itself.
+     * No memory is allocated once the workspace is large enough.
+     *
+     * @param x         The input array
+     * @param y         The output array
+     * @param n         Parameter that defines the length of the structure element
+     * @param workspace The workspace to use
+     */
+    public static void imopen(
+            @Nonnull double[] x, @Nonnull double[] y, int n, @Nonnull MorphologyWorkspace workspace)
+            throws LengthMismatchException {
+        checkEqualLength(x, y);
+        morphology(x, y, n, workspace, true, false);
+    }
 
-        // Populate buffer
-        System.arraycopy(y, n, z, 0, m);
+    /**
+     * One-dimensional top-hat filtering of an array (the array minus its image-opening).
+     * <p>
+     * MATLAB:
+     * <pre>{@code y = imtophat(x, ones(n, 1));}</pre>
+     *
+     * @param x The input array
+     * @param n Parameter that defines the length of the structure element
+     * @return The top-hat filtered array
+     */
+    @Nonnull
+    public static double[] imtophat(@Nonnull double[] x, int n) {
+        final double[] y = new double[x.length];
+        morphology(x, y, n, new MorphologyWorkspace(), true, true);
+        return y;
+    }
 
-        return z;
+    /**
+     * One-dimensional top-hat filtering of an array on pre-allocated output. The output can be the input array
+     * itself. No memory is allocated once the workspace is large enough.
+     *
+     * @param x         The input array
+     * @param y         The output array
+     * @param n         Parameter that defines the length of the structure element
+     * @param workspace The workspace to use
+     */
+    public static void imtophat(
+            @Nonnull double[] x, @Nonnull double[] y, int n, @Nonnull MorphologyWorkspace workspace)
+            throws LengthMismatchException {
+        checkEqualLength(x, y);
+        morphology(x, y, n, workspace, true, true);
     }
 
-    private static ArrayList<Integer> findPeaksBase(@Nonnull double[] x) {
-        @Nonnull final ArrayList<Integer> idx = new ArrayList<>();
+    /**
+     * Local maxima (the first sample of flat peaks), in increasing order.
+     */
+    @Nonnull
+    private static int[] findPeaksBase(@Nonnull double[] x) {
+        // Local maxima are at least two samples apart, so the buffer never grows
+        final IntArrayBuffer idx = new IntArrayBuffer(x.length / 2 + 1);
 
         int i = 1;
         while (i < x.length - 1) {
@@ -500,135 +831,619 @@ public final class DSP {
             i = j;
         }
 
-        return idx;
+        return idx.toArray();
     }
 
-    private static ArrayList<Integer> findPeaksPeakDistance(
-            @Nonnull final double[] x, @Nonnull ArrayList<Integer> idx, final double minPeakDistance) {
+    /**
+     * Enforces the minimum peak distance: starting from the highest peak (ties in order of index), peaks closer
+     * than minPeakDistance to an already accepted peak are rejected.
+     *
+     * @return The positions in idx of the accepted peaks, in increasing order
+     */
+    @Nonnull
+    private static int[] findPeaksPeakDistance(
+            @Nonnull final double[] x, @Nonnull final int[] idx, final double minPeakDistance) {
 
-        // Empty check
-        if (idx.isEmpty()) {
-            return idx;
+        final double[] idxV = new double[idx.length];
+        for (int i = 0; i < idx.length; i++) {
+            idxV[i] = x[idx[i]];
         }
 
-        // Create index and value arrays for input peaks
-        final int n = idx.size();
-        final double[] idxI = new double[n];
-        final double[] idxV = new double[n];
-        for (int i = 0; i < n; i++) {
-            idxI[i] = idx.get(i);
-            idxV[i] = x[(int) idxI[i]];
-        }
+        return selectByPeakDistance(idx, idxV, idx.length, minPeakDistance);
+    }
+
+    /**
+     * Enforces the minimum peak distance on the first n peaks of idx, whose values are in idxV; see
+     * {@link #findPeaksPeakDistance(double[], int[], double)}.
+     * <p>
+     * Each accepted peak marks its neighbours within minPeakDistance as rejected, so after sorting (O(p log p))
+     * every peak is visited a bounded number of times.
+     *
+     * @return The positions in idx of the accepted peaks, in increasing order
+     */
+    @Nonnull
+    static int[] selectByPeakDistance(
+            @Nonnull final int[] idx, @Nonnull final double[] idxV, final int n, final double minPeakDistance) {
 
-        // Sort these arrays
-        MathArrays.sortInPlace(idxV, MathArrays.OrderDirection.DECREASING, idxI);
+        // Positions of the peaks, highest first
+        final int[] order = sortDecreasing(idxV, n);
 
         /* Enforce minimum peak distance */
-        final ArrayList<Integer> idx2 = new ArrayList<>();
-        idx2.add((int) idxI[0]);
-        for (int i = 1; i < n; i++) {
-            // Find minimum distance
-            double minDist = Math.abs(idxI[i] - idx2.get(0));
-            for (int j = 1; j < idx2.size(); j++) {
-                minDist = min(minDist, Math.abs(idxI[i] - idx2.get(j)));
+        final boolean[] rejected = new boolean[n];
+        int count = n;
+        for (int k : order) {
+            if (rejected[k]) {
+                continue;
+            }
+            for (int j = k - 1; j >= 0 && idx[k] - idx[j] <= minPeakDistance; j--) {
+                if (!rejected[j]) {
+                    rejected[j] = true;
+                    count--;
+                }
             }
-            // Add index if minDist is big enough
-            if (minDist > minPeakDistance) {
-                idx2.add((int) idxI[i]);
+            for (int j = k + 1; j < n && idx[j] - idx[k] <= minPeakDistance; j++) {
+                if (!rejected[j]) {
+                    rejected[j] = true;
+                    count--;
+                }
             }
         }
 
-        return idx2;
+        final int[] keep = new int[count];
+        count = 0;
+        for (int i = 0; i < n; i++) {
+            if (!rejected[i]) {
+                keep[count++] = i;
+            }
+        }
+
+        return keep;
     }
 
-    private static ArrayList<Integer> findPeaksPeakProminence(
-            @Nonnull final double[] x,
-            @Nonnull final ArrayList<Integer> idx,
-            final double minPeakProminence) {
+    /**
+     * Stable sort in decreasing order (as {@link Double#compare(double, double)}), with a bottom-up merge sort.
+     *
+     * @param v The values
+     * @param n The number of values (from the start of v) to sort
+     * @return The indices of the values, in sorted order
+     */
+    @Nonnull
+    private static int[] sortDecreasing(@Nonnull final double[] v, final int n) {
+        int[] order = new int[n];
+        int[] tmp = new int[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
 
-        // Empty check
-        if (idx.isEmpty()) {
-            return idx;
+        for (int width = 1; width < n; width *= 2) {
+            for (int lo = 0; lo < n; lo += 2 * width) {
+                final int mid = min(lo + width, n);
+                final int hi = min(lo + 2 * width, n);
+                int i = lo;
+                int j = mid;
+                int k = lo;
+                while (i < mid && j < hi) {
+                    // Take from the right run only if strictly greater, which keeps equal values in order
+                    tmp[k++] = Double.compare(v[order[j]], v[order[i]]) > 0 ? order[j++] : order[i++];
+                }
+                while (i < mid) {
+                    tmp[k++] = order[i++];
+                }
+                while (j < hi) {
+                    tmp[k++] = order[j++];
+                }
+            }
+            final int[] t = order;
+            order = tmp;
+            tmp = t;
         }
 
-        // Calculate peak prominence values
-        final double[] proms = new double[idx.size()];
+        return order;
+    }
 
-        for (int i = 0; i < proms.length; i++) {
+    /**
+     * Prominence of each peak.
+     * <p>
+     * Each peak extends on either side up to the nearest higher peak (or the end of the signal), and its prominence
+     * is its height above the higher of the minima of the two sides. Both minima are computed in O(n), with a stack
+     * of peaks of decreasing height per side.
+     */
+    @Nonnull
+    private static double[] findPeaksProminences(@Nonnull final double[] x, @Nonnull final int[] idx) {
+        final int p = idx.length;
+        final int[] stack = new int[p];
+        final double[] segmentMin = new double[p + 1];
+        final double[] leftMin = new double[p];
+        final double[] rightMin = new double[p];
+        findPeaksSideMinima(x, idx, true, stack, segmentMin, leftMin);
+        findPeaksSideMinima(x, idx, false, stack, segmentMin, rightMin);
+
+        final double[] proms = new double[p];
+        for (int i = 0; i < p; i++) {
+            final double curV = x[idx[i]];
+
+            // The right side includes the peak itself
+            final double rightMinV = rightMin[i] < curV ? rightMin[i] : curV;
+            proms[i] = curV - Math.max(leftMin[i], rightMinV);
+        }
 
-            // Current peak
-            final int curI = idx.get(i);
-            final double curV = x[curI];
+        return proms;
+    }
 
-            // Left and right peaks/edges
-            int leftEdgeI = 0;
-            for (int j = i - 1; j >= 0; j--) {
-                if (curV < x[idx.get(j)]) {
-                    leftEdgeI = idx.get(j);
-                    break;
+    /**
+     * Minimum of each side of each peak: from the nearest higher peak on the left (or the start of the signal) up
+     * to the sample before the peak, or from the sample after the peak up to the nearest higher peak on the right
+     * (or the end of the signal).
+     * <p>
+     * The signal is scanned once, keeping a stack of peaks of decreasing height and the minimum of the samples from
+     * each of them up to the next one in the stack (segmentMin[s + 1] for stack position s, segmentMin[0] for the
+     * samples before the bottom of the stack). When a peak arrives, the lower peaks are popped and their minima
+     * merged, which leaves the minimum from the nearest higher peak on top.
+     * <p>
+     * NaNs are ignored, except for a NaN first sample on the left side of a peak without a higher peak on its left,
+     * which gives NaN.
+     */
+    private static void findPeaksSideMinima(
+            @Nonnull final double[] x,
+            @Nonnull final int[] idx,
+            final boolean left,
+            @Nonnull final int[] stack,
+            @Nonnull final double[] segmentMin,
+            @Nonnull final double[] out) {
+
+        final int n = x.length;
+        final int p = idx.length;
+
+        int size = 0;
+        segmentMin[0] = Double.POSITIVE_INFINITY;
+        int k = left ? 0 : p - 1;
+        for (int s = 0; s < n; s++) {
+            final int j = left ? s : n - 1 - s;
+
+            if (k >= 0 && k < p && idx[k] == j) {
+                final double v = x[j];
+
+                // Pop lower (or equal) peaks, merging their minima
+                double m = Double.POSITIVE_INFINITY;
+                while (size > 0 && x[idx[stack[size - 1]]] <= v) {
+                    if (segmentMin[size] < m) {
+                        m = segmentMin[size];
+                    }
+                    size--;
+                }
+                if (m < segmentMin[size]) {
+                    segmentMin[size] = m;
                 }
+
+                out[k] = left && size == 0 && Double.isNaN(x[0]) ? Double.NaN : segmentMin[size];
+
+                stack[size++] = k;
+                segmentMin[size] = Double.POSITIVE_INFINITY;
+                k += left ? 1 : -1;
             }
 
-            int rightEdgeI = x.length - 1;
-            for (int j = i + 1; j < idx.size(); j++) {
-                if (curV < x[idx.get(j)]) {
-                    rightEdgeI = idx.get(j);
-                    break;
-                }
+            if (x[j] < segmentMin[size]) {
+                segmentMin[size] = x[j];
             }
+        }
+    }
 
-            // Find left and right minima
-            double leftMinV = x[leftEdgeI];
-            for (int j = leftEdgeI + 1; j < curI; j++) {
-                if (x[j] < leftMinV) {
-                    leftMinV = x[j];
-                }
+    /**
+     * Width of each peak at half its prominence, i.e. the distance between the points where the signal crosses
+     * x[i] - prominence / 2 on either side of peak i, interpolated linearly.
+     */
+    @Nonnull
+    private static double[] findPeaksWidths(
+            @Nonnull final double[] x, @Nonnull final int[] idx, @Nonnull final double[] proms) {
+
+        final int n = x.length;
+        final double[] widths = new double[idx.length];
+        for (int k = 0; k < idx.length; k++) {
+            final int curI = idx[k];
+            final double height = x[curI] - 0.5 * proms[k];
+
+            int i = curI;
+            while (i > 0 && height < x[i]) {
+                i--;
+            }
+            double leftI = i;
+            if (x[i] < height) {
+                leftI += (height - x[i]) / (x[i + 1] - x[i]);
             }
 
-            double rightMinV = x[curI];
-            for (int j = curI + 1; j <= rightEdgeI; j++) {
-                if (x[j] < rightMinV) {
-                    rightMinV = x[j];
-                }
+            i = curI;
+            while (i < n - 1 && height < x[i]) {
+                i++;
+            }
+            double rightI = i;
+            if (x[i] < height) {
+                rightI -= (height - x[i]) / (x[i - 1] - x[i]);
+            }
+
+            widths[k] = rightI - leftI;
+        }
+
+        return widths;
+    }
+
+    /**
+     * Un-normalised sample auto-correlation for lags 0, 1, ..., m, computed directly.
+     */
+    @Nonnull
+    static double[] autocorrDirect(@Nonnull double[] x, int m) {
+        final double[] y = new double[m + 1];
+
+        final double mu = mean(x);
+        for (int l = 0; l <= m; l++) {
+            y[l] = 0;
+            for (int i = 0; i < x.length - l; i++) {
+                y[l] += (x[i] - mu) * (x[i + l] - mu);
+            }
+        }
+
+        return y;
+    }
+
+    /**
+     * Un-normalised sample auto-correlation for lags 0, 1, ..., m, computed as the inverse FFT of the power
+     * spectrum of the zero-padded input.
+     */
+    @Nonnull
+    static double[] autocorrFft(@Nonnull double[] x, int m) {
+        final int n = x.length;
+        final double[] y = new double[m + 1];
+        if (n == 0) {
+            return y;
+        }
+
+        // Zero-pad to avoid circular overlap
+        final int nfft = nextPow2(2 * n - 1);
+        final double[] z = new double[nfft];
+        final double mu = mean(x);
+        for (int i = 0; i < n; i++) {
+            z[i] = x[i] - mu;
+        }
+
+        // Power spectrum and back
+        final FFT fft = FFT.of(nfft);
+        final double[] re = new double[nfft / 2 + 1];
+        final double[] im = new double[nfft / 2 + 1];
+        try {
+            fft.forwardReal(z, re, im);
+            for (int i = 0; i < re.length; i++) {
+                re[i] = re[i] * re[i] + im[i] * im[i];
+                im[i] = 0;
             }
+            fft.inverseReal(re, im, z);
+        } catch (BadArrayLengthException e) {
+            // This should never happen
+            throw new RuntimeException(e);
+        }
+
+        // Lags of n or more are zero
+        System.arraycopy(z, 0, y, 0, min(m + 1, n));
 
-            // Compute prominence
-            proms[i] = curV - Math.max(leftMinV, rightMinV);
+        return y;
+    }
+
+    /**
+     * Compares the estimated costs of the direct and FFT auto-correlation.
+     *
+     * @param n The length of the input array
+     * @param m The max lag
+     * @return True if the FFT is expected to be faster
+     */
+    static boolean autocorrUseFft(int n, int m) {
+        if (n < 2) {
+            return false;
         }
 
-        // Enforce minimum peak prominence
-        final ArrayList<Integer> idx2 = new ArrayList<>();
+        // Multiply-adds of the direct loop
+        final long l = min(m, n - 1);
+        final double direct = (l + 1) * (double) n - l * (l + 1) / 2.0;
+
+        // Butterflies of the forward and inverse FFT
+        final int nfft = nextPow2(2 * n - 1);
+        final double fft = AUTOCORR_FFT_COST * nfft * (31 - Integer.numberOfLeadingZeros(nfft));
 
-        for (int i = 0; i < idx.size(); i++) {
-            if (proms[i] > minPeakProminence) {
-                idx2.add(idx.get(i));
+        return direct > fft;
+    }
+
+    /**
+     * Fused one-dimensional image-opening/closing. The first operation (erosion for opening, dilation for closing)
+     * is computed on the fly and fed to the second one, so both run in a single pass. The input is padded with its
+     * first and last items by clamping the indices instead of copying, which gives exactly the same result as padding
+     * by n items on each side, running {@link #ero1d(double[], int)} and {@link #dil1d(double[], int)} (in the
+     * appropriate order) and trimming the padding.
+     *
+     * @param x         The input array
+     * @param y         The output array (can be x)
+     * @param n         Parameter that defines the length of the structure element
+     * @param workspace The workspace to use
+     * @param open      If true, performs an opening, otherwise a closing
+     * @param hat       If true, the output is x minus the opening (top-hat), or the closing minus x (bottom-hat)
+     */
+    private static void morphology(
+            @Nonnull final double[] x,
+            @Nonnull final double[] y,
+            final int n,
+            @Nonnull final MorphologyWorkspace workspace,
+            final boolean open,
+            final boolean hat) {
+
+        final int m = x.length;
+        if (m == 0) {
+            return;
+        }
+
+        workspace.ensureCapacity(m, n);
+        final double[] buffer = workspace.buffer;
+        final int[] queue1 = workspace.queue1;
+        final int[] queue2 = workspace.queue2;
+
+        // Left and right offsets of erosion and dilation (same as in ero1d and dil1d)
+        final int nlEro;
+        final int nrEro;
+        final int nlDil;
+        final int nrDil;
+        if (n % 2 == 1) {
+            nlEro = (n - 1) / 2;
+            nrEro = (n - 1) / 2;
+            nlDil = (n - 1) / 2;
+            nrDil = (n - 1) / 2;
+        } else {
+            nlEro = n / 2 - 1;
+            nrEro = n / 2;
+            nlDil = n / 2;
+            nrDil = n / 2 - 1;
+        }
+
+        // Offsets of the first and second operation
+        final int nl1 = open ? nlEro : nlDil;
+        final int nr1 = open ? nrEro : nrDil;
+        final int nl2 = open ? nlDil : nlEro;
+        final int nr2 = open ? nrDil : nrEro;
+
+        int head1 = 0;
+        int tail1 = 0;
+        int next1 = 0;
+        int head2 = 0;
+        int tail2 = 0;
+
+        // Item q of the first operation is stored at buffer[q + nl2]; output i needs items i - nl2, ..., i + nr2
+        for (int q = -nl2; q < m + nr2; q++) {
+
+            // First operation, over x[lo1:hi1]
+            final int lo1 = clamp(q - nl1, m);
+            final int hi1 = clamp(q + nr1, m);
+            while (head1 < tail1 && queue1[head1] < lo1) {
+                head1++;
+            }
+            while (next1 <= hi1) {
+                final double v = x[next1];
+                while (tail1 > head1) {
+                    final double u = x[queue1[tail1 - 1]];
+                    if ((open ? u >= v : u <= v) || Double.isNaN(u)) {
+                        tail1--;
+                    } else {
+                        break;
+                    }
+                }
+                queue1[tail1++] = next1++;
+            }
+            final double first = x[lo1];
+            final int b = q + nl2;
+            buffer[b] = head1 == tail1 || Double.isNaN(first) ? first : x[queue1[head1]];
+
+            // Second operation, over buffer[i:i + nl2 + nr2]
+            final double v = buffer[b];
+            while (tail2 > head2) {
+                final double u = buffer[queue2[tail2 - 1]];
+                if ((open ? u <= v : u >= v) || Double.isNaN(u)) {
+                    tail2--;
+                } else {
+                    break;
+                }
+            }
+            queue2[tail2++] = b;
+
+            final int i = q - nr2;
+            if (i < 0) {
+                continue;
+            }
+            while (queue2[head2] < i) {
+                head2++;
+            }
+            final double r = Double.isNaN(buffer[i]) ? buffer[i] : buffer[queue2[head2]];
+
+            // x[i] is not needed any more, so y can be x
+            if (!hat) {
+                y[i] = r;
+            } else if (open) {
+                y[i] = x[i] - r;
+            } else {
+                y[i] = r - x[i];
             }
         }
+    }
 
-        return idx2;
+    /**
+     * Clamps an index to the range 0, 1, ..., n - 1.
+     */
+    private static int clamp(int i, int n) {
+        return i < 0 ? 0 : i >= n ? n - 1 : i;
     }
 
+    private static void filtfiltCheck(@Nonnull double[] b, @Nonnull double[] a, int n, int workLength)
+            throws BadArrayLengthException {
+        if (b.length < 1) {
+            throw new BadArrayLengthException("Length of b=" + b.length);
+        }
+        if (a.length < 1) {
+            throw new BadArrayLengthException("Length of a=" + a.length);
+        }
+        if (a[0] == 0) {
+            throw new IllegalArgumentException("First denominator coefficient should be non-zero");
+        }
+        final int nfact = 3 * (max(b.length, a.length) - 1);
+        if (n <= nfact) {
+            throw new BadArrayLengthException("Signal length " + n + " should be more than " + nfact);
+        }
+        if (workLength < filtfiltWorkLength(b, a, n)) {
+            throw new BadArrayLengthException("Work buffer length " + workLength + " should be at least "
+                    + filtfiltWorkLength(b, a, n));
+        }
+    }
+
+    /**
+     * Normalizes the coefficients of filtfilt and computes the initial conditions.
+     * <p>
+     * The initial conditions are the state of the transposed direct form II (as in MATLAB's filter) after a unit
+     * step has gone through the filter for ever, which is what MATLAB's filtfilt gets by solving a linear system:
+     * the output is then the DC gain g = sum(b) / sum(a), so state k is the sum of b[j] - a[j] * g for j > k.
+     *
+     * @return The normalized b and a, padded to the same length, and the initial conditions
+     */
+    @Nonnull
+    private static double[][] filtfiltCoefficients(@Nonnull double[] b, @Nonnull double[] a) {
+        final int coeffLength = max(b.length, a.length);
+        final double[] bn = new double[coeffLength];
+        final double[] an = new double[coeffLength];
+        for (int i = 0; i < b.length; i++) {
+            bn[i] = b[i] / a[0];
+        }
+        for (int i = 0; i < a.length; i++) {
+            an[i] = a[i] / a[0];
+        }
+
+        double sumB = 0;
+        double sumA = 0;
+        for (int i = 0; i < coeffLength; i++) {
+            sumB += bn[i];
+            sumA += an[i];
+        }
+        final double g = sumB / sumA;
+
+        final double[] zi = new double[coeffLength - 1];
+        double z = 0;
+        for (int k = coeffLength - 2; k >= 0; k--) {
+            z += bn[k + 1] - an[k + 1] * g;
+            zi[k] = z;
+        }
+
+        return new double[][]{bn, an, zi};
+    }
+
+    /**
+     * Filters forwards and backwards on the work buffer, which holds the reflected extensions and the signal.
+     */
+    private static void filtfiltKernel(
+            @Nonnull double[] b,
+            @Nonnull double[] a,
+            @Nonnull double[] zi,
+            @Nonnull double[] x,
+            @Nonnull double[] y,
+            @Nonnull double[] work) {
+
+        final int n = x.length;
+        final int nfact = 3 * zi.length;
+        final int length = n + 2 * nfact;
+
+        // MATLAB: [2 * x(1) - x(nfact + 1:-1:2); x; 2 * x(end) - x(end - 1:-1:end - nfact)]
+        for (int i = 0; i < nfact; i++) {
+            work[i] = 2 * x[0] - x[nfact - i];
+            work[nfact + n + i] = 2 * x[n - 1] - x[n - 2 - i];
+        }
+        System.arraycopy(x, 0, work, nfact, n);
+
+        final double[] z = new double[zi.length];
+        filtfiltPass(b, a, zi, z, work, 0, length, 1);
+        filtfiltPass(b, a, zi, z, work, length - 1, -1, -1);
+
+        System.arraycopy(work, nfact, y, 0, n);
+    }
+
+    /**
+     * Filters work[from], work[from + step], ... (up to but excluding work[to]) in place, in transposed direct form
+     * II, starting from the initial conditions scaled by the first sample.
+     */
+    private static void filtfiltPass(
+            @Nonnull double[] b,
+            @Nonnull double[] a,
+            @Nonnull double[] zi,
+            @Nonnull double[] z,
+            @Nonnull double[] work,
+            int from,
+            int to,
+            int step) {
+
+        final int order = zi.length;
+        final double x0 = work[from];
+        for (int k = 0; k < order; k++) {
+            z[k] = zi[k] * x0;
+        }
+
+        for (int i = from; i != to; i += step) {
+            final double v = work[i];
+            final double r = b[0] * v + (order > 0 ? z[0] : 0);
+            for (int k = 0; k < order - 1; k++) {
+                z[k] = b[k + 1] * v - a[k + 1] * r + z[k + 1];
+            }
+            if (order > 0) {
+                z[order - 1] = b[order] * v - a[order] * r;
+            }
+            work[i] = r;
+        }
+    }
+
+    /**
+     * One-dimensional median filter. The input is padded with zeros at the edges.
+     * <p>
+     * MATLAB:
+     * <pre>{@code y = medfilt1(x, n);}</pre>
+     *
+     * @param x The input array
+     * @param n The window length
+     * @return The filtered array
+     */
     public static double[] medfilt1(@Nonnull final double[] x, final int n) {
+        return medfilt1(x, n, false);
+    }
 
-        // Pad input array with zeros
-        int n2 = n / 2;
-        @Nonnull final double[] xPadded = new double[x.length + 2 * n2];
-        Arrays.fill(xPadded, 0.0);
-        System.arraycopy(x, 0, xPadded, n2, x.length);
+    /**
+     * One-dimensional median filter. For even n, the window of item i is x(i - n / 2), ..., x(i + n / 2 - 1). NaN
+     * values are ignored. Runs in O(log n) per item.
+     * <p>
+     * MATLAB:
+     * <pre>{@code y = medfilt1(x, n, 'zeropad');  % truncate = false
+     * y = medfilt1(x, n, 'truncate'); % truncate = true}</pre>
+     *
+     * @param x        The input array
+     * @param n        The window length
+     * @param truncate If true, the median at the edges is computed over the available items only; otherwise the
+     *                 input is padded with zeros
+     * @return The filtered array
+     */
+    public static double[] medfilt1(@Nonnull final double[] x, final int n, final boolean truncate) {
+        final int n2 = n / 2;
 
-        // Create buffer array. It will be used to copy each window of x to compute median over it
-        @Nonnull final double[] w = new double[n];
+        // Padding items; NaN values are ignored by the median, which truncates the window
+        final double padding = truncate ? Double.NaN : 0.0;
 
         // Create output array
         @Nonnull final double[] y = new double[x.length];
 
-        // Create a median object to estimate medians
-        @Nonnull final Median median = new Median();
+        // Create the sliding window and fill it in with all but the last item of the first window
+        @Nonnull final SlidingMedian median = new SlidingMedian(n);
+        for (int j = -n2; j < n - 1 - n2; j++) {
+            median.add(j >= 0 && j < x.length ? x[j] : padding);
+        }
 
         // Estimate medians
         for (int i = 0; i < y.length; i++) {
-            System.arraycopy(xPadded, i, w, 0, n);
-            y[i] = median.evaluate(w);
+            final int j = i - n2 + n - 1;
+            median.add(j < x.length ? x[j] : padding);
+            y[i] = median.median();
         }
 
         return y;
@@ -0,0 +1,230 @@
+package gr.auth.ee.mug.matlabports;
+
+import javax.annotation.Nonnull;
+
+
+/**
+ * Strided view of an array of doubles: the items {@code array[offset + i * stride]} for i from 0 to length - 1.
+ * <p>
+ * A view is a reference to part of an array, not a copy; reading and writing it reads and writes the array. Views
+ * of MATLAB ranges {@code x(start:step:stop)} are created with {@link #of(double[], int, int, int)}, and can be
+ * passed to the view overloads of {@link CommonFunctions} and {@link ArithmeticOperators}, so that operating on a
+ * range allocates neither a selector nor a copy.
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public final class DoubleView {
+
+    @Nonnull
+    private final double[] array;
+    private final int offset;
+    private final int stride;
+    private final int length;
+
+    /**
+     * @param array  The array viewed
+     * @param offset The index in array of the first item
+     * @param stride The distance in array between consecutive items; may be negative
+     * @param length The number of items
+     */
+    public DoubleView(@Nonnull double[] array, int offset, int stride, int length) {
+        if (length < 0) {
+            throw new IllegalArgumentException("Bad length " + length + " (should be >= 0)");
+        }
+        if (length > 0) {
+            final long last = offset + (long) (length - 1) * stride;
+            if (offset < 0 || offset >= array.length || last < 0 || last >= array.length) {
+                throw new IndexOutOfBoundsException(
+                        "Indices " + offset + " to " + last + " (length " + array.length + ")");
+            }
+        }
+
+        this.array = array;
+        this.offset = offset;
+        this.stride = stride;
+        this.length = length;
+    }
+
+    /**
+     * MATLAB:
+     * <pre>{@code v = x(:);}</pre>
+     *
+     * @param x The array to view.
+     * @return A view of all items of x.
+     */
+    @Nonnull
+    public static DoubleView of(@Nonnull double[] x) {
+        return new DoubleView(x, 0, 1, x.length);
+    }
+
+    /**
+     * Negative steps are supported.
+     * <p>
+     * MATLAB:
+     * <pre>{@code v = x(start:step:stop);}</pre>
+     * Note - you can use {@code END} as MATLAB's end.
+     *
+     * @param x     The array to view.
+     * @param start The index of the first item.
+     * @param step  The step between items; not zero.
+     * @param stop  The bound of the last item (inclusive).
+     * @return A view of the items of x in the range, in its order.
+     */
+    @Nonnull
+    public static DoubleView of(@Nonnull double[] x, int start, int step, int stop) {
+        return range(x, 0, 1, x.length, start, step, stop);
+    }
+
+    /**
+     * Negative steps are supported.
+     * <p>
+     * MATLAB:
+     * <pre>{@code w = v(start:step:stop);}</pre>
+     * Note - you can use {@code END} as MATLAB's end.
+     *
+     * @param start The index in this view of the first item.
+     * @param step  The step between items; not zero.
+     * @param stop  The bound of the last item (inclusive).
+     * @return A view of the items of this view in the range.
+     */
+    @Nonnull
+    public DoubleView view(int start, int step, int stop) {
+        return range(array, offset, stride, length, start, step, stop);
+    }
+
+    /**
+     * MATLAB:
+     * <pre>{@code w = flip(v);}</pre>
+     *
+     * @return A view of the items of this view in reverse order.
+     */
+    @Nonnull
+    public DoubleView flip() {
+        return length == 0 ? this : new DoubleView(array, index(length - 1), -stride, length);
+    }
+
+    @Nonnull
+    private static DoubleView range(
+            @Nonnull double[] array, int offset, int stride, int n, int start, int step, int stop) {
+        if (step == 0) {
+            throw new IllegalArgumentException("Bad step 0");
+        }
+        if (start < 0) {
+            start = n + start;
+        }
+        if (stop < 0) {
+            stop = n + stop;
+        }
+
+        // As in MATLAB, the range is empty if stop is before start in the direction of step
+        final long span = (long) stop - start;
+        final long length = span != 0 && (span < 0) != (step < 0) ? 0 : span / step + 1;
+        final long last = start + (length - 1) * step;
+        if (length > 0 && (start < 0 || start >= n || last < 0 || last >= n)) {
+            throw new IndexOutOfBoundsException("Range " + start + ":" + step + ":" + stop + " (length " + n + ")");
+        }
+
+        // Within bounds, so length <= n
+        return new DoubleView(array, length == 0 ? 0 : offset + start * stride, stride * step, (int) length);
+    }
+
+    /**
+     * @return The array viewed.
+     */
+    @Nonnull
+    public double[] array() {
+        return array;
+    }
+
+    /**
+     * @return The index in the array of the first item.
+     */
+    public int offset() {
+        return offset;
+    }
+
+    /**
+     * @return The distance in the array between consecutive items.
+     */
+    public int stride() {
+        return stride;
+    }
+
+    /**
+     * @return The number of items.
+     */
+    public int length() {
+        return length;
+    }
+
+    /**
+     * @param i The index of the item
+     * @return The item
+     */
+    public double get(int i) {
+        checkIndex(i);
+
+        return array[offset + i * stride];
+    }
+
+    /**
+     * @param i The index of the item
+     * @param v The new value of the item
+     */
+    public void set(int i, double v) {
+        checkIndex(i);
+
+        array[offset + i * stride] = v;
+    }
+
+    /**
+     * MATLAB:
+     * <pre>{@code y = v;}</pre>
+     *
+     * @return A copy of the items.
+     */
+    @Nonnull
+    public double[] toArray() {
+        final double[] y = new double[length];
+        if (stride == 1) {
+            System.arraycopy(array, offset, y, 0, length);
+        } else {
+            for (int i = 0, j = offset; i < length; i++, j += stride) {
+                y[i] = array[j];
+            }
+        }
+
+        return y;
+    }
+
+    /**
+     * The index in the array of item i, which is not checked.
+     */
+    int index(int i) {
+        return offset + i * stride;
+    }
+
+    /**
+     * Whether writing this view in order may overwrite items of other before they are read in order, that is,
+     * whether the two views share items of the same array. Views that coincide item for item do not count, since each
+     * item is read before it is written.
+     */
+    boolean overlaps(@Nonnull DoubleView other) {
+        if (array != other.array || length == 0 || other.length == 0) {
+            return false;
+        }
+        if (offset == other.offset && (stride == other.stride || length == 1)) {
+            return false;
+        }
+
+        final int last = index(length - 1);
+        final int otherLast = other.index(other.length - 1);
+        return Math.max(offset, last) >= Math.min(other.offset, otherLast)
+                && Math.max(other.offset, otherLast) >= Math.min(offset, last);
+    }
+
+    private void checkIndex(int i) {
+        if (i < 0 || i >= length) {
+            throw new IndexOutOfBoundsException("Index " + i + " (length " + length + ")");
+        }
+    }
+}
@@ -0,0 +1,575 @@
+package gr.auth.ee.mug.matlabports;
+
+import java.util.ArrayList;
+
+import javax.annotation.Nonnull;
+
+import gr.auth.ee.mug.matlabports.exceptions.LengthMismatchException;
+
+
+/**
+ * Lazy element-wise expression over arrays, such as {@code Expr.of(x).mul(a).add(b).lt(t)}.
+ * <p>
+ * Operators only build a tree; nothing is computed until a terminal operation ({@link #toArray()},
+ * {@link #into(double[])}, {@link #sum()}, {@link #dot(Expr)}, ...). This evaluates the whole tree in blocks of
+ * {@value #BLOCK} items: each operator runs a tight loop over a block that stays in the cache, so the input arrays are
+ * read from memory once and no temporary array of the full length is allocated (only the final result, if any).
+ * <p>
+ * Expressions are immutable; they read their arrays at evaluation time, so changes to the arrays are seen by later
+ * evaluations. They can be evaluated from several threads at once.
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public abstract class Expr {
+
+    /**
+     * Number of items evaluated at a time.
+     */
+    static final int BLOCK = 256;
+
+    private final int length;
+
+    Expr(int length) {
+        this.length = length;
+    }
+
+    /**
+     * @param x The array
+     * @return The expression of the items of x.
+     */
+    @Nonnull
+    public static Expr of(@Nonnull double[] x) {
+        return new Expr(x.length) {
+            @Override
+            void eval(int start, int n, @Nonnull double[] out, @Nonnull Workspace workspace) {
+                System.arraycopy(x, start, out, 0, n);
+            }
+        };
+    }
+
+    /**
+     * @param x The array
+     * @return The expression of the items of x, as double.
+     */
+    @Nonnull
+    public static Expr of(@Nonnull int[] x) {
+        return new Expr(x.length) {
+            @Override
+            void eval(int start, int n, @Nonnull double[] out, @Nonnull Workspace workspace) {
+                for (int i = 0; i < n; i++) {
+                    out[i] = x[start + i];
+                }
+            }
+        };
+    }
+
+    /**
+     * @return The number of items.
+     */
+    public final int length() {
+        return length;
+    }
+
+    /**
+     * Writes items start, ..., start + n - 1 to out[0], ..., out[n - 1], with n at most {@link #BLOCK}.
+     */
+    abstract void eval(int start, int n, @Nonnull double[] out, @Nonnull Workspace workspace);
+
+    // Operators
+
+    /**
+     * MATLAB: <pre>{@code x + v}</pre>
+     */
+    @Nonnull
+    public final Expr add(double v) {
+        return new Scalar(this, Op.ADD, v);
+    }
+
+    /**
+     * MATLAB: <pre>{@code x + y}</pre>
+     */
+    @Nonnull
+    public final Expr add(@Nonnull Expr y) throws LengthMismatchException {
+        return new Binary(this, Op.ADD, y);
+    }
+
+    /**
+     * MATLAB: <pre>{@code x - v}</pre>
+     */
+    @Nonnull
+    public final Expr sub(double v) {
+        return new Scalar(this, Op.SUB, v);
+    }
+
+    /**
+     * MATLAB: <pre>{@code x - y}</pre>
+     */
+    @Nonnull
+    public final Expr sub(@Nonnull Expr y) throws LengthMismatchException {
+        return new Binary(this, Op.SUB, y);
+    }
+
+    /**
+     * MATLAB: <pre>{@code x * v}</pre>
+     */
+    @Nonnull
+    public final Expr mul(double v) {
+        return new Scalar(this, Op.MUL, v);
+    }
+
+    /**
+     * MATLAB: <pre>{@code x .* y}</pre>
+     */
+    @Nonnull
+    public final Expr mul(@Nonnull Expr y) throws LengthMismatchException {
+        return new Binary(this, Op.MUL, y);
+    }
+
+    /**
+     * MATLAB: <pre>{@code x / v}</pre>
+     */
+    @Nonnull
+    public final Expr div(double v) {
+        return new Scalar(this, Op.DIV, v);
+    }
+
+    /**
+     * MATLAB: <pre>{@code x ./ y}</pre>
+     */
+    @Nonnull
+    public final Expr div(@Nonnull Expr y) throws LengthMismatchException {
+        return new Binary(this, Op.DIV, y);
+    }
+
+    /**
+     * MATLAB: <pre>{@code abs(x)}</pre>
+     */
+    @Nonnull
+    public final Expr abs() {
+        return new Unary(this, Op.ABS);
+    }
+
+    /**
+     * MATLAB: <pre>{@code -x}</pre>
+     */
+    @Nonnull
+    public final Expr neg() {
+        return new Unary(this, Op.NEG);
+    }
+
+    /**
+     * MATLAB: <pre>{@code sqrt(x)}</pre>
+     */
+    @Nonnull
+    public final Expr sqrt() {
+        return new Unary(this, Op.SQRT);
+    }
+
+    /**
+     * MATLAB: <pre>{@code x .^ 2}</pre>
+     */
+    @Nonnull
+    public final Expr square() {
+        return new Unary(this, Op.SQUARE);
+    }
+
+    // Comparisons
+
+    /**
+     * MATLAB: <pre>{@code x < v}</pre>
+     */
+    @Nonnull
+    public final BooleanExpr lt(double v) {
+        return new BooleanExpr.Compare(this, BooleanExpr.Op.LT, v);
+    }
+
+    /**
+     * MATLAB: <pre>{@code x < y}</pre>
+     */
+    @Nonnull
+    public final BooleanExpr lt(@Nonnull Expr y) throws LengthMismatchException {
+        return new BooleanExpr.CompareBinary(this, BooleanExpr.Op.LT, y);
+    }
+
+    /**
+     * MATLAB: <pre>{@code x <= v}</pre>
+     */
+    @Nonnull
+    public final BooleanExpr le(double v) {
+        return new BooleanExpr.Compare(this, BooleanExpr.Op.LE, v);
+    }
+
+    /**
+     * MATLAB: <pre>{@code x <= y}</pre>
+     */
+    @Nonnull
+    public final BooleanExpr le(@Nonnull Expr y) throws LengthMismatchException {
+        return new BooleanExpr.CompareBinary(this, BooleanExpr.Op.LE, y);
+    }
+
+    /**
+     * MATLAB: <pre>{@code x > v}</pre>
+     */
+    @Nonnull
+    public final BooleanExpr gt(double v) {
+        return new BooleanExpr.Compare(this, BooleanExpr.Op.GT, v);
+    }
+
+    /**
+     * MATLAB: <pre>{@code x > y}</pre>
+     */
+    @Nonnull
+    public final BooleanExpr gt(@Nonnull Expr y) throws LengthMismatchException {
+        return new BooleanExpr.CompareBinary(this, BooleanExpr.Op.GT, y);
+    }
+
+    /**
+     * MATLAB: <pre>{@code x >= v}</pre>
+     */
+    @Nonnull
+    public final BooleanExpr ge(double v) {
+        return new BooleanExpr.Compare(this, BooleanExpr.Op.GE, v);
+    }
+
+    /**
+     * MATLAB: <pre>{@code x >= y}</pre>
+     */
+    @Nonnull
+    public final BooleanExpr ge(@Nonnull Expr y) throws LengthMismatchException {
+        return new BooleanExpr.CompareBinary(this, BooleanExpr.Op.GE, y);
+    }
+
+    /**
+     * MATLAB: <pre>{@code x == v}</pre>
+     */
+    @Nonnull
+    public final BooleanExpr eq(double v) {
+        return new BooleanExpr.Compare(this, BooleanExpr.Op.EQ, v);
+    }
+
+    /**
+     * MATLAB: <pre>{@code x == y}</pre>
+     */
+    @Nonnull
+    public final BooleanExpr eq(@Nonnull Expr y) throws LengthMismatchException {
+        return new BooleanExpr.CompareBinary(this, BooleanExpr.Op.EQ, y);
+    }
+
+    // Terminal operations
+
+    /**
+     * Evaluates the expression into a new array.
+     *
+     * @return The values.
+     */
+    @Nonnull
+    public final double[] toArray() {
+        final double[] y = new double[length];
+        evalInto(y);
+
+        return y;
+    }
+
+    /**
+     * Evaluates the expression into an array. The array may be one of the arrays of the expression, as each block
+     * is read before it is written.
+     *
+     * @param y The output array.
+     */
+    public final void into(@Nonnull double[] y) throws LengthMismatchException {
+        checkLength(y.length);
+
+        evalInto(y);
+    }
+
+    private void evalInto(@Nonnull double[] y) {
+        final Workspace workspace = new Workspace();
+        final double[] block = workspace.takeDoubles();
+        for (int start = 0; start < length; start += BLOCK) {
+            final int n = Math.min(BLOCK, length - start);
+            eval(start, n, block, workspace);
+            System.arraycopy(block, 0, y, start, n);
+        }
+    }
+
+    /**
+     * MATLAB: <pre>{@code sum(x)}</pre>
+     *
+     * @return The sum of the values.
+     */
+    public final double sum() {
+        final Workspace workspace = new Workspace();
+        final double[] block = workspace.takeDoubles();
+        double s = 0;
+        for (int start = 0; start < length; start += BLOCK) {
+            final int n = Math.min(BLOCK, length - start);
+            eval(start, n, block, workspace);
+            for (int i = 0; i < n; i++) {
+                s += block[i];
+            }
+        }
+
+        return s;
+    }
+
+    /**
+     * MATLAB: <pre>{@code mean(x)}</pre>
+     *
+     * @return The mean of the values.
+     */
+    public final double mean() {
+        return sum() / length;
+    }
+
+    /**
+     * MATLAB: <pre>{@code x' * y}</pre>
+     *
+     * @param y The other expression.
+     * @return The inner product.
+     */
+    public final double dot(@Nonnull Expr y) throws LengthMismatchException {
+        checkLength(y.length);
+
+        final Workspace workspace = new Workspace();
+        final double[] bx = workspace.takeDoubles();
+        final double[] by = workspace.takeDoubles();
+        double s = 0;
+        for (int start = 0; start < length; start += BLOCK) {
+            final int n = Math.min(BLOCK, length - start);
+            eval(start, n, bx, workspace);
+            y.eval(start, n, by, workspace);
+            for (int i = 0; i < n; i++) {
+                s += bx[i] * by[i];
+            }
+        }
+
+        return s;
+    }
+
+    /**
+     * MATLAB: <pre>{@code max(x)}</pre>
+     *
+     * @return The maximum value (NaN values are ignored), or -Inf if there are none.
+     */
+    public final double max() {
+        final Workspace workspace = new Workspace();
+        final double[] block = workspace.takeDoubles();
+        double m = Double.NEGATIVE_INFINITY;
+        for (int start = 0; start < length; start += BLOCK) {
+            final int n = Math.min(BLOCK, length - start);
+            eval(start, n, block, workspace);
+            for (int i = 0; i < n; i++) {
+                if (block[i] > m) {
+                    m = block[i];
+                }
+            }
+        }
+
+        return m;
+    }
+
+    /**
+     * MATLAB: <pre>{@code min(x)}</pre>
+     *
+     * @return The minimum value (NaN values are ignored), or Inf if there are none.
+     */
+    public final double min() {
+        final Workspace workspace = new Workspace();
+        final double[] block = workspace.takeDoubles();
+        double m = Double.POSITIVE_INFINITY;
+        for (int start = 0; start < length; start += BLOCK) {
+            final int n = Math.min(BLOCK, length - start);
+            eval(start, n, block, workspace);
+            for (int i = 0; i < n; i++) {
+                if (block[i] < m) {
+                    m = block[i];
+                }
+            }
+        }
+
+        return m;
+    }
+
+    final void checkLength(int n) throws LengthMismatchException {
+        if (n != length) {
+            throw new LengthMismatchException("Length " + n + " (should be " + length + ")");
+        }
+    }
+
+    /**
+     * Element-wise operators.
+     */
+    private enum Op {
+        ADD, SUB, MUL, DIV, ABS, NEG, SQRT, SQUARE
+    }
+
+    private static final class Scalar extends Expr {
+        @Nonnull
+        private final Expr x;
+        @Nonnull
+        private final Op op;
+        private final double v;
+
+        Scalar(@Nonnull Expr x, @Nonnull Op op, double v) {
+            super(x.length);
+            this.x = x;
+            this.op = op;
+            this.v = v;
+        }
+
+        @Override
+        void eval(int start, int n, @Nonnull double[] out, @Nonnull Workspace workspace) {
+            x.eval(start, n, out, workspace);
+            switch (op) {
+                case ADD:
+                    for (int i = 0; i < n; i++) {
+                        out[i] += v;
+                    }
+                    break;
+                case SUB:
+                    for (int i = 0; i < n; i++) {
+                        out[i] -= v;
+                    }
+                    break;
+                case MUL:
+                    for (int i = 0; i < n; i++) {
+                        out[i] *= v;
+                    }
+                    break;
+                case DIV:
+                    for (int i = 0; i < n; i++) {
+                        out[i] /= v;
+                    }
+                    break;
+                default:
+                    throw new AssertionError(op);
+            }
+        }
+    }
+
+    private static final class Binary extends Expr {
+        @Nonnull
+        private final Expr x;
+        @Nonnull
+        private final Op op;
+        @Nonnull
+        private final Expr y;
+
+        Binary(@Nonnull Expr x, @Nonnull Op op, @Nonnull Expr y) throws LengthMismatchException {
+            super(x.length);
+            x.checkLength(y.length);
+            this.x = x;
+            this.op = op;
+            this.y = y;
+        }
+
+        @Override
+        void eval(int start, int n, @Nonnull double[] out, @Nonnull Workspace workspace) {
+            x.eval(start, n, out, workspace);
+            final double[] b = workspace.takeDoubles();
+            y.eval(start, n, b, workspace);
+            switch (op) {
+                case ADD:
+                    for (int i = 0; i < n; i++) {
+                        out[i] += b[i];
+                    }
+                    break;
+                case SUB:
+                    for (int i = 0; i < n; i++) {
+                        out[i] -= b[i];
+                    }
+                    break;
+                case MUL:
+                    for (int i = 0; i < n; i++) {
+                        out[i] *= b[i];
+                    }
+                    break;
+                case DIV:
+                    for (int i = 0; i < n; i++) {
+                        out[i] /= b[i];
+                    }
+                    break;
+                default:
+                    throw new AssertionError(op);
+            }
+            workspace.releaseDoubles();
+        }
+    }
+
+    private static final class Unary extends Expr {
+        @Nonnull
+        private final Expr x;
+        @Nonnull
+        private final Op op;
+
+        Unary(@Nonnull Expr x, @Nonnull Op op) {
+            super(x.length);
+            this.x = x;
+            this.op = op;
+        }
+
+        @Override
+        void eval(int start, int n, @Nonnull double[] out, @Nonnull Workspace workspace) {
+            x.eval(start, n, out, workspace);
+            switch (op) {
+                case ABS:
+                    for (int i = 0; i < n; i++) {
+                        out[i] = Math.abs(out[i]);
+                    }
+                    break;
+                case NEG:
+                    for (int i = 0; i < n; i++) {
+                        out[i] = -out[i];
+                    }
+                    break;
+                case SQRT:
+                    for (int i = 0; i < n; i++) {
+                        out[i] = Math.sqrt(out[i]);
+                    }
+                    break;
+                case SQUARE:
+                    for (int i = 0; i < n; i++) {
+                        out[i] *= out[i];
+                    }
+                    break;
+                default:
+                    throw new AssertionError(op);
+            }
+        }
+    }
+
+    /**
+     * Block buffers of one evaluation, used as a stack by the nodes of the tree.
+     */
+    static final class Workspace {
+        @Nonnull
+        private final ArrayList<double[]> doubles = new ArrayList<>();
+        @Nonnull
+        private final ArrayList<boolean[]> booleans = new ArrayList<>();
+        private int doublesTaken;
+        private int booleansTaken;
+
+        @Nonnull
+        double[] takeDoubles() {
+            if (doublesTaken == doubles.size()) {
+                doubles.add(new double[BLOCK]);
+            }
+            return doubles.get(doublesTaken++);
+        }
+
+        void releaseDoubles() {
+            doublesTaken--;
+        }
+
+        @Nonnull
+        boolean[] takeBooleans() {
+            if (booleansTaken == booleans.size()) {
+                booleans.add(new boolean[BLOCK]);
+            }
+            return booleans.get(booleansTaken++);
+        }
+
+        void releaseBooleans() {
+            booleansTaken--;
+        }
+    }
+}
@@ -0,0 +1,391 @@
+package gr.auth.ee.mug.matlabports;
+
+import javax.annotation.Nonnull;
+
+import gr.auth.ee.mug.matlabports.exceptions.BadArrayLengthException;
+
+
+/**
+ * Fast Fourier Transform on primitive arrays.
+ * <p>
+ * A plan holds the twiddle factors and the bit-reversal permutation of one (power of two) length. Plans are
+ * created once per length and cached, see {@link #of(int)}; transforms allocate no memory. The frequency of each
+ * output bin is given by {@link DSP#fftf(int, double)}.
+ * <p>
+ * Conventions are the same as MATLAB's: the forward transform is not scaled, the inverse is scaled by 1/n.
+ * <p>
+ * Complex data are given either as two arrays (real and imaginary parts), or as one interleaved array
+ * ({@code re0, im0, re1, im1, ...}). Real input is transformed through a complex transform of half the length.
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public final class FFT {
+
+    /**
+     * Cached plans, indexed by log2 of their length.
+     */
+    @Nonnull
+    private static final FFT[] PLANS = new FFT[31];
+
+    /**
+     * The transform length.
+     */
+    private final int n;
+    /**
+     * Twiddle factors of all stages, stored contiguously: cos[h + j] = cos(pi j / h), for j = 0, 1, ..., h - 1,
+     * where h = 1, 2, 4, ..., n / 2 is the half-length of the butterflies of each stage.
+     */
+    @Nonnull
+    private final double[] cos;
+    /**
+     * Same as cos, for sin(pi j / h).
+     */
+    @Nonnull
+    private final double[] sin;
+    /**
+     * Bit-reversal permutation.
+     */
+    @Nonnull
+    private final int[] reverse;
+
+    private FFT(int n) {
+        this.n = n;
+
+        cos = new double[Math.max(n, 1)];
+        sin = new double[Math.max(n, 1)];
+        for (int h = 1; h < n; h <<= 1) {
+            for (int j = 0; j < h; j++) {
+                cos[h + j] = Math.cos(Math.PI * j / h);
+                sin[h + j] = Math.sin(Math.PI * j / h);
+            }
+        }
+
+        reverse = new int[n];
+        final int bits = Integer.numberOfTrailingZeros(n);
+        for (int i = 1; i < n; i++) {
+            reverse[i] = (reverse[i >> 1] >> 1) | ((i & 1) << (bits - 1));
+        }
+    }
+
+    /**
+     * Returns the (cached) plan for a given length.
+     *
+     * @param n The transform length; must be a power of two
+     * @return The plan
+     */
+    @Nonnull
+    public static FFT of(int n) {
+        if (n < 1 || Integer.bitCount(n) != 1) {
+            throw new IllegalArgumentException("FFT length should be a power of two; is " + n);
+        }
+
+        // Plans are immutable, so a racy initialisation only costs a duplicate plan
+        final int i = Integer.numberOfTrailingZeros(n);
+        FFT plan = PLANS[i];
+        if (plan == null) {
+            plan = new FFT(n);
+            PLANS[i] = plan;
+        }
+
+        return plan;
+    }
+
+    /**
+     * @return The transform length.
+     */
+    public int length() {
+        return n;
+    }
+
+    /**
+     * Forward transform of complex data, in place.
+     * <p>
+     * MATLAB:
+     * <pre>{@code z = fft(complex(re, im));}</pre>
+     *
+     * @param re The real parts (at least n items)
+     * @param im The imaginary parts (at least n items)
+     */
+    public void forward(@Nonnull double[] re, @Nonnull double[] im) throws BadArrayLengthException {
+        checkLength(re, n);
+        checkLength(im, n);
+        transform(re, im, false);
+    }
+
+    /**
+     * Forward transform of interleaved complex data, in place.
+     *
+     * @param z The interleaved data (at least 2 n items)
+     */
+    public void forward(@Nonnull double[] z) throws BadArrayLengthException {
+        checkLength(z, 2 * n);
+        transform(z, false);
+    }
+
+    /**
+     * Inverse transform of complex data, in place.
+     * <p>
+     * MATLAB:
+     * <pre>{@code z = ifft(complex(re, im));}</pre>
+     *
+     * @param re The real parts (at least n items)
+     * @param im The imaginary parts (at least n items)
+     */
+    public void inverse(@Nonnull double[] re, @Nonnull double[] im) throws BadArrayLengthException {
+        checkLength(re, n);
+        checkLength(im, n);
+        transform(re, im, true);
+
+        final double scale = 1.0 / n;
+        for (int i = 0; i < n; i++) {
+            re[i] *= scale;
+            im[i] *= scale;
+        }
+    }
+
+    /**
+     * Inverse transform of interleaved complex data, in place.
+     *
+     * @param z The interleaved data (at least 2 n items)
+     */
+    public void inverse(@Nonnull double[] z) throws BadArrayLengthException {
+        checkLength(z, 2 * n);
+        transform(z, true);
+
+        final double scale = 1.0 / n;
+        for (int i = 0; i < 2 * n; i++) {
+            z[i] *= scale;
+        }
+    }
+
+    /**
+     * Forward transform of real data. Only bins 0, 1, ..., n / 2 are computed; the rest are their complex
+     * conjugates.
+     * <p>
+     * MATLAB:
+     * <pre>{@code z = fft(x);
+     * z = z(1:n / 2 + 1);}</pre>
+     *
+     * @param x  The input (at least n items)
+     * @param re The real parts of the output (at least n / 2 + 1 items)
+     * @param im The imaginary parts of the output (at least n / 2 + 1 items)
+     */
+    public void forwardReal(@Nonnull double[] x, @Nonnull double[] re, @Nonnull double[] im)
+            throws BadArrayLengthException {
+        checkLength(x, n);
+        checkLength(re, n / 2 + 1);
+        checkLength(im, n / 2 + 1);
+
+        if (n == 1) {
+            re[0] = x[0];
+            im[0] = 0;
+            return;
+        }
+
+        // Even samples as the real part and odd samples as the imaginary part of a half-length transform
+        final int m = n / 2;
+        for (int k = 0; k < m; k++) {
+            re[k] = x[2 * k];
+            im[k] = x[2 * k + 1];
+        }
+        of(m).transform(re, im, false);
+
+        // Split the transforms of the even and odd samples and combine them
+        final double re0 = re[0];
+        final double im0 = im[0];
+        re[0] = re0 + im0;
+        im[0] = 0;
+        re[m] = re0 - im0;
+        im[m] = 0;
+
+        for (int k = 1; k <= m / 2; k++) {
+            final double ar = re[k];
+            final double ai = im[k];
+            final double br = re[m - k];
+            final double bi = im[m - k];
+
+            final double er = (ar + br) / 2;
+            final double ei = (ai - bi) / 2;
+            final double or = (ai + bi) / 2;
+            final double oi = (br - ar) / 2;
+
+            final double c = cos[m + k];
+            final double s = sin[m + k];
+            final double tr = c * or + s * oi;
+            final double ti = c * oi - s * or;
+
+            re[k] = er + tr;
+            im[k] = ei + ti;
+            re[m - k] = er - tr;
+            im[m - k] = ti - ei;
+        }
+    }
+
+    /**
+     * Inverse transform to real data. Only bins 0, 1, ..., n / 2 are used; the rest are assumed to be their complex
+     * conjugates. The input arrays are used as work buffers and are overwritten.
+     * <p>
+     * MATLAB:
+     * <pre>{@code x = ifft(z, 'symmetric');}</pre>
+     *
+     * @param re The real parts of the input (at least n / 2 + 1 items)
+     * @param im The imaginary parts of the input (at least n / 2 + 1 items)
+     * @param x  The output (at least n items)
+     */
+    public void inverseReal(@Nonnull double[] re, @Nonnull double[] im, @Nonnull double[] x)
+            throws BadArrayLengthException {
+        checkLength(x, n);
+        checkLength(re, n / 2 + 1);
+        checkLength(im, n / 2 + 1);
+
+        if (n == 1) {
+            x[0] = re[0];
+            return;
+        }
+
+        // Recover the transforms of the even and odd samples and pack them in a half-length transform
+        final int m = n / 2;
+        final double re0 = re[0];
+        final double rem = re[m];
+        re[0] = (re0 + rem) / 2;
+        im[0] = (re0 - rem) / 2;
+
+        for (int k = 1; k <= m / 2; k++) {
+            final double pr = re[k];
+            final double pi = im[k];
+            final double qr = re[m - k];
+            final double qi = im[m - k];
+
+            final double er = (pr + qr) / 2;
+            final double ei = (pi - qi) / 2;
+            final double dr = (pr - qr) / 2;
+            final double di = (pi + qi) / 2;
+
+            final double c = cos[m + k];
+            final double s = sin[m + k];
+            final double or = dr * c - di * s;
+            final double oi = dr * s + di * c;
+
+            re[k] = er - oi;
+            im[k] = ei + or;
+            re[m - k] = er + oi;
+            im[m - k] = or - ei;
+        }
+
+        of(m).transform(re, im, true);
+
+        final double scale = 1.0 / m;
+        for (int k = 0; k < m; k++) {
+            x[2 * k] = re[k] * scale;
+            x[2 * k + 1] = im[k] * scale;
+        }
+    }
+
+    /**
+     * Radix-2 decimation-in-time transform of split complex data, without scaling.
+     *
+     * @param re      The real parts
+     * @param im      The imaginary parts
+     * @param inverse If true, the conjugate twiddle factors are used
+     */
+    private void transform(@Nonnull double[] re, @Nonnull double[] im, boolean inverse) {
+        // Bit-reversal permutation
+        for (int i = 1; i < n; i++) {
+            final int j = reverse[i];
+            if (i < j) {
+                final double tr = re[i];
+                re[i] = re[j];
+                re[j] = tr;
+                final double ti = im[i];
+                im[i] = im[j];
+                im[j] = ti;
+            }
+        }
+
+        // First stage, with unit twiddle factors
+        for (int i = 0; i < n - 1; i += 2) {
+            final double tr = re[i + 1];
+            final double ti = im[i + 1];
+            re[i + 1] = re[i] - tr;
+            im[i + 1] = im[i] - ti;
+            re[i] += tr;
+            im[i] += ti;
+        }
+
+        // Rest of the butterflies
+        final double sign = inverse ? 1 : -1;
+        for (int half = 2; half < n; half <<= 1) {
+            final int len = half << 1;
+            for (int b = 0; b < n; b += len) {
+                for (int j = 0; j < half; j++) {
+                    final double wr = cos[half + j];
+                    final double wi = sign * sin[half + j];
+                    final int i = b + j;
+                    final int k = i + half;
+                    final double tr = wr * re[k] - wi * im[k];
+                    final double ti = wr * im[k] + wi * re[k];
+                    re[k] = re[i] - tr;
+                    im[k] = im[i] - ti;
+                    re[i] += tr;
+                    im[i] += ti;
+                }
+            }
+        }
+    }
+
+    /**
+     * Radix-2 decimation-in-time transform of interleaved complex data, without scaling.
+     *
+     * @param z       The interleaved data
+     * @param inverse If true, the conjugate twiddle factors are used
+     */
+    private void transform(@Nonnull double[] z, boolean inverse) {
+        // Bit-reversal permutation
+        for (int i = 1; i < n; i++) {
+            final int j = reverse[i];
+            if (i < j) {
+                final double tr = z[2 * i];
+                z[2 * i] = z[2 * j];
+                z[2 * j] = tr;
+                final double ti = z[2 * i + 1];
+                z[2 * i + 1] = z[2 * j + 1];
+                z[2 * j + 1] = ti;
+            }
+        }
+
+        // First stage, with unit twiddle factors
+        for (int i = 0; i < 2 * n - 2; i += 4) {
+            final double tr = z[i + 2];
+            final double ti = z[i + 3];
+            z[i + 2] = z[i] - tr;
+            z[i + 3] = z[i + 1] - ti;
+            z[i] += tr;
+            z[i + 1] += ti;
+        }
+
+        // Rest of the butterflies
+        final double sign = inverse ? 1 : -1;
+        for (int half = 2; half < n; half <<= 1) {
+            final int len = half << 1;
+            for (int b = 0; b < 2 * n; b += 2 * len) {
+                for (int j = 0; j < half; j++) {
+                    final double wr = cos[half + j];
+                    final double wi = sign * sin[half + j];
+                    final int i = b + 2 * j;
+                    final int k = i + 2 * half;
+                    final double tr = wr * z[k] - wi * z[k + 1];
+                    final double ti = wr * z[k + 1] + wi * z[k];
+                    z[k] = z[i] - tr;
+                    z[k + 1] = z[i + 1] - ti;
+                    z[i] += tr;
+                    z[i + 1] += ti;
+                }
+            }
+        }
+    }
+
+    private static void checkLength(@Nonnull double[] x, int n) throws BadArrayLengthException {
+        if (x.length < n) {
+            throw new BadArrayLengthException("Too short array; is " + x.length + " (should be >= " + n + ")");
+        }
+    }
+}
@@ -10,6 +10,13 @@ import static gr.auth.ee.mug.matlabports.SelectorsSetters.set;
 import static java.lang.Math.max;
 
 
+/**
+ * IIR filter (direct form I) that keeps its state between calls, so that a signal can be filtered in blocks of any
+ * length, down to single samples with {@link #step(double)}.
+ * <p>
+ * The past inputs and outputs are kept in circular buffers that store every sample twice, order positions apart,
+ * so that the last order samples are always contiguous and no index wraps around inside the filter loop.
+ */
 public class IIRFilter {
 
     @Nonnull
@@ -17,10 +24,25 @@ public class IIRFilter {
     @Nonnull
     private final double[] b;
     private final int coeffLength;
+    /**
+     * Number of past samples that are needed (filter order).
+     */
+    private final int order;
+    /**
+     * Past inputs; sample of lag j (1, 2, ..., order) is at position + order - j (and also at position - j if
+     * that is not negative).
+     */
     @Nonnull
     private final double[] xPast;
+    /**
+     * Past outputs; same layout as xPast.
+     */
     @Nonnull
     private final double[] yPast;
+    /**
+     * Position of the oldest past sample, in 0, 1, ..., order - 1.
+     */
+    private int position;
 
     public IIRFilter(@Nonnull double[] b, @Nonnull double[] a) throws BadArrayLengthException {
         if (b.length < 1) {
@@ -31,6 +53,7 @@ public class IIRFilter {
         }
 
         coeffLength = max(b.length, a.length);
+        order = coeffLength - 1;
 
         this.b = new double[coeffLength];
         set(this.b, 0);
@@ -40,8 +63,8 @@ public class IIRFilter {
         set(this.a, 0);
         System.arraycopy(a, 0, this.a, 0, a.length);
 
-        xPast = new double[coeffLength - 1];
-        yPast = new double[coeffLength - 1];
+        xPast = new double[2 * order];
+        yPast = new double[2 * order];
 
         reset();
     }
@@ -49,63 +72,48 @@ public class IIRFilter {
     public void reset() {
         set(xPast, 0);
         set(yPast, 0);
+        position = 0;
     }
 
-    public void apply(@Nonnull double[] x, @Nonnull double[] y) throws LengthMismatchException, BadArrayLengthException {
+    /**
+     * Filters a block of any length, continuing from the previous blocks.
+     *
+     * @param x The input
+     * @param y The output (can be x)
+     */
+    public void apply(@Nonnull double[] x, @Nonnull double[] y) throws LengthMismatchException {
         checkEqualLength(x, y);
 
-        if (x.length < xPast.length) {
-            throw new BadArrayLengthException("Refusing to work for input shorter than the filter length");
+        for (int i = 0; i < x.length; i++) {
+            y[i] = step(x[i]);
         }
+    }
 
-        int i;  // Index of output that we are computing
-        int j;  // Lag index
-
-        // For these values we need the past values
-        for (i = 0; i < xPast.length; i++) {
-
-            // Initialize output with latest input
-            y[i] = b[0] * x[i];
-
-            // Update with as many input and output we can from the main buffers
-            for (j = 1; j < i + 1; j++) {
-                y[i] += b[j] * x[i - j] - a[j] * y[i - j];
-            }
-
-            // Update with what is required from the past buffers
-            for (j = i + 1; j < coeffLength; j++) {
-                y[i] += b[j] * xPast[xPast.length - j + i] - a[j] * yPast[yPast.length - j + i];
-            }
+    /**
+     * Filters a single sample, continuing from the previous ones. Does not allocate any memory.
+     *
+     * @param x The input sample
+     * @return The output sample
+     */
+    public double step(double x) {
+        // Initialize output with latest input
+        double y = b[0] * x;
+
+        // Update with the past; lag j is at latest - j + 1
+        final int latest = position + order - 1;
+        for (int j = 1; j < coeffLength; j++) {
+            y += b[j] * xPast[latest - j + 1] - a[j] * yPast[latest - j + 1];
         }
 
-        // For the next values run normally
-        for (i = xPast.length; i < x.length; i++) {
-
-            // Initialize output with latest input
-            y[i] = b[0] * x[i];
-
-            // Update
-            for (j = 1; j < coeffLength; j++) {
-                y[i] += b[j] * x[i - j] - a[j] * y[i - j];
-            }
+        // Update past, overwriting the oldest sample (in both of its positions)
+        if (order > 0) {
+            xPast[position] = x;
+            xPast[position + order] = x;
+            yPast[position] = y;
+            yPast[position + order] = y;
+            position = position + 1 == order ? 0 : position + 1;
         }
 
-        // Update past
-        if (xPast.length <= x.length) {
-            for (j = 0; j < xPast.length; j++) {
-                xPast[j] = x[x.length - xPast.length + j];
-                yPast[j] = y[x.length - xPast.length + j];
-            }
-        } else {
-            final int d = coeffLength - x.length + 1;
-            for (j = 0; j < d; j++) {
-                xPast[j] = xPast[j + x.length];
-                yPast[j] = yPast[j + y.length];
-            }
-            for (j = d; j < xPast.length; j++) {
-                xPast[j] = x[j - d];
-                yPast[j] = y[j - d];
-            }
-        }
+        return y;
     }
 }
@@ -0,0 +1,150 @@
+package gr.auth.ee.mug.matlabports;
+
+import java.util.Arrays;
+
+import javax.annotation.Nonnull;
+
+
+/**
+ * Growable array of longs, to build primitive arrays of unknown length without boxing.
+ * <p>
+ * Capacity grows by half each time it is exceeded, so adding n values costs O(n) amortized time. {@link #clear()}
+ * keeps the capacity, so a buffer can be reused without allocating.
+ * <p>
+ * Not thread-safe.
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public final class LongArrayBuffer {
+
+    @Nonnull
+    private long[] data;
+    private int size;
+
+    public LongArrayBuffer() {
+        this(16);
+    }
+
+    /**
+     * @param capacity The initial capacity
+     */
+    public LongArrayBuffer(int capacity) {
+        data = new long[Math.max(capacity, 1)];
+    }
+
+    /**
+     * Appends a value.
+     *
+     * @param v The value
+     */
+    public void add(long v) {
+        if (size == data.length) {
+            ensureCapacity(size + 1);
+        }
+        data[size++] = v;
+    }
+
+    /**
+     * @param i The index (0 to size - 1)
+     * @return The value at index i
+     */
+    public long get(int i) {
+        if (i >= size) {
+            throw new IndexOutOfBoundsException("Index " + i + ", size " + size);
+        }
+
+        return data[i];
+    }
+
+    /**
+     * @param i The index (0 to size - 1)
+     * @param v The new value at index i
+     */
+    public void set(int i, long v) {
+        if (i >= size) {
+            throw new IndexOutOfBoundsException("Index " + i + ", size " + size);
+        }
+
+        data[i] = v;
+    }
+
+    /**
+     * @return The last value.
+     */
+    public long last() {
+        return get(size - 1);
+    }
+
+    /**
+     * @return The number of values.
+     */
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Removes all values, keeping the capacity.
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Keeps only the first values.
+     *
+     * @param size The new size (up to the current one)
+     */
+    public void truncate(int size) {
+        if (size < 0 || size > this.size) {
+            throw new IndexOutOfBoundsException("Size " + size + ", current size " + this.size);
+        }
+
+        this.size = size;
+    }
+
+    /**
+     * Removes the first values, shifting the rest to the start.
+     *
+     * @param n The number of values to remove (up to the size)
+     */
+    public void removeFirst(int n) {
+        if (n < 0 || n > size) {
+            throw new IndexOutOfBoundsException("Removing " + n + ", size " + size);
+        }
+
+        System.arraycopy(data, n, data, 0, size - n);
+        size -= n;
+    }
+
+    /**
+     * Makes sure that at least capacity values fit without growing.
+     *
+     * @param capacity The capacity
+     */
+    public void ensureCapacity(int capacity) {
+        if (capacity > data.length) {
+            data = Arrays.copyOf(data, Math.max(capacity, data.length + (data.length >> 1) + 1));
+        }
+    }
+
+    /**
+     * The backing array, valid from 0 to size - 1. It is replaced when the buffer grows.
+     *
+     * @return The backing array
+     */
+    @Nonnull
+    public long[] array() {
+        return data;
+    }
+
+    /**
+     * @return A new array with the values.
+     */
+    @Nonnull
+    public long[] toArray() {
+        return Arrays.copyOf(data, size);
+    }
+}
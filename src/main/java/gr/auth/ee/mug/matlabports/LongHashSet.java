@@ -0,0 +1,92 @@
+package gr.auth.ee.mug.matlabports;
+
+import javax.annotation.Nonnull;
+
+
+/**
+ * Set of longs with open addressing (linear probing), without boxing.
+ * <p>
+ * The table is sized once for the expected number of keys (load factor at most 1/2), and grows if more are added.
+ */
+final class LongHashSet {
+
+    /**
+     * Table of keys; 0 marks an empty slot, and key 0 itself is kept in hasZero.
+     */
+    @Nonnull
+    private long[] keys;
+    private int mask;
+    private int size;
+    private boolean hasZero;
+
+    /**
+     * @param expected The expected number of keys
+     */
+    LongHashSet(int expected) {
+        int capacity = 4;
+        while (capacity < 2 * expected) {
+            capacity *= 2;
+        }
+        keys = new long[capacity];
+        mask = capacity - 1;
+    }
+
+    /**
+     * Adds a key.
+     *
+     * @param key The key
+     * @return True if the key was not in the set
+     */
+    boolean add(long key) {
+        if (key == 0) {
+            if (hasZero) {
+                return false;
+            }
+            hasZero = true;
+            return true;
+        }
+
+        int i = hash(key) & mask;
+        while (keys[i] != 0) {
+            if (keys[i] == key) {
+                return false;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        size++;
+
+        if (2 * size > keys.length) {
+            rehash();
+        }
+
+        return true;
+    }
+
+    private void rehash() {
+        final long[] old = keys;
+        keys = new long[2 * old.length];
+        mask = keys.length - 1;
+        for (long key : old) {
+            if (key != 0) {
+                int i = hash(key) & mask;
+                while (keys[i] != 0) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = key;
+            }
+        }
+    }
+
+    /**
+     * Mixes all bits of the key (finalizer of MurmurHash3).
+     */
+    private static int hash(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+}
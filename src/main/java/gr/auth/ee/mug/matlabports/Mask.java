@@ -0,0 +1,442 @@
+package gr.auth.ee.mug.matlabports;
+
+import java.util.Arrays;
+
+import javax.annotation.Nonnull;
+
+import gr.auth.ee.mug.matlabports.exceptions.LengthMismatchException;
+
+
+/**
+ * Boolean selector packed in bits (64 items per long), the compact counterpart of a {@code boolean[]} selector.
+ * <p>
+ * Logical operations work on 64 items at a time, counting uses {@link Long#bitCount(long)} and finding the true
+ * items skips false words and uses {@link Long#numberOfTrailingZeros(long)}. Use with
+ * {@link SelectorsSetters#select(double[], Mask)}, {@link SelectorsSetters#set(double[], Mask, double)} and
+ * {@link SelectorsSetters#find(Mask)}.
+ * <p>
+ * The bits of the last word past the length are always zero.
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public final class Mask {
+
+    private final int length;
+    @Nonnull
+    private final long[] words;
+
+    /**
+     * @param length The number of items, all false
+     */
+    public Mask(int length) {
+        if (length < 0) {
+            throw new IllegalArgumentException("Bad length " + length + " (should be >= 0)");
+        }
+
+        this.length = length;
+        words = new long[(length + 63) >>> 6];
+    }
+
+    /**
+     * MATLAB:
+     * <pre>{@code m = b;}</pre>
+     *
+     * @param b The boolean selector.
+     * @return The mask of b.
+     */
+    @Nonnull
+    public static Mask of(@Nonnull boolean[] b) {
+        final Mask m = new Mask(b.length);
+        for (int i = 0; i < b.length; i++) {
+            if (b[i]) {
+                m.words[i >>> 6] |= 1L << i;
+            }
+        }
+
+        return m;
+    }
+
+    /**
+     * MATLAB:
+     * <pre>{@code m = x < v;}</pre>
+     *
+     * @param x The input array.
+     * @param v The value to compare to.
+     * @return The mask of the items of x that are less than v.
+     */
+    @Nonnull
+    public static Mask less(@Nonnull double[] x, double v) {
+        final Mask m = new Mask(x.length);
+        for (int w = 0; w < m.words.length; w++) {
+            final int base = w << 6;
+            final int n = Math.min(64, x.length - base);
+            long word = 0;
+            for (int j = 0; j < n; j++) {
+                word |= (x[base + j] < v ? 1L : 0L) << j;
+            }
+            m.words[w] = word;
+        }
+
+        return m;
+    }
+
+    /**
+     * MATLAB:
+     * <pre>{@code m = x <= v;}</pre>
+     *
+     * @param x The input array.
+     * @param v The value to compare to.
+     * @return The mask of the items of x that are less than or equal to v.
+     */
+    @Nonnull
+    public static Mask lesseq(@Nonnull double[] x, double v) {
+        final Mask m = new Mask(x.length);
+        for (int w = 0; w < m.words.length; w++) {
+            final int base = w << 6;
+            final int n = Math.min(64, x.length - base);
+            long word = 0;
+            for (int j = 0; j < n; j++) {
+                word |= (x[base + j] <= v ? 1L : 0L) << j;
+            }
+            m.words[w] = word;
+        }
+
+        return m;
+    }
+
+    /**
+     * MATLAB:
+     * <pre>{@code m = x > v;}</pre>
+     *
+     * @param x The input array.
+     * @param v The value to compare to.
+     * @return The mask of the items of x that are greater than v.
+     */
+    @Nonnull
+    public static Mask more(@Nonnull double[] x, double v) {
+        final Mask m = new Mask(x.length);
+        for (int w = 0; w < m.words.length; w++) {
+            final int base = w << 6;
+            final int n = Math.min(64, x.length - base);
+            long word = 0;
+            for (int j = 0; j < n; j++) {
+                word |= (x[base + j] > v ? 1L : 0L) << j;
+            }
+            m.words[w] = word;
+        }
+
+        return m;
+    }
+
+    /**
+     * MATLAB:
+     * <pre>{@code m = x >= v;}</pre>
+     *
+     * @param x The input array.
+     * @param v The value to compare to.
+     * @return The mask of the items of x that are greater than or equal to v.
+     */
+    @Nonnull
+    public static Mask moreeq(@Nonnull double[] x, double v) {
+        final Mask m = new Mask(x.length);
+        for (int w = 0; w < m.words.length; w++) {
+            final int base = w << 6;
+            final int n = Math.min(64, x.length - base);
+            long word = 0;
+            for (int j = 0; j < n; j++) {
+                word |= (x[base + j] >= v ? 1L : 0L) << j;
+            }
+            m.words[w] = word;
+        }
+
+        return m;
+    }
+
+    /**
+     * MATLAB:
+     * <pre>{@code m = x == v;}</pre>
+     *
+     * @param x The input array.
+     * @param v The value to compare to.
+     * @return The mask of the items of x that are equal to v.
+     */
+    @Nonnull
+    public static Mask isEqual(@Nonnull double[] x, double v) {
+        final Mask m = new Mask(x.length);
+        for (int w = 0; w < m.words.length; w++) {
+            final int base = w << 6;
+            final int n = Math.min(64, x.length - base);
+            long word = 0;
+            for (int j = 0; j < n; j++) {
+                word |= (x[base + j] == v ? 1L : 0L) << j;
+            }
+            m.words[w] = word;
+        }
+
+        return m;
+    }
+
+    /**
+     * @return The number of items.
+     */
+    public int length() {
+        return length;
+    }
+
+    /**
+     * @param i The index of the item
+     * @return The item
+     */
+    public boolean get(int i) {
+        checkIndex(i);
+
+        return (words[i >>> 6] & (1L << i)) != 0;
+    }
+
+    /**
+     * @param i The index of the item
+     * @param v The new value of the item
+     */
+    public void set(int i, boolean v) {
+        checkIndex(i);
+
+        if (v) {
+            words[i >>> 6] |= 1L << i;
+        } else {
+            words[i >>> 6] &= ~(1L << i);
+        }
+    }
+
+    private void checkIndex(int i) {
+        if (i < 0 || i >= length) {
+            throw new IndexOutOfBoundsException("Index " + i + " (length " + length + ")");
+        }
+    }
+
+    /**
+     * MATLAB:
+     * <pre>{@code c = m & b;}</pre>
+     *
+     * @param b The other mask.
+     * @return A new mask with the result.
+     */
+    @Nonnull
+    public Mask and(@Nonnull Mask b) throws LengthMismatchException {
+        final Mask c = copy();
+        c.andInPlace(b);
+
+        return c;
+    }
+
+    /**
+     * MATLAB:
+     * <pre>{@code c = m | b;}</pre>
+     *
+     * @param b The other mask.
+     * @return A new mask with the result.
+     */
+    @Nonnull
+    public Mask or(@Nonnull Mask b) throws LengthMismatchException {
+        final Mask c = copy();
+        c.orInPlace(b);
+
+        return c;
+    }
+
+    /**
+     * MATLAB:
+     * <pre>{@code c = xor(m, b);}</pre>
+     *
+     * @param b The other mask.
+     * @return A new mask with the result.
+     */
+    @Nonnull
+    public Mask xor(@Nonnull Mask b) throws LengthMismatchException {
+        final Mask c = copy();
+        c.xorInPlace(b);
+
+        return c;
+    }
+
+    /**
+     * MATLAB:
+     * <pre>{@code c = ~m;}</pre>
+     *
+     * @return A new mask with the result.
+     */
+    @Nonnull
+    public Mask not() {
+        final Mask c = copy();
+        c.notInPlace();
+
+        return c;
+    }
+
+    /**
+     * MATLAB:
+     * <pre>{@code m = m & b;}</pre>
+     *
+     * @param b The other mask.
+     */
+    public void andInPlace(@Nonnull Mask b) throws LengthMismatchException {
+        checkEqualLength(b);
+
+        for (int w = 0; w < words.length; w++) {
+            words[w] &= b.words[w];
+        }
+    }
+
+    /**
+     * MATLAB:
+     * <pre>{@code m = m | b;}</pre>
+     *
+     * @param b The other mask.
+     */
+    public void orInPlace(@Nonnull Mask b) throws LengthMismatchException {
+        checkEqualLength(b);
+
+        for (int w = 0; w < words.length; w++) {
+            words[w] |= b.words[w];
+        }
+    }
+
+    /**
+     * MATLAB:
+     * <pre>{@code m = xor(m, b);}</pre>
+     *
+     * @param b The other mask.
+     */
+    public void xorInPlace(@Nonnull Mask b) throws LengthMismatchException {
+        checkEqualLength(b);
+
+        for (int w = 0; w < words.length; w++) {
+            words[w] ^= b.words[w];
+        }
+    }
+
+    /**
+     * MATLAB:
+     * <pre>{@code m = ~m;}</pre>
+     */
+    public void notInPlace() {
+        for (int w = 0; w < words.length; w++) {
+            words[w] = ~words[w];
+        }
+        clearTail();
+    }
+
+    /**
+     * MATLAB:
+     * <pre>{@code n = nnz(m);}</pre>
+     *
+     * @return The number of true items.
+     */
+    public int count() {
+        int n = 0;
+        for (long word : words) {
+            n += Long.bitCount(word);
+        }
+
+        return n;
+    }
+
+    /**
+     * MATLAB:
+     * <pre>{@code any(m)}</pre>
+     *
+     * @return True if any item is true.
+     */
+    public boolean any() {
+        for (long word : words) {
+            if (word != 0) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * MATLAB:
+     * <pre>{@code all(m)}</pre>
+     *
+     * @return True if all items are true (also if there are none).
+     */
+    public boolean all() {
+        return count() == length;
+    }
+
+    /**
+     * MATLAB:
+     * <pre>{@code idx = find(m);}</pre>
+     *
+     * @return The indices of the true items, in increasing order.
+     */
+    @Nonnull
+    public int[] find() {
+        final int[] idx = new int[count()];
+        int p = 0;
+        for (int w = 0; w < words.length; w++) {
+            long word = words[w];
+            while (word != 0) {
+                idx[p++] = (w << 6) + Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+            }
+        }
+
+        return idx;
+    }
+
+    /**
+     * @return The equivalent boolean selector.
+     */
+    @Nonnull
+    public boolean[] toBooleanArray() {
+        final boolean[] b = new boolean[length];
+        for (int i = 0; i < length; i++) {
+            b[i] = (words[i >>> 6] & (1L << i)) != 0;
+        }
+
+        return b;
+    }
+
+    /**
+     * @return An independent copy of this mask.
+     */
+    @Nonnull
+    public Mask copy() {
+        final Mask c = new Mask(length);
+        System.arraycopy(words, 0, c.words, 0, words.length);
+
+        return c;
+    }
+
+    /**
+     * The words, 64 items each (item i is bit i % 64 of word i / 64). Not a copy.
+     */
+    @Nonnull
+    long[] words() {
+        return words;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Mask && ((Mask) o).length == length && Arrays.equals(((Mask) o).words, words);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * length + Arrays.hashCode(words);
+    }
+
+    private void checkEqualLength(@Nonnull Mask b) throws LengthMismatchException {
+        if (b.length != length) {
+            throw new LengthMismatchException("Length " + b.length + " (should be " + length + ")");
+        }
+    }
+
+    private void clearTail() {
+        if ((length & 63) != 0) {
+            words[words.length - 1] &= (1L << length) - 1;
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package gr.auth.ee.mug.matlabports;
+
+import javax.annotation.Nonnull;
+
+
+/**
+ * Accumulator of the mean and the central moments (up to the fourth) of a stream of values, in a single pass.
+ * <p>
+ * Values can be added one at a time (Welford's update, extended by Terriberry to higher moments) or as arrays,
+ * which are processed in blocks that fit in the cache: each block is summed in two passes and merged into the
+ * accumulator, so the array is read from memory once. Accumulators of different parts of the data, such as chunks
+ * processed by different threads, can be merged (Chan et al., Pebay) in any order.
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public final class Moments {
+
+    /**
+     * Length of the blocks of arrays.
+     */
+    static final int BLOCK = 1024;
+
+    private long n;
+    private double mean;
+    /**
+     * Sums of the powers (2 to 4) of the deviations from the mean.
+     */
+    private double m2;
+    private double m3;
+    private double m4;
+
+    /**
+     * Adds a value.
+     *
+     * @param v The value
+     */
+    public void add(double v) {
+        final long n1 = n;
+        n++;
+        final double delta = v - mean;
+        final double deltaN = delta / n;
+        final double deltaN2 = deltaN * deltaN;
+        final double term = delta * deltaN * n1;
+        mean += deltaN;
+        m4 += term * deltaN2 * ((double) n * n - 3 * n + 3) + 6 * deltaN2 * m2 - 4 * deltaN * m3;
+        m3 += term * deltaN * (n - 2) - 3 * deltaN * m2;
+        m2 += term;
+    }
+
+    /**
+     * Adds the values of an array.
+     *
+     * @param x The values
+     */
+    public void add(@Nonnull double[] x) {
+        add(x, 0, x.length);
+    }
+
+    /**
+     * Adds the values of a part of an array.
+     *
+     * @param x     The values
+     * @param start The index of the first value (inclusive)
+     * @param stop  The index of the last value (exclusive)
+     */
+    public void add(@Nonnull double[] x, int start, int stop) {
+        for (int b = start; b < stop; b += BLOCK) {
+            final int e = Math.min(b + BLOCK, stop);
+            final double mb = CommonFunctions.sum(x, b, e) / (e - b);
+            double s2 = 0;
+            double s3 = 0;
+            double s4 = 0;
+            for (int i = b; i < e; i++) {
+                final double d = x[i] - mb;
+                final double d2 = d * d;
+                s2 += d2;
+                s3 += d2 * d;
+                s4 += d2 * d2;
+            }
+            merge(e - b, mb, s2, s3, s4);
+        }
+    }
+
+    /**
+     * Adds the values added to another accumulator.
+     *
+     * @param other The other accumulator; not modified
+     */
+    public void merge(@Nonnull Moments other) {
+        merge(other.n, other.mean, other.m2, other.m3, other.m4);
+    }
+
+    private void merge(long nb, double meanB, double m2b, double m3b, double m4b) {
+        if (nb == 0) {
+            return;
+        }
+        if (n == 0) {
+            n = nb;
+            mean = meanB;
+            m2 = m2b;
+            m3 = m3b;
+            m4 = m4b;
+            return;
+        }
+
+        final double na = n;
+        final double nc = na + nb;
+        final double delta = meanB - mean;
+        final double delta2 = delta * delta;
+        final double ab = na * nb / nc;
+        m4 += m4b + delta2 * delta2 * ab * (na * na - na * nb + (double) nb * nb) / (nc * nc)
+                + 6 * delta2 * (na * na * m2b + (double) nb * nb * m2) / (nc * nc)
+                + 4 * delta * (na * m3b - nb * m3) / nc;
+        m3 += m3b + delta2 * delta * ab * (na - nb) / nc + 3 * delta * (na * m2b - nb * m2) / nc;
+        m2 += m2b + delta2 * ab;
+        mean += delta * nb / nc;
+        n += nb;
+    }
+
+    /**
+     * Removes all values.
+     */
+    public void reset() {
+        n = 0;
+        mean = 0;
+        m2 = 0;
+        m3 = 0;
+        m4 = 0;
+    }
+
+    /**
+     * @return The number of values.
+     */
+    public long count() {
+        return n;
+    }
+
+    /**
+     * MATLAB:
+     * <pre>{@code y = mean(x);}</pre>
+     *
+     * @return The mean, or NaN if there are no values.
+     */
+    public double mean() {
+        return n == 0 ? Double.NaN : mean;
+    }
+
+    /**
+     * MATLAB:
+     * <pre>{@code y = var(x);}</pre>
+     *
+     * @param unbiased If true, the unbiased formula is used (sum is divided by N-1 where N is the number of values).
+     * @return The variance.
+     */
+    public double var(boolean unbiased) {
+        return m2 / (unbiased ? n - 1 : n);
+    }
+
+    /**
+     * MATLAB:
+     * <pre>{@code y = std(x);}</pre>
+     *
+     * @param unbiased If true, the unbiased formula is used (sum is divided by N-1 where N is the number of values).
+     * @return The standard deviation.
+     */
+    public double std(boolean unbiased) {
+        return Math.sqrt(var(unbiased));
+    }
+
+    /**
+     * MATLAB:
+     * <pre>{@code y = skewness(x);}</pre>
+     *
+     * @return The (biased) skewness.
+     */
+    public double skewness() {
+        return m3 / n / Math.pow(m2 / n, 1.5);
+    }
+
+    /**
+     * MATLAB:
+     * <pre>{@code y = kurtosis(x);}</pre>
+     *
+     * @return The (biased) kurtosis; 3 for the normal distribution.
+     */
+    public double kurtosis() {
+        return m4 / n / ((m2 / n) * (m2 / n));
+    }
+}
@@ -0,0 +1,65 @@
+package gr.auth.ee.mug.matlabports;
+
+import javax.annotation.Nonnull;
+
+
+/**
+ * Work buffers for the one-dimensional morphological operations of {@link DSP} ({@code imopen}, {@code imclose},
+ * {@code imtophat} and {@code imbothat}).
+ * <p>
+ * A workspace can be reused for any number of calls. Buffers grow the first time a longer array or structure
+ * element is processed and are kept afterwards, so repeated calls on arrays of the same size allocate nothing.
+ * A workspace must not be shared between threads.
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public final class MorphologyWorkspace {
+
+    /**
+     * Output of the first operation (erosion or dilation), as seen by the second one.
+     */
+    @Nonnull
+    double[] buffer = new double[0];
+    /**
+     * Monotonic deque of the first operation (indices of the input array).
+     */
+    @Nonnull
+    int[] queue1 = new int[0];
+    /**
+     * Monotonic deque of the second operation (indices of the buffer).
+     */
+    @Nonnull
+    int[] queue2 = new int[0];
+
+    /**
+     * Creates an empty workspace; buffers are allocated on first use.
+     */
+    public MorphologyWorkspace() {
+    }
+
+    /**
+     * Creates a workspace for arrays of up to a given length.
+     *
+     * @param length The maximum length of the input arrays
+     * @param n      The maximum length of the structure element
+     */
+    public MorphologyWorkspace(int length, int n) {
+        ensureCapacity(length, n);
+    }
+
+    /**
+     * Makes sure the buffers can hold an array of a given length processed with a given structure element.
+     *
+     * @param length The length of the input array
+     * @param n      The length of the structure element
+     */
+    void ensureCapacity(int length, int n) {
+        final int bufferLength = length + Math.max(n, 1) - 1;
+        if (buffer.length < bufferLength) {
+            buffer = new double[bufferLength];
+            queue2 = new int[bufferLength];
+        }
+        if (queue1.length < length) {
+            queue1 = new int[length];
+        }
+    }
+}
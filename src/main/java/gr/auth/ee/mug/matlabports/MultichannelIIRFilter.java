@@ -0,0 +1,173 @@
+package gr.auth.ee.mug.matlabports;
+
+import java.util.Arrays;
+
+import javax.annotation.Nonnull;
+
+import gr.auth.ee.mug.matlabports.exceptions.BadArrayLengthException;
+import gr.auth.ee.mug.matlabports.exceptions.LengthMismatchException;
+
+import static gr.auth.ee.mug.matlabports.Checks.checkEqualLength;
+import static java.lang.Math.max;
+
+
+/**
+ * The same IIR filter applied to several channels at once (e.g. the axes of an IMU).
+ * <p>
+ * Computes exactly what one {@link IIRFilter} per channel would, but the channel loop is the innermost one: each
+ * coefficient is loaded once per sample for all channels, and the past inputs/outputs of all channels are stored
+ * next to each other, which lets the JIT vectorise across channels. Blocks of any length are accepted.
+ * <p>
+ * Blocks are given either channel-interleaved ({@code x[i * channels + c]}) or channel-major ({@code x[c][i]}).
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public class MultichannelIIRFilter {
+
+    @Nonnull
+    private final double[] a;
+    @Nonnull
+    private final double[] b;
+    private final int channels;
+    /**
+     * Filter order, i.e. number of past samples kept per channel.
+     */
+    private final int order;
+    /**
+     * Past inputs, one frame of all channels per past sample, in a circular buffer of order frames.
+     */
+    @Nonnull
+    private final double[] xPast;
+    /**
+     * Past outputs, same layout as xPast.
+     */
+    @Nonnull
+    private final double[] yPast;
+    /**
+     * Frame of xPast and yPast holding the latest sample.
+     */
+    private int latest;
+    /**
+     * Work buffers of one frame.
+     */
+    @Nonnull
+    private final double[] xFrame;
+    @Nonnull
+    private final double[] yFrame;
+
+    public MultichannelIIRFilter(@Nonnull double[] b, @Nonnull double[] a, int channels)
+            throws BadArrayLengthException {
+        if (b.length < 1) {
+            throw new BadArrayLengthException("Length of b=" + b.length);
+        }
+        if (a.length < 1) {
+            throw new BadArrayLengthException("Length of a=" + a.length);
+        }
+        if (channels < 1) {
+            throw new BadArrayLengthException("Number of channels=" + channels);
+        }
+
+        final int coeffLength = max(b.length, a.length);
+        this.b = Arrays.copyOf(b, coeffLength);
+        this.a = Arrays.copyOf(a, coeffLength);
+        this.channels = channels;
+
+        order = coeffLength - 1;
+        xPast = new double[order * channels];
+        yPast = new double[order * channels];
+        xFrame = new double[channels];
+        yFrame = new double[channels];
+
+        reset();
+    }
+
+    public int getChannels() {
+        return channels;
+    }
+
+    public void reset() {
+        Arrays.fill(xPast, 0);
+        Arrays.fill(yPast, 0);
+        latest = 0;
+    }
+
+    /**
+     * Filters a channel-interleaved block. The output array can be the input array itself.
+     *
+     * @param x The input, {@code x[i * channels + c]} being sample i of channel c
+     * @param y The output, same layout as x
+     */
+    public void applyInterleaved(@Nonnull double[] x, @Nonnull double[] y)
+            throws LengthMismatchException, BadArrayLengthException {
+        checkEqualLength(x, y);
+        if (x.length % channels != 0) {
+            throw new BadArrayLengthException("Length " + x.length + " is not a multiple of " + channels + " channels");
+        }
+
+        for (int base = 0; base < x.length; base += channels) {
+            System.arraycopy(x, base, xFrame, 0, channels);
+            filterFrame();
+            System.arraycopy(yFrame, 0, y, base, channels);
+        }
+    }
+
+    /**
+     * Filters a channel-major block. The output arrays can be the input arrays themselves.
+     *
+     * @param x The input, {@code x[c][i]} being sample i of channel c
+     * @param y The output, same layout as x
+     */
+    public void apply(@Nonnull double[][] x, @Nonnull double[][] y)
+            throws LengthMismatchException, BadArrayLengthException {
+        if (x.length != channels || y.length != channels) {
+            throw new BadArrayLengthException(
+                    "Number of channels of x=" + x.length + " and y=" + y.length + " (should be " + channels + ")");
+        }
+        for (int c = 0; c < channels; c++) {
+            checkEqualLength(x[0], x[c]);
+            checkEqualLength(x[0], y[c]);
+        }
+
+        final int n = x[0].length;
+        for (int i = 0; i < n; i++) {
+            for (int c = 0; c < channels; c++) {
+                xFrame[c] = x[c][i];
+            }
+            filterFrame();
+            for (int c = 0; c < channels; c++) {
+                y[c][i] = yFrame[c];
+            }
+        }
+    }
+
+    /**
+     * Filters one sample of all channels, from xFrame to yFrame, and updates the past.
+     */
+    private void filterFrame() {
+        final int channels = this.channels;
+
+        // Initialize output with latest input
+        final double b0 = b[0];
+        for (int c = 0; c < channels; c++) {
+            yFrame[c] = b0 * xFrame[c];
+        }
+
+        // Update with the past; lag j is stored in frame latest - j + 1
+        int frame = latest;
+        for (int j = 1; j <= order; j++) {
+            final double bj = b[j];
+            final double aj = a[j];
+            final int offset = frame * channels;
+            for (int c = 0; c < channels; c++) {
+                yFrame[c] += bj * xPast[offset + c] - aj * yPast[offset + c];
+            }
+            frame = frame == 0 ? order - 1 : frame - 1;
+        }
+
+        // Update past, overwriting the oldest frame
+        if (order > 0) {
+            latest = latest + 1 == order ? 0 : latest + 1;
+            System.arraycopy(xFrame, 0, xPast, latest * channels, channels);
+            System.arraycopy(yFrame, 0, yPast, latest * channels, channels);
+        }
+    }
+}
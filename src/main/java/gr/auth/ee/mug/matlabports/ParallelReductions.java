@@ -0,0 +1,354 @@
+package gr.auth.ee.mug.matlabports;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.IntBinaryOperator;
+
+import javax.annotation.Nonnull;
+
+import gr.auth.ee.mug.matlabports.exceptions.LengthMismatchException;
+
+import static gr.auth.ee.mug.matlabports.Checks.checkEqualLength;
+
+
+/**
+ * Parallel counterparts of the reductions of {@link CommonFunctions}, for large arrays.
+ * <p>
+ * The range is split into chunks of threshold items, starting from its first index, which are reduced
+ * sequentially and combined as a balanced binary tree by fork-join tasks. The chunks and the tree depend only on the
+ * range and the threshold, so results are the same whatever the parallelism of the pool (the sums may differ in the
+ * last bits from the sequential ones, since they are added in a different order). Ranges up to threshold items are
+ * reduced in the calling thread.
+ * <p>
+ * The index reductions return the same index as the sequential ones, NaN values included.
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public final class ParallelReductions {
+
+    /**
+     * Default number of items reduced sequentially by each task. Large enough that the overhead of a task is
+     * negligible compared to streaming the chunk from memory.
+     */
+    public static final int DEFAULT_THRESHOLD = 1 << 16;
+
+    @Nonnull
+    private final ForkJoinPool pool;
+    private final int threshold;
+
+    /**
+     * Reductions on the common pool, with the default threshold.
+     */
+    public ParallelReductions() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param pool The pool to run in
+     */
+    public ParallelReductions(@Nonnull ForkJoinPool pool) {
+        this(pool, DEFAULT_THRESHOLD);
+    }
+
+    /**
+     * @param pool      The pool to run in
+     * @param threshold The number of items reduced sequentially by each task
+     */
+    public ParallelReductions(@Nonnull ForkJoinPool pool, int threshold) {
+        if (threshold < 1) {
+            throw new IllegalArgumentException("Bad threshold " + threshold + " (should be >= 1)");
+        }
+
+        this.pool = pool;
+        this.threshold = threshold;
+    }
+
+    /**
+     * MATLAB:
+     * <pre>{@code y = sum(x);}</pre>
+     *
+     * @param x The input array
+     * @return Its sum
+     */
+    public double sum(@Nonnull double[] x) {
+        return sum(x, 0, x.length);
+    }
+
+    /**
+     * MATLAB:
+     * <pre>{@code y = sum(x(start:stop - 1))}</pre>
+     *
+     * @param x     The array to compute the sum of.
+     * @param start The index from which to start summing (inclusive).
+     * @param stop  The index at which to stop summing (exclusive).
+     * @return The partial sum.
+     */
+    public double sum(@Nonnull double[] x, int start, int stop) {
+        return reduce(start, stop, (s, e) -> CommonFunctions.sum(x, s, e), Double::sum);
+    }
+
+    /**
+     * MATLAB:
+     * <pre>{@code y = mean(x);}</pre>
+     *
+     * @param x The input array.
+     * @return The mean.
+     */
+    public double mean(@Nonnull double[] x) {
+        return mean(x, 0, x.length);
+    }
+
+    /**
+     * MATLAB:
+     * <pre>{@code y = mean(x(start:stop - 1))}</pre>
+     *
+     * @param x     The array to compute the mean of.
+     * @param start The index from which to start computing the mean (inclusive).
+     * @param stop  The index at which to stop computing the mean (exclusive).
+     * @return The partial mean.
+     */
+    public double mean(@Nonnull double[] x, int start, int stop) {
+        return sum(x, start, stop) / (stop - start);
+    }
+
+    /**
+     * MATLAB:
+     * <pre>{@code y = norm(x, 1);}</pre>
+     *
+     * @param x The input array.
+     * @return Its L1 norm.
+     */
+    public double normL1(@Nonnull double[] x) {
+        return reduce(0, x.length, (s, e) -> {
+            double y = 0;
+            for (int i = s; i < e; i++) {
+                y += Math.abs(x[i]);
+            }
+            return y;
+        }, Double::sum);
+    }
+
+    /**
+     * MATLAB:
+     * <pre>{@code y = norm(x, 2);}</pre>
+     *
+     * @param x The input array.
+     * @return Its L2 norm.
+     */
+    public double normL2(@Nonnull double[] x) {
+        return Math.sqrt(reduce(0, x.length, (s, e) -> {
+            double y = 0;
+            for (int i = s; i < e; i++) {
+                y += x[i] * x[i];
+            }
+            return y;
+        }, Double::sum));
+    }
+
+    /**
+     * MATLAB:
+     * <pre>{@code z = x' * y;}</pre>
+     *
+     * @param x The first array.
+     * @param y The second array.
+     * @return Their inner product.
+     */
+    public double innerProduct(@Nonnull double[] x, @Nonnull double[] y) throws LengthMismatchException {
+        checkEqualLength(x, y);
+
+        return reduce(0, x.length, (s, e) -> {
+            double z = 0;
+            for (int i = s; i < e; i++) {
+                z += x[i] * y[i];
+            }
+            return z;
+        }, Double::sum);
+    }
+
+    /**
+     * MATLAB:
+     * <pre>{@code v = max(x(i1:i2));}</pre>
+     *
+     * @param x  The input array.
+     * @param i1 The first index of the array to take into account.
+     * @param i2 The last index of the array to take into account.
+     * @return The maximum item.
+     */
+    public double max(@Nonnull double[] x, int i1, int i2) {
+        return x[maxIdx(x, i1, i2)];
+    }
+
+    /**
+     * Same as {@link CommonFunctions#maxIdx(double[], int, int)}.
+     * <p>
+     * MATLAB:
+     * <pre>{@code [~, idx] = max(x(i1:i2));
+     * idx = idx + i1 - 1;}</pre>
+     *
+     * @param x  The input array.
+     * @param i1 The first index of the array to take into account.
+     * @param i2 The last index of the array to take into account.
+     * @return The index of the maximum item.
+     */
+    public int maxIdx(@Nonnull double[] x, int i1, int i2) {
+        // The sequential version keeps a NaN first item; otherwise NaNs are skipped
+        if (Double.isNaN(x[i1])) {
+            return i1;
+        }
+
+        return reduceIdx(i1, i2 + 1, (s, e) -> {
+            int idx = -1;
+            for (int i = s; i < e; i++) {
+                if (idx < 0 ? !Double.isNaN(x[i]) : x[idx] < x[i]) {
+                    idx = i;
+                }
+            }
+            return idx;
+        }, (l, r) -> r >= 0 && (l < 0 || x[l] < x[r]) ? r : l);
+    }
+
+    /**
+     * MATLAB:
+     * <pre>{@code v = min(x(i1:i2));}</pre>
+     *
+     * @param x  The input array.
+     * @param i1 The first index of the array to take into account.
+     * @param i2 The last index of the array to take into account.
+     * @return The minimum item.
+     */
+    public double min(@Nonnull double[] x, int i1, int i2) {
+        return x[minIdx(x, i1, i2)];
+    }
+
+    /**
+     * Same as {@link CommonFunctions#minIdx(double[], int, int)}.
+     * <p>
+     * MATLAB:
+     * <pre>{@code [~, idx] = min(x(i1:i2));
+     * idx = idx + i1 - 1;}</pre>
+     *
+     * @param x  The input array.
+     * @param i1 The first index of the array to take into account.
+     * @param i2 The last index of the array to take into account.
+     * @return The index of the minimum item.
+     */
+    public int minIdx(@Nonnull double[] x, int i1, int i2) {
+        // The sequential version keeps a NaN first item; otherwise NaNs are skipped
+        if (Double.isNaN(x[i1])) {
+            return i1;
+        }
+
+        return reduceIdx(i1, i2 + 1, (s, e) -> {
+            int idx = -1;
+            for (int i = s; i < e; i++) {
+                if (idx < 0 ? !Double.isNaN(x[i]) : x[idx] > x[i]) {
+                    idx = i;
+                }
+            }
+            return idx;
+        }, (l, r) -> r >= 0 && (l < 0 || x[l] > x[r]) ? r : l);
+    }
+
+    /**
+     * Reduces a range, in the calling thread if it is not longer than threshold.
+     */
+    private double reduce(int start, int stop, @Nonnull RangeReduction leaf, @Nonnull DoubleBinaryOperator combine) {
+        if (stop - start <= threshold) {
+            return leaf.reduce(start, stop);
+        }
+
+        return pool.invoke(new ReductionTask(start, stop, leaf, combine));
+    }
+
+    private int reduceIdx(int start, int stop, @Nonnull RangeIndex leaf, @Nonnull IntBinaryOperator combine) {
+        if (stop - start <= threshold) {
+            return leaf.reduce(start, stop);
+        }
+
+        return pool.invoke(new IndexTask(start, stop, leaf, combine));
+    }
+
+    /**
+     * The middle of a range, at a multiple of threshold from its start.
+     */
+    private int middle(int start, int stop) {
+        final int chunks = (stop - start - 1) / threshold + 1;
+        return start + chunks / 2 * threshold;
+    }
+
+    /**
+     * Sequential reduction of a range.
+     */
+    private interface RangeReduction {
+        double reduce(int start, int stop);
+    }
+
+    /**
+     * Sequential reduction of a range to an index.
+     */
+    private interface RangeIndex {
+        int reduce(int start, int stop);
+    }
+
+    private final class ReductionTask extends RecursiveTask<Double> {
+        private static final long serialVersionUID = 1L;
+
+        private final int start;
+        private final int stop;
+        @Nonnull
+        private final RangeReduction leaf;
+        @Nonnull
+        private final DoubleBinaryOperator combine;
+
+        ReductionTask(int start, int stop, @Nonnull RangeReduction leaf, @Nonnull DoubleBinaryOperator combine) {
+            this.start = start;
+            this.stop = stop;
+            this.leaf = leaf;
+            this.combine = combine;
+        }
+
+        @Override
+        protected Double compute() {
+            if (stop - start <= threshold) {
+                return leaf.reduce(start, stop);
+            }
+
+            final int middle = middle(start, stop);
+            final ReductionTask left = new ReductionTask(start, middle, leaf, combine);
+            left.fork();
+            final double right = new ReductionTask(middle, stop, leaf, combine).compute();
+            return combine.applyAsDouble(left.join(), right);
+        }
+    }
+
+    private final class IndexTask extends RecursiveTask<Integer> {
+        private static final long serialVersionUID = 1L;
+
+        private final int start;
+        private final int stop;
+        @Nonnull
+        private final RangeIndex leaf;
+        @Nonnull
+        private final IntBinaryOperator combine;
+
+        IndexTask(int start, int stop, @Nonnull RangeIndex leaf, @Nonnull IntBinaryOperator combine) {
+            this.start = start;
+            this.stop = stop;
+            this.leaf = leaf;
+            this.combine = combine;
+        }
+
+        @Override
+        protected Integer compute() {
+            if (stop - start <= threshold) {
+                return leaf.reduce(start, stop);
+            }
+
+            final int middle = middle(start, stop);
+            final IndexTask left = new IndexTask(start, middle, leaf, combine);
+            left.fork();
+            final int right = new IndexTask(middle, stop, leaf, combine).compute();
+            return combine.applyAsInt(left.join(), right);
+        }
+    }
+}
@@ -0,0 +1,449 @@
+package gr.auth.ee.mug.matlabports;
+
+import javax.annotation.Nonnull;
+
+
+/**
+ * Streaming version of {@link DSP#findPeaks(double[], int, double)}.
+ * <p>
+ * Samples are pushed in chunks of any length, and each peak is reported once, as soon as it is certain that
+ * {@code findPeaks} over the whole signal would return it: the reported peaks are exactly those of
+ * {@code findPeaks} over all samples pushed, in the same order. Call {@link #finish(PeakListener)} at the end of the
+ * signal to report the peaks still waiting for the minimum peak distance to be resolved.
+ * <p>
+ * A peak is decided as follows:
+ * <ul>
+ * <li>Its left side is known when the peak is found, from a stack of the preceding higher peaks with the minimum
+ * of the samples between them. Stack entries that can no longer change any decision are merged, so the stack only
+ * holds peaks within minPeakProminence of each other.</li>
+ * <li>Its right side is accepted on the first sample lower than the peak by more than minPeakProminence, or
+ * rejected when a higher peak comes first.</li>
+ * <li>Accepted peaks are resolved for minPeakDistance (highest first) as soon as one of them is higher than all
+ * peaks within minPeakDistance of it and all these peaks are known: it is kept, its neighbours are rejected, and
+ * no later peak can change the outcome of the peaks up to it. The peaks before it are then resolved and reported
+ * together.</li>
+ * </ul>
+ * Memory is therefore bounded by the number of peaks in these look-back ranges, not by the length of the signal.
+ * <p>
+ * Not thread-safe.
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public final class PeakDetector {
+
+    /**
+     * Receives each peak as soon as it is decided.
+     */
+    public interface PeakListener {
+        /**
+         * @param index The index of the peak (in samples since the start or the last reset)
+         * @param value The value of the peak
+         */
+        void onPeak(long index, double value);
+    }
+
+    private final int minPeakDistance;
+    private final double minPeakProminence;
+
+    /**
+     * Number of samples pushed so far.
+     */
+    private long count;
+    /**
+     * The last sample.
+     */
+    private double previous;
+    /**
+     * Index (or -1) and value of a sample higher than its previous one, followed only by equal samples so far, which
+     * is a peak if the next different sample is lower.
+     */
+    private long riseIndex;
+    private double riseValue;
+
+    /**
+     * Left sides: stack of peaks of decreasing height (entries first to size - 1), each with the minimum of the
+     * samples from it up to the next entry (or up to now, for the top entry).
+     */
+    @Nonnull
+    private final DoubleArrayBuffer stackHeight = new DoubleArrayBuffer();
+    @Nonnull
+    private final DoubleArrayBuffer stackMin = new DoubleArrayBuffer();
+    private int stackFirst;
+    /**
+     * If true, every peak whose left side ends in the bottom entry (which may stand for several merged peaks) is
+     * prominent enough on that side.
+     */
+    private boolean bottomAccepted;
+    /**
+     * Minimum of the samples from the lowest entry that is not accepted up to now.
+     */
+    private double checkMin;
+    /**
+     * Minimum of the samples before the bottom entry.
+     */
+    private double baseMin;
+    private boolean firstIsNaN;
+
+    /**
+     * Right sides: peaks waiting for a low enough sample (entries first to size - 1), in non-increasing height.
+     */
+    @Nonnull
+    private final LongArrayBuffer pendingIndex = new LongArrayBuffer();
+    @Nonnull
+    private final DoubleArrayBuffer pendingValue = new DoubleArrayBuffer();
+    private int pendingFirst;
+
+    /**
+     * Minimum peak distance: accepted peaks not yet resolved, in order of index, each with a flag set if a peak
+     * within minPeakDistance of it comes first in the order of {@link DSP#selectByPeakDistance} (it is higher, or
+     * as high and earlier).
+     */
+    @Nonnull
+    private final LongArrayBuffer clusterIndex = new LongArrayBuffer();
+    @Nonnull
+    private final DoubleArrayBuffer clusterValue = new DoubleArrayBuffer();
+    @Nonnull
+    private final IntArrayBuffer clusterBeaten = new IntArrayBuffer();
+    @Nonnull
+    private final IntArrayBuffer clusterOffset = new IntArrayBuffer();
+    /**
+     * Positions in the cluster of the peaks that no later peak comes before, from first to last in that order.
+     */
+    @Nonnull
+    private final IntArrayBuffer clusterStack = new IntArrayBuffer();
+    /**
+     * Position in the cluster of the first peak not yet known to be beaten within minPeakDistance.
+     */
+    private int clusterScan;
+
+    /**
+     * @param minPeakDistance   Minimum distance between peaks
+     * @param minPeakProminence Minimum prominence of each peak
+     */
+    public PeakDetector(int minPeakDistance, double minPeakProminence) {
+        this.minPeakDistance = minPeakDistance;
+        this.minPeakProminence = minPeakProminence;
+
+        reset();
+    }
+
+    /**
+     * Discards all samples and undecided peaks.
+     */
+    public void reset() {
+        count = 0;
+        previous = Double.NaN;
+        riseIndex = -1;
+        riseValue = Double.NaN;
+
+        stackHeight.clear();
+        stackMin.clear();
+        stackFirst = 0;
+        bottomAccepted = false;
+        checkMin = Double.POSITIVE_INFINITY;
+        baseMin = Double.POSITIVE_INFINITY;
+        firstIsNaN = false;
+
+        pendingIndex.clear();
+        pendingValue.clear();
+        pendingFirst = 0;
+
+        clusterIndex.clear();
+        clusterValue.clear();
+        clusterBeaten.clear();
+        clusterStack.clear();
+        clusterScan = 0;
+    }
+
+    /**
+     * @return The number of samples pushed since the start or the last reset.
+     */
+    public long sampleCount() {
+        return count;
+    }
+
+    /**
+     * Pushes a chunk of samples.
+     *
+     * @param x        The samples
+     * @param listener Called for every peak decided
+     * @return The number of peaks reported
+     */
+    public int push(@Nonnull double[] x, @Nonnull PeakListener listener) {
+        return push(x, 0, x.length, listener);
+    }
+
+    /**
+     * Pushes a chunk of samples.
+     *
+     * @param x        The array holding the samples
+     * @param offset   The index of the first sample in x
+     * @param length   The number of samples
+     * @param listener Called for every peak decided
+     * @return The number of peaks reported
+     */
+    public int push(@Nonnull double[] x, int offset, int length, @Nonnull PeakListener listener) {
+        int peaks = 0;
+        for (int i = offset; i < offset + length; i++) {
+            peaks += step(x[i], listener);
+        }
+
+        return peaks;
+    }
+
+    /**
+     * Ends the signal: reports the peaks that were only waiting for later peaks (within the minimum peak distance)
+     * and resets the detector.
+     *
+     * @param listener Called for every peak decided
+     * @return The number of peaks reported
+     */
+    public int finish(@Nonnull PeakListener listener) {
+        // Peaks still waiting for a low enough sample are not prominent enough
+        final int peaks = resolveCluster(clusterIndex.size(), listener);
+        reset();
+
+        return peaks;
+    }
+
+    private int step(double v, @Nonnull PeakListener listener) {
+        final long t = count++;
+        int peaks = 0;
+
+        // A rise followed by a plateau ends here
+        boolean start = t > 0 && !(v <= previous);
+        if (riseIndex >= 0) {
+            if (v == riseValue) {
+                start = false;
+            } else {
+                if (riseValue > v) {
+                    peaks += addPeak(riseIndex, riseValue, listener);
+                }
+                riseIndex = -1;
+            }
+        }
+
+        // Left sides; the first sample is the start of the left side of peaks without a higher peak on their left
+        if (t == 0) {
+            firstIsNaN = Double.isNaN(v);
+        }
+        final int stackSize = stackHeight.size();
+        if (stackSize > 0) {
+            if (v < stackMin.last()) {
+                stackMin.set(stackSize - 1, v);
+            }
+            if (v < checkMin) {
+                checkMin = v;
+            }
+
+            // Once an entry is lower than the next one by more than minPeakProminence, so are all peaks higher
+            // than the next one that end in the entry; accept it, merging it with the accepted bottom entry
+            int c = bottomAccepted ? stackFirst + 1 : stackFirst;
+            while (c + 1 < stackSize && stackHeight.get(c + 1) - checkMin > minPeakProminence) {
+                if (bottomAccepted) {
+                    stackHeight.set(c, stackHeight.get(stackFirst));
+                    stackMin.set(c, Math.min(stackMin.get(stackFirst), stackMin.get(c)));
+                    stackFirst++;
+                } else {
+                    bottomAccepted = true;
+                }
+                c = stackFirst + 1;
+                checkMin = Double.POSITIVE_INFINITY;
+                for (int i = c; i < stackSize; i++) {
+                    checkMin = Math.min(checkMin, stackMin.get(i));
+                }
+            }
+        } else if (v < baseMin) {
+            baseMin = v;
+        }
+
+        // Right sides
+        while (pendingFirst < pendingValue.size() && pendingValue.get(pendingFirst) - v > minPeakProminence) {
+            peaks += acceptPeak(pendingIndex.get(pendingFirst), pendingValue.get(pendingFirst), listener);
+            pendingFirst++;
+        }
+
+        if (start) {
+            riseIndex = t;
+            riseValue = v;
+        }
+        previous = v;
+
+        // Close the cluster when no later peak can be near it; peaks up to decided are all known
+        long decided = riseIndex >= 0 ? riseIndex - 1 : t;
+        if (pendingFirst < pendingIndex.size()) {
+            decided = Math.min(decided, pendingIndex.get(pendingFirst) - 1);
+        }
+        if (!clusterIndex.isEmpty() && decided + 1 - clusterIndex.last() > minPeakDistance) {
+            peaks += resolveCluster(clusterIndex.size(), listener);
+        }
+
+        // Otherwise resolve it up to the first peak that beats all peaks within minPeakDistance, once they are known
+        while (clusterScan < clusterIndex.size() && decided + 1 - clusterIndex.get(clusterScan) > minPeakDistance) {
+            if (clusterBeaten.get(clusterScan) != 0) {
+                clusterScan++;
+                continue;
+            }
+
+            // Its neighbours on the right are rejected, and later peaks are too far from it to matter
+            final long end = clusterIndex.get(clusterScan) + minPeakDistance;
+            int n = clusterScan + 1;
+            while (n < clusterIndex.size() && clusterIndex.get(n) <= end) {
+                n++;
+            }
+            peaks += resolveCluster(n, listener);
+        }
+
+        return peaks;
+    }
+
+    /**
+     * Handles a new peak (a local maximum), whose samples up to the previous one have been seen.
+     */
+    private int addPeak(long index, double value, @Nonnull PeakListener listener) {
+        if (minPeakProminence <= 0) {
+            return acceptPeak(index, value, listener);
+        }
+
+        // Left side: pop lower (or equal) peaks, merging their minima, down to the nearest higher peak
+        double m = Double.POSITIVE_INFINITY;
+        int stackSize = stackHeight.size();
+        while (stackSize > stackFirst && stackHeight.get(stackSize - 1) <= value) {
+            m = Math.min(m, stackMin.get(stackSize - 1));
+            stackSize--;
+        }
+        stackHeight.truncate(stackSize);
+        stackMin.truncate(stackSize);
+        final boolean left;
+        if (stackSize > stackFirst) {
+            final double top = Math.min(stackMin.get(stackSize - 1), m);
+            stackMin.set(stackSize - 1, top);
+            left = value - top > minPeakProminence || stackSize - 1 == stackFirst && bottomAccepted;
+
+            // All peaks ending at or below the nearest higher peak are then prominent enough on the left
+            if (left && stackSize - 1 > stackFirst) {
+                double min = top;
+                for (int i = stackFirst; i < stackSize - 1; i++) {
+                    min = Math.min(min, stackMin.get(i));
+                }
+                stackHeight.set(stackSize - 1, stackHeight.get(stackFirst));
+                stackMin.set(stackSize - 1, min);
+                stackFirst = stackSize - 1;
+                bottomAccepted = true;
+            }
+        } else {
+            baseMin = Math.min(baseMin, m);
+            left = !firstIsNaN && value - baseMin > minPeakProminence;
+            stackHeight.clear();
+            stackMin.clear();
+            stackFirst = 0;
+            bottomAccepted = false;
+        }
+
+        // Drop merged entries once they are the bulk of the buffers
+        if (stackFirst >= 16 && 2 * stackFirst >= stackHeight.size()) {
+            stackHeight.removeFirst(stackFirst);
+            stackMin.removeFirst(stackFirst);
+            stackFirst = 0;
+        }
+        stackHeight.add(value);
+        stackMin.add(Double.POSITIVE_INFINITY);
+        if ((bottomAccepted ? stackFirst + 1 : stackFirst) == stackHeight.size() - 1) {
+            // The lowest entry not accepted is the new one
+            checkMin = Double.POSITIVE_INFINITY;
+        }
+
+        // Right side: lower peaks waiting are not prominent enough, as this one comes first
+        int pendingSize = pendingValue.size();
+        while (pendingSize > pendingFirst && pendingValue.get(pendingSize - 1) < value) {
+            pendingSize--;
+        }
+        if (pendingSize == pendingFirst) {
+            pendingSize = 0;
+            pendingFirst = 0;
+        } else if (pendingFirst >= 16 && 2 * pendingFirst >= pendingSize) {
+            pendingIndex.removeFirst(pendingFirst);
+            pendingValue.removeFirst(pendingFirst);
+            pendingSize -= pendingFirst;
+            pendingFirst = 0;
+        }
+        pendingIndex.truncate(pendingSize);
+        pendingValue.truncate(pendingSize);
+        if (left) {
+            pendingIndex.add(index);
+            pendingValue.add(value);
+        }
+
+        return 0;
+    }
+
+    /**
+     * Handles a peak that is prominent enough, in order of index.
+     */
+    private int acceptPeak(long index, double value, @Nonnull PeakListener listener) {
+        if (minPeakDistance <= 0) {
+            listener.onPeak(index, value);
+            return 1;
+        }
+
+        // Peaks further than minPeakDistance from the cluster cannot affect it
+        int peaks = 0;
+        if (!clusterIndex.isEmpty() && index - clusterIndex.last() > minPeakDistance) {
+            peaks += resolveCluster(clusterIndex.size(), listener);
+        }
+
+        // Earlier peaks that this one beats, down to the nearest one that beats it
+        boolean beaten = false;
+        while (!clusterStack.isEmpty()) {
+            final int top = clusterStack.last();
+            final boolean near = index - clusterIndex.get(top) <= minPeakDistance;
+            if (Double.compare(value, clusterValue.get(top)) <= 0) {
+                beaten = near;
+                break;
+            }
+            if (near) {
+                clusterBeaten.set(top, 1);
+            }
+            clusterStack.truncate(clusterStack.size() - 1);
+        }
+        clusterStack.add(clusterIndex.size());
+        clusterIndex.add(index);
+        clusterValue.add(value);
+        clusterBeaten.add(beaten ? 1 : 0);
+
+        return peaks;
+    }
+
+    /**
+     * Enforces the minimum peak distance on the first n peaks of the cluster, which no later peak can affect,
+     * reports those that remain and removes all n.
+     */
+    private int resolveCluster(int n, @Nonnull PeakListener listener) {
+        if (n == 0) {
+            return 0;
+        }
+
+        clusterOffset.clear();
+        for (int i = 0; i < n; i++) {
+            clusterOffset.add((int) (clusterIndex.get(i) - clusterIndex.get(0)));
+        }
+        final int[] keep = DSP.selectByPeakDistance(clusterOffset.array(), clusterValue.array(), n, minPeakDistance);
+        for (int k : keep) {
+            listener.onPeak(clusterIndex.get(k), clusterValue.get(k));
+        }
+
+        clusterIndex.removeFirst(n);
+        clusterValue.removeFirst(n);
+        clusterBeaten.removeFirst(n);
+        int s = 0;
+        while (s < clusterStack.size() && clusterStack.get(s) < n) {
+            s++;
+        }
+        clusterStack.removeFirst(s);
+        for (int i = 0; i < clusterStack.size(); i++) {
+            clusterStack.set(i, clusterStack.get(i) - n);
+        }
+        clusterScan = 0;
+
+        return keep.length;
+    }
+}
@@ -0,0 +1,42 @@
+package gr.auth.ee.mug.matlabports;
+
+import javax.annotation.Nonnull;
+
+
+/**
+ * Peaks found by {@link DSP#findPeaksWithProperties(double[], int, double)}, with their properties.
+ * <p>
+ * Element i of each array refers to the same peak.
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public final class Peaks {
+
+    /**
+     * Indices of the peaks, in increasing order.
+     */
+    @Nonnull
+    public final int[] indices;
+    /**
+     * Prominence of each peak.
+     */
+    @Nonnull
+    public final double[] prominences;
+    /**
+     * Width of each peak (in samples), at half its prominence.
+     */
+    @Nonnull
+    public final double[] widths;
+
+    Peaks(@Nonnull int[] indices, @Nonnull double[] prominences, @Nonnull double[] widths) {
+        this.indices = indices;
+        this.prominences = prominences;
+        this.widths = widths;
+    }
+
+    /**
+     * @return The number of peaks.
+     */
+    public int size() {
+        return indices.length;
+    }
+}
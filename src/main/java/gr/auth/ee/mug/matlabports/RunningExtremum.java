@@ -0,0 +1,131 @@
+package gr.auth.ee.mug.matlabports;
+
+import javax.annotation.Nonnull;
+
+
+/**
+ * Running maximum and minimum over a sliding window, used by the morphological functions of {@link DSP}.
+ * <p>
+ * The window of output {@code i} is {@code x[lo:hi]} (inclusive), where:
+ * <ul>
+ * <li>{@code lo = i - nl} and {@code hi = n - 1} for the last {@code m} items,</li>
+ * <li>{@code lo = 0} and {@code hi = i + nr} for the first {@code m} items,</li>
+ * <li>{@code lo = i - nl} and {@code hi = i + nr} for the rest,</li>
+ * </ul>
+ * which is exactly how {@link DSP#dil1d(double[], double[], int, boolean)} and
+ * {@link DSP#ero1d(double[], double[], int, boolean)} treat the edges. Both window ends are non-decreasing in
+ * {@code i}, so a monotonic deque of indices gives every output in amortised O(1), i.e. O(n) in total regardless of
+ * {@code m}.
+ * <p>
+ * The deque is kept in a caller-supplied {@code int[]} of length at least {@code n}; each index enters it at most
+ * once, so no wrap-around is needed.
+ * <p>
+ * NaN handling follows {@link CommonFunctions#maxIdx(double[], int, int)}: the result is NaN if the first item of
+ * the window is NaN, otherwise NaN items are ignored. Ties also follow it: an item is dropped from the deque only by a
+ * strictly larger (smaller) one, so the first of equal items is kept, which matters for -0.0 and 0.0.
+ */
+final class RunningExtremum {
+
+    /**
+     * Running maximum.
+     *
+     * @param x     The input array.
+     * @param y     The output array (same length as x).
+     * @param m     The length of the edge regions.
+     * @param nl    Number of items on the left of the current one.
+     * @param nr    Number of items on the right of the current one.
+     * @param queue Scratch buffer of length at least x.length.
+     */
+    static void max(@Nonnull double[] x, @Nonnull double[] y, int m, int nl, int nr, @Nonnull int[] queue) {
+        final int n = x.length;
+        int head = 0;
+        int tail = 0;
+        int next = 0;
+
+        for (int i = 0; i < n; i++) {
+            // Window of the current item
+            final int lo;
+            final int hi;
+            if (i >= n - m) {
+                lo = i - nl;
+                hi = n - 1;
+            } else if (i < m) {
+                lo = 0;
+                hi = i + nr;
+            } else {
+                lo = i - nl;
+                hi = i + nr;
+            }
+
+            // Push new items, dropping the ones that can no longer be the maximum
+            while (next <= hi) {
+                final double v = x[next];
+                while (tail > head && (x[queue[tail - 1]] < v || Double.isNaN(x[queue[tail - 1]]))) {
+                    tail--;
+                }
+                queue[tail++] = next++;
+            }
+
+            // Drop the items that left the window
+            while (head < tail && queue[head] < lo) {
+                head++;
+            }
+
+            final double first = x[lo];
+            y[i] = head == tail || Double.isNaN(first) ? first : x[queue[head]];
+        }
+    }
+
+    /**
+     * Running minimum.
+     *
+     * @param x     The input array.
+     * @param y     The output array (same length as x).
+     * @param m     The length of the edge regions.
+     * @param nl    Number of items on the left of the current one.
+     * @param nr    Number of items on the right of the current one.
+     * @param queue Scratch buffer of length at least x.length.
+     */
+    static void min(@Nonnull double[] x, @Nonnull double[] y, int m, int nl, int nr, @Nonnull int[] queue) {
+        final int n = x.length;
+        int head = 0;
+        int tail = 0;
+        int next = 0;
+
+        for (int i = 0; i < n; i++) {
+            // Window of the current item
+            final int lo;
+            final int hi;
+            if (i >= n - m) {
+                lo = i - nl;
+                hi = n - 1;
+            } else if (i < m) {
+                lo = 0;
+                hi = i + nr;
+            } else {
+                lo = i - nl;
+                hi = i + nr;
+            }
+
+            // Push new items, dropping the ones that can no longer be the minimum
+            while (next <= hi) {
+                final double v = x[next];
+                while (tail > head && (x[queue[tail - 1]] > v || Double.isNaN(x[queue[tail - 1]]))) {
+                    tail--;
+                }
+                queue[tail++] = next++;
+            }
+
+            // Drop the items that left the window
+            while (head < tail && queue[head] < lo) {
+                head++;
+            }
+
+            final double first = x[lo];
+            y[i] = head == tail || Double.isNaN(first) ? first : x[queue[head]];
+        }
+    }
+
+    private RunningExtremum() {
+    }
+}
@@ -0,0 +1,398 @@
+package gr.auth.ee.mug.matlabports;
+
+import org.apache.commons.math3.analysis.solvers.LaguerreSolver;
+import org.apache.commons.math3.complex.Complex;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.annotation.Nonnull;
+
+import gr.auth.ee.mug.matlabports.exceptions.BadArrayLengthException;
+import gr.auth.ee.mug.matlabports.exceptions.LengthMismatchException;
+
+import static gr.auth.ee.mug.matlabports.Checks.checkEqualLength;
+
+
+/**
+ * IIR filter implemented as a cascade of second-order sections (biquads) in transposed direct form II.
+ * <p>
+ * Compared to {@link IIRFilter}, which evaluates the whole transfer function directly, a cascade of biquads is
+ * numerically stable for high-order filters. Blocks are processed one section at a time, so the five coefficients
+ * and the two state variables of a section stay in registers for the whole block.
+ * <p>
+ * MATLAB:
+ * <pre>{@code y = sosfilt(sos, x);}</pre>
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public class SOSFilter {
+
+    /**
+     * Tolerance used to tell real roots from complex ones.
+     */
+    private static final double ROOT_TOLERANCE = 1e-8;
+
+    private final int sections;
+    @Nonnull
+    private final double[] b0;
+    @Nonnull
+    private final double[] b1;
+    @Nonnull
+    private final double[] b2;
+    @Nonnull
+    private final double[] a1;
+    @Nonnull
+    private final double[] a2;
+    @Nonnull
+    private final double[] s1;
+    @Nonnull
+    private final double[] s2;
+
+    /**
+     * Creates a filter from a matrix of second-order sections. Each row is {@code [b0 b1 b2 a0 a1 a2]}; rows are
+     * normalised by their a0.
+     *
+     * @param sos The second-order sections
+     */
+    public SOSFilter(@Nonnull double[][] sos) throws BadArrayLengthException {
+        this(sos, 1);
+    }
+
+    /**
+     * Creates a filter from a matrix of second-order sections and a gain.
+     * <p>
+     * MATLAB:
+     * <pre>{@code [sos, g] = tf2sos(b, a);}</pre>
+     *
+     * @param sos  The second-order sections; each row is {@code [b0 b1 b2 a0 a1 a2]}
+     * @param gain The gain, applied to the first section
+     */
+    public SOSFilter(@Nonnull double[][] sos, double gain) throws BadArrayLengthException {
+        if (sos.length < 1) {
+            throw new BadArrayLengthException("Number of sections=" + sos.length);
+        }
+
+        sections = sos.length;
+        b0 = new double[sections];
+        b1 = new double[sections];
+        b2 = new double[sections];
+        a1 = new double[sections];
+        a2 = new double[sections];
+        s1 = new double[sections];
+        s2 = new double[sections];
+
+        for (int k = 0; k < sections; k++) {
+            final double[] row = sos[k];
+            if (row.length != 6) {
+                throw new BadArrayLengthException("Length of section " + k + "=" + row.length + " (should be 6)");
+            }
+            if (row[3] == 0) {
+                throw new IllegalArgumentException("Coefficient a0 of section " + k + " should be non-zero");
+            }
+            final double g = k == 0 ? gain / row[3] : 1 / row[3];
+            b0[k] = row[0] * g;
+            b1[k] = row[1] * g;
+            b2[k] = row[2] * g;
+            a1[k] = row[4] / row[3];
+            a2[k] = row[5] / row[3];
+        }
+
+        reset();
+    }
+
+    /**
+     * Creates a filter from the coefficients of a transfer function, by factoring it into second-order sections.
+     * Poles closest to the unit circle are paired with the zeros closest to them, and sections are ordered with the
+     * poles farthest from the unit circle first (MATLAB's default 'up' ordering). The coefficients are normalised by
+     * a[0].
+     *
+     * @param b The numerator coefficients
+     * @param a The denominator coefficients
+     */
+    public SOSFilter(@Nonnull double[] b, @Nonnull double[] a) throws BadArrayLengthException {
+        this(tf2sos(b, a));
+    }
+
+    /**
+     * Zeroes the state of all sections.
+     */
+    public void reset() {
+        Arrays.fill(s1, 0);
+        Arrays.fill(s2, 0);
+    }
+
+    /**
+     * Filters a block of any length. The output array can be the input array itself.
+     *
+     * @param x The input
+     * @param y The output
+     */
+    public void apply(@Nonnull double[] x, @Nonnull double[] y) throws LengthMismatchException {
+        checkEqualLength(x, y);
+
+        double[] in = x;
+        for (int k = 0; k < sections; k++) {
+            final double cb0 = b0[k];
+            final double cb1 = b1[k];
+            final double cb2 = b2[k];
+            final double ca1 = a1[k];
+            final double ca2 = a2[k];
+            double z1 = s1[k];
+            double z2 = s2[k];
+
+            for (int i = 0; i < in.length; i++) {
+                final double xi = in[i];
+                final double yi = cb0 * xi + z1;
+                z1 = cb1 * xi - ca1 * yi + z2;
+                z2 = cb2 * xi - ca2 * yi;
+                y[i] = yi;
+            }
+
+            s1[k] = z1;
+            s2[k] = z2;
+
+            // The following sections work in place
+            in = y;
+        }
+    }
+
+    /**
+     * Filters a single sample.
+     *
+     * @param x The input sample
+     * @return The output sample
+     */
+    public double step(double x) {
+        for (int k = 0; k < sections; k++) {
+            final double y = b0[k] * x + s1[k];
+            s1[k] = b1[k] * x - a1[k] * y + s2[k];
+            s2[k] = b2[k] * x - a2[k] * y;
+            x = y;
+        }
+
+        return x;
+    }
+
+    /**
+     * @return The number of sections.
+     */
+    public int getSections() {
+        return sections;
+    }
+
+    /**
+     * @return The (normalised) second-order sections, as rows {@code [b0 b1 b2 1 a1 a2]}, with the gain in the first.
+     */
+    @Nonnull
+    public double[][] getSOS() {
+        final double[][] sos = new double[sections][];
+        for (int k = 0; k < sections; k++) {
+            sos[k] = new double[]{b0[k], b1[k], b2[k], 1, a1[k], a2[k]};
+        }
+
+        return sos;
+    }
+
+    /**
+     * Factors a transfer function into second-order sections.
+     *
+     * @param b The numerator coefficients
+     * @param a The denominator coefficients
+     * @return The sections, as rows {@code [b0 b1 b2 a0 a1 a2]}, with the gain in the first section
+     */
+    @Nonnull
+    static double[][] tf2sos(@Nonnull double[] b, @Nonnull double[] a) throws BadArrayLengthException {
+        if (b.length < 1) {
+            throw new BadArrayLengthException("Length of b=" + b.length);
+        }
+        if (a.length < 1) {
+            throw new BadArrayLengthException("Length of a=" + a.length);
+        }
+        if (a[0] == 0) {
+            throw new IllegalArgumentException("First denominator coefficient should be non-zero");
+        }
+
+        // Leading zeros of b are pure delays, i.e. factors (0 + z^-1)
+        int delays = 0;
+        while (delays < b.length && b[delays] == 0) {
+            delays++;
+        }
+        if (delays == b.length) {
+            return new double[][]{{0, 0, 0, 1, 0, 0}};
+        }
+        final double gain = b[delays] / a[0];
+
+        // First- and second-order factors, in powers of z^-1, with unit constant term
+        final List<double[]> zeros = factors(Arrays.copyOfRange(b, delays, b.length));
+        final List<double[]> poles = factors(a);
+        for (int i = 0; i < delays; i++) {
+            zeros.add(new double[]{0, 1});
+        }
+
+        final List<double[]> zeroSections = secondOrder(zeros);
+        final List<double[]> poleSections = secondOrder(poles);
+
+        // Sections are formed starting from the poles closest to the unit circle
+        poleSections.sort((p, q) -> Double.compare(radius(q), radius(p)));
+        final int n = Math.max(1, Math.max(zeroSections.size(), poleSections.size()));
+        final double[][] sos = new double[n][];
+        for (int k = 0; k < n; k++) {
+            final double[] den = k < poleSections.size() ? poleSections.get(k) : new double[]{1, 0, 0};
+
+            // Closest zero section, if any is left
+            double[] num = new double[]{1, 0, 0};
+            int best = -1;
+            double bestDistance = Double.POSITIVE_INFINITY;
+            for (int j = 0; j < zeroSections.size(); j++) {
+                final double d = distance(zeroSections.get(j), den);
+                if (best < 0 || d < bestDistance) {
+                    best = j;
+                    bestDistance = d;
+                }
+            }
+            if (best >= 0) {
+                num = zeroSections.remove(best);
+            }
+
+            // 'up' ordering: poles farthest from the unit circle first
+            sos[n - 1 - k] = new double[]{num[0], num[1], num[2], den[0], den[1], den[2]};
+        }
+
+        for (int i = 0; i < 3; i++) {
+            sos[0][i] *= gain;
+        }
+
+        return sos;
+    }
+
+    /**
+     * Factors a polynomial in z^-1 with non-zero constant term into real first-order factors {@code [1, -r]} and
+     * second-order factors {@code [1, -2 Re(r), |r|^2]} of complex conjugate roots.
+     */
+    @Nonnull
+    private static List<double[]> factors(@Nonnull double[] p) {
+        // Drop trailing zeros (roots at z = 0 give unit factors)
+        int m = p.length - 1;
+        while (m > 0 && p[m] == 0) {
+            m--;
+        }
+
+        final List<double[]> factors = new ArrayList<>();
+        if (m == 0) {
+            return factors;
+        }
+
+        // Roots in z of p[0] z^m + p[1] z^(m-1) + ... + p[m]
+        final double[] c = new double[m + 1];
+        for (int j = 0; j <= m; j++) {
+            c[j] = p[m - j];
+        }
+        final List<Complex> roots = new ArrayList<>(Arrays.asList(new LaguerreSolver().solveAllComplex(c, 0)));
+
+        // Complex roots are paired with the root closest to their conjugate; multiple roots are found with limited
+        // accuracy, so the pairs are not exact conjugates
+        while (true) {
+            int i = -1;
+            for (int j = 0; j < roots.size(); j++) {
+                final double im = Math.abs(roots.get(j).getImaginary());
+                if (im > ROOT_TOLERANCE * (1 + roots.get(j).abs())
+                        && (i < 0 || im > Math.abs(roots.get(i).getImaginary()))) {
+                    i = j;
+                }
+            }
+            if (i < 0) {
+                break;
+            }
+            final Complex r = roots.remove(i);
+
+            int k = 0;
+            for (int j = 1; j < roots.size(); j++) {
+                if (roots.get(j).subtract(r.conjugate()).abs() < roots.get(k).subtract(r.conjugate()).abs()) {
+                    k = j;
+                }
+            }
+            final Complex q = roots.remove(k);
+
+            factors.add(new double[]{1, -r.add(q).getReal(), r.multiply(q).getReal()});
+        }
+
+        final List<double[]> real = new ArrayList<>();
+        for (Complex r : roots) {
+            real.add(new double[]{1, -r.getReal()});
+        }
+
+        // Real roots are paired by value
+        real.sort((f, g) -> Double.compare(g[1], f[1]));
+        factors.addAll(real);
+
+        return factors;
+    }
+
+    /**
+     * Combines first-order factors in pairs, so that all factors are second-order ({@code [c0, c1, c2]}).
+     */
+    @Nonnull
+    private static List<double[]> secondOrder(@Nonnull List<double[]> factors) {
+        final List<double[]> sections = new ArrayList<>();
+        double[] pending = null;
+        for (double[] f : factors) {
+            if (f.length == 3) {
+                sections.add(f);
+            } else if (pending == null) {
+                pending = f;
+            } else {
+                sections.add(new double[]{
+                        pending[0] * f[0], pending[0] * f[1] + pending[1] * f[0], pending[1] * f[1]});
+                pending = null;
+            }
+        }
+        if (pending != null) {
+            sections.add(new double[]{pending[0], pending[1], 0});
+        }
+
+        return sections;
+    }
+
+    /**
+     * Largest root magnitude of a second-order factor {@code c0 + c1 z^-1 + c2 z^-2}.
+     */
+    private static double radius(@Nonnull double[] f) {
+        final Complex[] r = roots(f);
+        return Math.max(r[0].abs(), r[1].abs());
+    }
+
+    /**
+     * Smallest distance between the roots of two second-order factors.
+     */
+    private static double distance(@Nonnull double[] f, @Nonnull double[] g) {
+        final Complex[] r = roots(f);
+        final Complex[] s = roots(g);
+        double d = Double.POSITIVE_INFINITY;
+        for (Complex ri : r) {
+            for (Complex si : s) {
+                if (!ri.isInfinite() && !si.isInfinite()) {
+                    d = Math.min(d, ri.subtract(si).abs());
+                }
+            }
+        }
+
+        return d;
+    }
+
+    /**
+     * Roots (in z) of a second-order factor {@code c0 + c1 z^-1 + c2 z^-2}, i.e. of {@code c0 z^2 + c1 z + c2}.
+     * Factors of lower order have roots at zero (or at infinity, for pure delays).
+     */
+    @Nonnull
+    private static Complex[] roots(@Nonnull double[] f) {
+        if (f[0] == 0) {
+            final Complex inf = new Complex(Double.POSITIVE_INFINITY, 0);
+            return new Complex[]{inf, f[1] == 0 ? inf : new Complex(-f[2] / f[1], 0)};
+        }
+        final double p = f[1] / f[0];
+        final double q = f[2] / f[0];
+        final Complex d = new Complex(p * p / 4 - q, 0).sqrt();
+        return new Complex[]{d.subtract(p / 2), d.negate().subtract(p / 2)};
+    }
+}
@@ -0,0 +1,145 @@
+package gr.auth.ee.mug.matlabports;
+
+import java.util.Arrays;
+
+import javax.annotation.Nonnull;
+
+
+/**
+ * Selection of order statistics in O(n) expected time (introselect).
+ * <p>
+ * Arrays are partially sorted in place: after selecting rank k of a range, item k holds the value that a full sort
+ * would put there, items before it are not greater and items after it are not smaller. Quickselect with a
+ * median-of-3 pivot and three-way partitioning (so that repeated values cost nothing) falls back to
+ * {@link Arrays#sort(double[], int, int)} if the recursion gets too deep, so the worst case is O(n log n).
+ * <p>
+ * NaN values are not comparable; the methods assume there are none (see {@link #moveNaNsLast(double[], int, int)}).
+ */
+final class Selection {
+
+    /**
+     * Ranges up to this length are sorted by insertion.
+     */
+    private static final int INSERTION_SORT_LENGTH = 16;
+
+    private Selection() {
+    }
+
+    /**
+     * Moves the NaN values of a range to its end, as {@link Arrays#sort(double[])} does.
+     *
+     * @param a    The array
+     * @param from The first index of the range (inclusive)
+     * @param to   The last index of the range (exclusive)
+     * @return The end of the values that are not NaN
+     */
+    static int moveNaNsLast(@Nonnull double[] a, int from, int to) {
+        int end = to;
+        for (int i = from; i < end; i++) {
+            if (Double.isNaN(a[i])) {
+                end--;
+                a[i] = a[end];
+                a[end] = Double.NaN;
+                i--;
+            }
+        }
+
+        return end;
+    }
+
+    /**
+     * Partially sorts a range so that item k holds the value of rank k.
+     *
+     * @param a    The array, without NaN values in the range
+     * @param from The first index of the range (inclusive)
+     * @param to   The last index of the range (exclusive)
+     * @param k    The rank, from <= k < to
+     */
+    static void select(@Nonnull double[] a, int from, int to, int k) {
+        select(a, from, to, new int[]{k}, 0, 1, depthLimit(to - from));
+    }
+
+    /**
+     * Partially sorts a range so that each item in ranks holds the value of its rank, in a single pass.
+     *
+     * @param a     The array, without NaN values in the range
+     * @param from  The first index of the range (inclusive)
+     * @param to    The last index of the range (exclusive)
+     * @param ranks The ranks, in increasing order, from <= ranks[i] < to
+     */
+    static void select(@Nonnull double[] a, int from, int to, @Nonnull int[] ranks) {
+        select(a, from, to, ranks, 0, ranks.length, depthLimit(to - from));
+    }
+
+    private static int depthLimit(int n) {
+        return 2 * (32 - Integer.numberOfLeadingZeros(n));
+    }
+
+    private static void select(@Nonnull double[] a, int from, int to, @Nonnull int[] ranks, int r1, int r2,
+                               int depth) {
+        while (r1 < r2) {
+            if (to - from <= INSERTION_SORT_LENGTH) {
+                insertionSort(a, from, to);
+                return;
+            }
+            if (depth-- == 0) {
+                Arrays.sort(a, from, to);
+                return;
+            }
+
+            // Partition around the median of the first, middle and last items:
+            // a[from, lt) < pivot, a[lt, gt) == pivot, a(gt, to) > pivot
+            final double pivot = median3(a[from], a[(from + to) >>> 1], a[to - 1]);
+            int lt = from;
+            int gt = to;
+            int i = from;
+            while (i < gt) {
+                final double v = a[i];
+                if (v < pivot) {
+                    a[i++] = a[lt];
+                    a[lt++] = v;
+                } else if (v > pivot) {
+                    a[i] = a[--gt];
+                    a[gt] = v;
+                } else {
+                    i++;
+                }
+            }
+
+            // Ranks below lt are on the left, ranks from gt on are on the right, the rest are in place
+            int s1 = r1;
+            while (s1 < r2 && ranks[s1] < lt) {
+                s1++;
+            }
+            int s2 = s1;
+            while (s2 < r2 && ranks[s2] < gt) {
+                s2++;
+            }
+
+            // Recurse into the left part and continue with the right one
+            select(a, from, lt, ranks, r1, s1, depth);
+            from = gt;
+            r1 = s2;
+        }
+    }
+
+    private static double median3(double a, double b, double c) {
+        if (a < b) {
+            return b < c ? b : Math.max(a, c);
+        } else {
+            return a < c ? a : Math.max(b, c);
+        }
+    }
+
+    private static void insertionSort(@Nonnull double[] a, int from, int to) {
+        for (int i = from + 1; i < to; i++) {
+            final double v = a[i];
+            int j = i - 1;
+            while (j >= from && a[j] > v) {
+                a[j + 1] = a[j];
+                j--;
+            }
+            a[j + 1] = v;
+        }
+    }
+}
@@ -1,7 +1,11 @@
 package gr.auth.ee.mug.matlabports;
 
+import java.util.Arrays;
+import java.util.function.DoublePredicate;
+
 import javax.annotation.Nonnull;
 
+import gr.auth.ee.mug.matlabports.exceptions.BadArrayLengthException;
 import gr.auth.ee.mug.matlabports.exceptions.LengthMismatchException;
 
 import static gr.auth.ee.mug.matlabports.Checks.checkEqualLength;
@@ -83,6 +87,20 @@ public final class SelectorsSetters {
         return idx;
     }
 
+    /**
+     * Converts a mask to an index selector.
+     * <p>
+     * MATLAB:
+     * <pre>{@code idx = find(m);}</pre>
+     *
+     * @param m The mask.
+     * @return The indices of the true items.
+     */
+    @Nonnull
+    public static int[] find(@Nonnull Mask m) {
+        return m.find();
+    }
+
     /**
      * Select from an array using a generated index. Negative steps are supported.
      * <p>
@@ -110,6 +128,9 @@ public final class SelectorsSetters {
      * MATLAB:
      * <pre>{@code y = x(start:step:stop);}</pre>
      * Note - you can use {@code END} as MATLAB's end.
+     * <p>
+     * Items are returned in increasing index order, also for negative steps; use
+     * {@link DoubleView#of(double[], int, int, int)} to work on the range without copying it.
      *
      * @param x     The array to select from.
      * @param start The index of the first item to be selected.
@@ -121,8 +142,8 @@ public final class SelectorsSetters {
     @Nonnull
     public static double[] select(@Nonnull double[] x, int start, int step, int stop)
             throws LengthMismatchException {
-        final boolean[] selector = createSelector(start, step, stop, x.length);
-        return select(x, selector);
+        final DoubleView v = DoubleView.of(x, start, step, stop);
+        return (step < 0 ? v.flip() : v).toArray();
     }
 
     /**
@@ -250,6 +271,292 @@ public final class SelectorsSetters {
         return y;
     }
 
+    /**
+     * Select from an array using a mask.
+     * <p>
+     * MATLAB:
+     * <pre>{@code y = x(m);}</pre>
+     *
+     * @param x The array to select from.
+     * @param m A mask.
+     * @return The selected items.
+     */
+    @Nonnull
+    public static double[] select(@Nonnull double[] x, @Nonnull Mask m) throws LengthMismatchException {
+        checkMaskLength(x.length, m);
+
+        final long[] words = m.words();
+        final double[] y = new double[m.count()];
+        int p = 0;
+        for (int w = 0; w < words.length; w++) {
+            long word = words[w];
+            while (word != 0) {
+                y[p++] = x[(w << 6) + Long.numberOfTrailingZeros(word)];
+                word &= word - 1;
+            }
+        }
+
+        return y;
+    }
+
+    /**
+     * Select from an array using a mask.
+     * <p>
+     * MATLAB:
+     * <pre>{@code y = x(m);}</pre>
+     *
+     * @param x The array to select from.
+     * @param m A mask.
+     * @return The selected items.
+     */
+    @Nonnull
+    public static int[] select(@Nonnull int[] x, @Nonnull Mask m) throws LengthMismatchException {
+        checkMaskLength(x.length, m);
+
+        final long[] words = m.words();
+        final int[] y = new int[m.count()];
+        int p = 0;
+        for (int w = 0; w < words.length; w++) {
+            long word = words[w];
+            while (word != 0) {
+                y[p++] = x[(w << 6) + Long.numberOfTrailingZeros(word)];
+                word &= word - 1;
+            }
+        }
+
+        return y;
+    }
+
+    /**
+     * Select from an array using a mask.
+     * <p>
+     * MATLAB:
+     * <pre>{@code y = x(m);}</pre>
+     *
+     * @param x The array to select from.
+     * @param m A mask.
+     * @return The selected items.
+     */
+    @Nonnull
+    public static long[] select(@Nonnull long[] x, @Nonnull Mask m) throws LengthMismatchException {
+        checkMaskLength(x.length, m);
+
+        final long[] words = m.words();
+        final long[] y = new long[m.count()];
+        int p = 0;
+        for (int w = 0; w < words.length; w++) {
+            long word = words[w];
+            while (word != 0) {
+                y[p++] = x[(w << 6) + Long.numberOfTrailingZeros(word)];
+                word &= word - 1;
+            }
+        }
+
+        return y;
+    }
+
+    /**
+     * Select the items of an array that satisfy a condition, in a single pass.
+     * <p>
+     * MATLAB:
+     * <pre>{@code y = x(p(x));}</pre>
+     *
+     * @param x The array to select from.
+     * @param p The condition.
+     * @return The selected items.
+     */
+    @Nonnull
+    public static double[] selectWhere(@Nonnull double[] x, @Nonnull DoublePredicate p) {
+        final DoubleArrayBuffer y = new DoubleArrayBuffer();
+        selectWhere(x, p, y);
+
+        return y.toArray();
+    }
+
+    /**
+     * Select the items of an array that satisfy a condition, in a single pass.
+     * <p>
+     * MATLAB:
+     * <pre>{@code y = [y, x(p(x))];}</pre>
+     *
+     * @param x The array to select from.
+     * @param p The condition.
+     * @param y The buffer to append the selected items to.
+     */
+    public static void selectWhere(@Nonnull double[] x, @Nonnull DoublePredicate p, @Nonnull DoubleArrayBuffer y) {
+        for (double v : x) {
+            if (p.test(v)) {
+                y.add(v);
+            }
+        }
+    }
+
+    /**
+     * Select the items of an array that are greater than a value, without an intermediate selector.
+     * <p>
+     * MATLAB:
+     * <pre>{@code y = x(x > v);}</pre>
+     *
+     * @param x The array to select from.
+     * @param v The value to compare to.
+     * @return The selected items.
+     */
+    @Nonnull
+    public static double[] selectMore(@Nonnull double[] x, double v) {
+        return selectRangeExact(x, v, Double.NaN);
+    }
+
+    /**
+     * Select the items of an array that are greater than a value, in a single pass.
+     * <p>
+     * MATLAB:
+     * <pre>{@code z = x(x > v);
+     * y(1:length(z)) = z;}</pre>
+     *
+     * @param x The array to select from.
+     * @param v The value to compare to.
+     * @param y The output array, at least as long as x.
+     * @return The number of selected items, written to the start of y.
+     */
+    public static int selectMore(@Nonnull double[] x, double v, @Nonnull double[] y) throws BadArrayLengthException {
+        checkOutputLength(x, y);
+
+        return selectRange(x, 0, x.length, v, Double.NaN, y);
+    }
+
+    /**
+     * Select the items of an array that are less than a value, without an intermediate selector.
+     * <p>
+     * MATLAB:
+     * <pre>{@code y = x(x < v);}</pre>
+     *
+     * @param x The array to select from.
+     * @param v The value to compare to.
+     * @return The selected items.
+     */
+    @Nonnull
+    public static double[] selectLess(@Nonnull double[] x, double v) {
+        return selectRangeExact(x, Double.NaN, v);
+    }
+
+    /**
+     * Select the items of an array that are less than a value, in a single pass.
+     * <p>
+     * MATLAB:
+     * <pre>{@code z = x(x < v);
+     * y(1:length(z)) = z;}</pre>
+     *
+     * @param x The array to select from.
+     * @param v The value to compare to.
+     * @param y The output array, at least as long as x.
+     * @return The number of selected items, written to the start of y.
+     */
+    public static int selectLess(@Nonnull double[] x, double v, @Nonnull double[] y) throws BadArrayLengthException {
+        checkOutputLength(x, y);
+
+        return selectRange(x, 0, x.length, Double.NaN, v, y);
+    }
+
+    /**
+     * Select the items of an array that are in an open interval, without an intermediate selector.
+     * <p>
+     * MATLAB:
+     * <pre>{@code y = x(x > lo & x < hi);}</pre>
+     *
+     * @param x  The array to select from.
+     * @param lo The lower limit (exclusive).
+     * @param hi The upper limit (exclusive).
+     * @return The selected items.
+     */
+    @Nonnull
+    public static double[] selectRange(@Nonnull double[] x, double lo, double hi) {
+        if (Double.isNaN(lo) || Double.isNaN(hi)) {
+            return new double[0];
+        }
+
+        return selectRangeExact(x, lo, hi);
+    }
+
+    /**
+     * Select the items of an array that are in an open interval, in a single pass.
+     * <p>
+     * MATLAB:
+     * <pre>{@code z = x(x > lo & x < hi);
+     * y(1:length(z)) = z;}</pre>
+     *
+     * @param x  The array to select from.
+     * @param lo The lower limit (exclusive).
+     * @param hi The upper limit (exclusive).
+     * @param y  The output array, at least as long as x.
+     * @return The number of selected items, written to the start of y.
+     */
+    public static int selectRange(@Nonnull double[] x, double lo, double hi, @Nonnull double[] y)
+            throws BadArrayLengthException {
+        checkOutputLength(x, y);
+        if (Double.isNaN(lo) || Double.isNaN(hi)) {
+            return 0;
+        }
+
+        return selectRange(x, 0, x.length, lo, hi, y);
+    }
+
+    /**
+     * Count the items of an array that satisfy a condition.
+     * <p>
+     * MATLAB:
+     * <pre>{@code n = nnz(p(x));}</pre>
+     *
+     * @param x The input array.
+     * @param p The condition.
+     * @return The number of items that satisfy p.
+     */
+    public static int countWhere(@Nonnull double[] x, @Nonnull DoublePredicate p) {
+        int n = 0;
+        for (double v : x) {
+            if (p.test(v)) {
+                n++;
+            }
+        }
+
+        return n;
+    }
+
+    /**
+     * Find the items of an array that satisfy a condition, in a single pass.
+     * <p>
+     * MATLAB:
+     * <pre>{@code idx = find(p(x));}</pre>
+     *
+     * @param x The input array.
+     * @param p The condition.
+     * @return The indices of the items that satisfy p.
+     */
+    @Nonnull
+    public static int[] findWhere(@Nonnull double[] x, @Nonnull DoublePredicate p) {
+        final IntArrayBuffer idx = new IntArrayBuffer();
+        findWhere(x, p, idx);
+
+        return idx.toArray();
+    }
+
+    /**
+     * Find the items of an array that satisfy a condition, in a single pass.
+     * <p>
+     * MATLAB:
+     * <pre>{@code idx = [idx, find(p(x))];}</pre>
+     *
+     * @param x   The input array.
+     * @param p   The condition.
+     * @param idx The buffer to append the indices of the items that satisfy p to.
+     */
+    public static void findWhere(@Nonnull double[] x, @Nonnull DoublePredicate p, @Nonnull IntArrayBuffer idx) {
+        for (int i = 0; i < x.length; i++) {
+            if (p.test(x[i])) {
+                idx.add(i);
+            }
+        }
+    }
+
     /**
      * Select from an array using an index selector.
      * <p>
@@ -385,6 +692,34 @@ public final class SelectorsSetters {
         }
     }
 
+    /**
+     * Set part of an array to a single value. Operation is <b>in place</b>.
+     * <p>
+     * MATLAB:
+     * <pre>{@code x(m) = v;}</pre>
+     *
+     * @param x The array to modify.
+     * @param m A mask.
+     * @param v The value to set selected values
+     */
+    public static void set(@Nonnull double[] x, @Nonnull Mask m, double v) throws LengthMismatchException {
+        checkMaskLength(x.length, m);
+
+        final long[] words = m.words();
+        for (int w = 0; w < words.length; w++) {
+            long word = words[w];
+            if (word == -1L) {
+                // All 64 items
+                Arrays.fill(x, w << 6, (w << 6) + 64, v);
+                continue;
+            }
+            while (word != 0) {
+                x[(w << 6) + Long.numberOfTrailingZeros(word)] = v;
+                word &= word - 1;
+            }
+        }
+    }
+
     /**
      * Set part of an array to a single value. Operation is <b>in place</b>.
      * <p>
@@ -435,4 +770,76 @@ public final class SelectorsSetters {
         }
     }
 
+    /**
+     * The items of x in (lo, hi), a NaN limit being no limit. They are counted first, which is cheaper than
+     * growing the output, and then copied to an array of the exact length.
+     */
+    @Nonnull
+    private static double[] selectRangeExact(@Nonnull double[] x, double lo, double hi) {
+        int n = 0;
+        if (Double.isNaN(hi)) {
+            for (double v : x) {
+                n += v > lo ? 1 : 0;
+            }
+        } else if (Double.isNaN(lo)) {
+            for (double v : x) {
+                n += v < hi ? 1 : 0;
+            }
+        } else {
+            for (double v : x) {
+                n += v > lo & v < hi ? 1 : 0;
+            }
+        }
+
+        final double[] y = new double[n];
+        if (n > 0) {
+            // The branch-free copy writes one item past the last selected one, so it stops there
+            int last = x.length - 1;
+            while (!((Double.isNaN(lo) || x[last] > lo) && (Double.isNaN(hi) || x[last] < hi))) {
+                last--;
+            }
+            selectRange(x, 0, last + 1, lo, hi, y);
+        }
+
+        return y;
+    }
+
+    /**
+     * Writes the items of x[start, stop) in (lo, hi) to y, from index 0; a NaN limit is no limit. Branch-free, so
+     * that its speed does not depend on how predictable the selection is.
+     */
+    private static int selectRange(
+            @Nonnull double[] x, int start, int stop, double lo, double hi, @Nonnull double[] y) {
+        int p = 0;
+        if (Double.isNaN(hi)) {
+            for (int i = start; i < stop; i++) {
+                y[p] = x[i];
+                p += x[i] > lo ? 1 : 0;
+            }
+        } else if (Double.isNaN(lo)) {
+            for (int i = start; i < stop; i++) {
+                y[p] = x[i];
+                p += x[i] < hi ? 1 : 0;
+            }
+        } else {
+            for (int i = start; i < stop; i++) {
+                y[p] = x[i];
+                p += x[i] > lo & x[i] < hi ? 1 : 0;
+            }
+        }
+
+        return p;
+    }
+
+    private static void checkOutputLength(@Nonnull double[] x, @Nonnull double[] y) throws BadArrayLengthException {
+        if (y.length < x.length) {
+            throw new BadArrayLengthException("Too short array y; is " + y.length + " (should be >= " + x.length + ")");
+        }
+    }
+
+    private static void checkMaskLength(int n, @Nonnull Mask m) throws LengthMismatchException {
+        if (n != m.length()) {
+            throw new LengthMismatchException("Length " + n + " (should be " + m.length() + ")");
+        }
+    }
 }
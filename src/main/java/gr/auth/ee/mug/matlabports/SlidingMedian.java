@@ -0,0 +1,269 @@
+package gr.auth.ee.mug.matlabports;
+
+import javax.annotation.Nonnull;
+
+
+/**
+ * Median of a sliding window, updated in O(log n) per sample.
+ * <p>
+ * The window is a FIFO of the last {@code n} values added. Non-NaN values are kept in two indexed binary heaps: a
+ * max-heap with the lower half and a min-heap with the upper half of the window. Every slot of the window knows
+ * its position in the heaps, so the value leaving the window is removed directly (no lazy deletion).
+ * <p>
+ * NaN values occupy a slot of the window but are ignored when computing the median, exactly like
+ * {@link org.apache.commons.math3.stat.descriptive.rank.Median}. The median of an even number of values is the
+ * average of the two middle values.
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public final class SlidingMedian {
+
+    /**
+     * Window values, in a circular buffer.
+     */
+    @Nonnull
+    private final double[] values;
+    /**
+     * Heap position of each slot: p + 1 for position p of the lower heap, -(p + 1) for position p of the upper
+     * heap, and 0 for slots not in any heap (empty or NaN).
+     */
+    @Nonnull
+    private final int[] where;
+    /**
+     * Max-heap of slots holding the lower half of the window.
+     */
+    @Nonnull
+    private final int[] lower;
+    /**
+     * Min-heap of slots holding the upper half of the window.
+     */
+    @Nonnull
+    private final int[] upper;
+    private int lowerSize;
+    private int upperSize;
+    /**
+     * The slot the next value is written to.
+     */
+    private int next;
+    /**
+     * Number of values in the window.
+     */
+    private int size;
+
+    /**
+     * Creates an empty sliding window.
+     *
+     * @param n The window length (at least 1)
+     */
+    public SlidingMedian(int n) {
+        if (n < 1) {
+            throw new IllegalArgumentException("Window length should be >= 1; is " + n);
+        }
+
+        values = new double[n];
+        where = new int[n];
+        lower = new int[n];
+        upper = new int[n];
+    }
+
+    /**
+     * Adds a value to the window. If the window is full, the oldest value is removed.
+     *
+     * @param v The value to add
+     */
+    public void add(double v) {
+        final int slot = next;
+        next = next + 1 == values.length ? 0 : next + 1;
+
+        if (size == values.length) {
+            remove(slot);
+            rebalance();
+        } else {
+            size++;
+        }
+
+        values[slot] = v;
+        if (Double.isNaN(v)) {
+            where[slot] = 0;
+            return;
+        }
+
+        if (lowerSize == 0 || v <= values[lower[0]]) {
+            lower[lowerSize] = slot;
+            where[slot] = lowerSize + 1;
+            lowerSize++;
+            siftUpLower(lowerSize - 1);
+        } else {
+            upper[upperSize] = slot;
+            where[slot] = -(upperSize + 1);
+            upperSize++;
+            siftUpUpper(upperSize - 1);
+        }
+
+        rebalance();
+    }
+
+    /**
+     * Empties the window.
+     */
+    public void clear() {
+        lowerSize = 0;
+        upperSize = 0;
+        next = 0;
+        size = 0;
+    }
+
+    /**
+     * @return The median of the non-NaN values of the window, or NaN if there are none.
+     */
+    public double median() {
+        if (lowerSize == 0) {
+            return Double.NaN;
+        }
+
+        final double a = values[lower[0]];
+        if (lowerSize > upperSize) {
+            return a;
+        }
+
+        // Same interpolation as commons-math's Median
+        final double b = values[upper[0]];
+        return a + 0.5 * (b - a);
+    }
+
+    /**
+     * @return The number of values (including NaN) in the window.
+     */
+    public int size() {
+        return size;
+    }
+
+    private void remove(int slot) {
+        final int w = where[slot];
+        if (w > 0) {
+            final int p = w - 1;
+            lowerSize--;
+            if (p < lowerSize) {
+                lower[p] = lower[lowerSize];
+                where[lower[p]] = p + 1;
+                siftDownLower(siftUpLower(p));
+            }
+        } else if (w < 0) {
+            final int p = -w - 1;
+            upperSize--;
+            if (p < upperSize) {
+                upper[p] = upper[upperSize];
+                where[upper[p]] = -(p + 1);
+                siftDownUpper(siftUpUpper(p));
+            }
+        }
+        where[slot] = 0;
+    }
+
+    /**
+     * Keeps the lower heap equal to, or one item larger than, the upper heap.
+     */
+    private void rebalance() {
+        while (lowerSize > upperSize + 1) {
+            final int slot = lower[0];
+            lowerSize--;
+            lower[0] = lower[lowerSize];
+            where[lower[0]] = 1;
+            siftDownLower(0);
+
+            upper[upperSize] = slot;
+            where[slot] = -(upperSize + 1);
+            upperSize++;
+            siftUpUpper(upperSize - 1);
+        }
+        while (upperSize > lowerSize) {
+            final int slot = upper[0];
+            upperSize--;
+            upper[0] = upper[upperSize];
+            where[upper[0]] = -1;
+            siftDownUpper(0);
+
+            lower[lowerSize] = slot;
+            where[slot] = lowerSize + 1;
+            lowerSize++;
+            siftUpLower(lowerSize - 1);
+        }
+    }
+
+    private int siftUpLower(int p) {
+        final int slot = lower[p];
+        final double v = values[slot];
+        while (p > 0) {
+            final int parent = (p - 1) / 2;
+            if (values[lower[parent]] >= v) {
+                break;
+            }
+            lower[p] = lower[parent];
+            where[lower[p]] = p + 1;
+            p = parent;
+        }
+        lower[p] = slot;
+        where[slot] = p + 1;
+        return p;
+    }
+
+    private void siftDownLower(int p) {
+        final int slot = lower[p];
+        final double v = values[slot];
+        while (true) {
+            int child = 2 * p + 1;
+            if (child >= lowerSize) {
+                break;
+            }
+            if (child + 1 < lowerSize && values[lower[child + 1]] > values[lower[child]]) {
+                child++;
+            }
+            if (values[lower[child]] <= v) {
+                break;
+            }
+            lower[p] = lower[child];
+            where[lower[p]] = p + 1;
+            p = child;
+        }
+        lower[p] = slot;
+        where[slot] = p + 1;
+    }
+
+    private int siftUpUpper(int p) {
+        final int slot = upper[p];
+        final double v = values[slot];
+        while (p > 0) {
+            final int parent = (p - 1) / 2;
+            if (values[upper[parent]] <= v) {
+                break;
+            }
+            upper[p] = upper[parent];
+            where[upper[p]] = -(p + 1);
+            p = parent;
+        }
+        upper[p] = slot;
+        where[slot] = -(p + 1);
+        return p;
+    }
+
+    private void siftDownUpper(int p) {
+        final int slot = upper[p];
+        final double v = values[slot];
+        while (true) {
+            int child = 2 * p + 1;
+            if (child >= upperSize) {
+                break;
+            }
+            if (child + 1 < upperSize && values[upper[child + 1]] < values[upper[child]]) {
+                child++;
+            }
+            if (values[upper[child]] >= v) {
+                break;
+            }
+            upper[p] = upper[child];
+            where[upper[p]] = -(p + 1);
+            p = child;
+        }
+        upper[p] = slot;
+        where[slot] = -(p + 1);
+    }
+}
@@ -0,0 +1,264 @@
+package gr.auth.ee.mug.matlabports;
+
+import java.util.Arrays;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import gr.auth.ee.mug.matlabports.exceptions.BadArrayLengthException;
+
+
+/**
+ * Streaming short-time Fourier transform (spectrogram).
+ * <p>
+ * Samples are pushed in chunks of any length. Every {@code hop} samples (once the first {@code windowLength}
+ * samples have arrived) the last {@code windowLength} samples are multiplied by the window, zero-padded to the next
+ * power of two, transformed, and the magnitude (or power) of bins 0, 1, ..., nfft / 2 is written to the next buffer
+ * of a ring of output frames. After construction no memory is allocated.
+ * <p>
+ * MATLAB (for the frames computed so far):
+ * <pre>{@code s = abs(spectrogram(x, hamming(windowLength), windowLength - hop, nfft));}</pre>
+ * <p>
+ * Not thread-safe.
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public final class Spectrogram {
+
+    /**
+     * Window functions.
+     */
+    public enum Window {
+        RECTANGULAR, HAMMING, HANN
+    }
+
+    /**
+     * Receives each frame as soon as it is computed.
+     */
+    public interface FrameListener {
+        /**
+         * @param frame The frame; it belongs to the ring and is overwritten ringSize frames later
+         * @param index The index of the frame (0 for the first one)
+         */
+        void onFrame(@Nonnull double[] frame, long index);
+    }
+
+    private final int hop;
+    private final boolean power;
+    @Nonnull
+    private final double[] window;
+    @Nonnull
+    private final FFT fft;
+
+    /**
+     * Last windowLength samples, in a circular buffer.
+     */
+    @Nonnull
+    private final double[] samples;
+    /**
+     * Next position of samples to write to.
+     */
+    private int position;
+    /**
+     * Number of samples until the next frame.
+     */
+    private int untilNextFrame;
+
+    /**
+     * Work buffers of the FFT.
+     */
+    @Nonnull
+    private final double[] z;
+    @Nonnull
+    private final double[] re;
+    @Nonnull
+    private final double[] im;
+
+    /**
+     * Output frames.
+     */
+    @Nonnull
+    private final double[][] frames;
+    /**
+     * Number of frames computed so far.
+     */
+    private long frameCount;
+
+    /**
+     * Creates a spectrogram with a hamming window that outputs magnitudes and keeps only the latest frame.
+     *
+     * @param windowLength The window length (in samples)
+     * @param hop          The number of samples between the starts of consecutive frames
+     */
+    public Spectrogram(int windowLength, int hop) {
+        this(windowLength, hop, Window.HAMMING, false, 1);
+    }
+
+    /**
+     * Creates a spectrogram.
+     *
+     * @param windowLength The window length (in samples)
+     * @param hop          The number of samples between the starts of consecutive frames
+     * @param window       The window function
+     * @param power        If true, frames contain the power (squared magnitude) of each bin, otherwise the magnitude
+     * @param ringSize     The number of latest frames that are kept
+     */
+    public Spectrogram(int windowLength, int hop, @Nonnull Window window, boolean power, int ringSize) {
+        if (windowLength < 2) {
+            throw new IllegalArgumentException("Window length should be >= 2; is " + windowLength);
+        }
+        if (hop < 1) {
+            throw new IllegalArgumentException("Hop should be >= 1; is " + hop);
+        }
+        if (ringSize < 1) {
+            throw new IllegalArgumentException("Ring size should be >= 1; is " + ringSize);
+        }
+
+        this.hop = hop;
+        this.power = power;
+
+        switch (window) {
+            case HAMMING:
+                this.window = DSP.hamming(windowLength);
+                break;
+
+            case HANN:
+                this.window = DSP.hann(windowLength);
+                break;
+
+            default:
+                this.window = new double[windowLength];
+                Arrays.fill(this.window, 1);
+        }
+
+        final int nfft = Various.nextPow2(windowLength);
+        fft = FFT.of(nfft);
+        z = new double[nfft];
+        re = new double[nfft / 2 + 1];
+        im = new double[nfft / 2 + 1];
+
+        samples = new double[windowLength];
+        frames = new double[ringSize][nfft / 2 + 1];
+
+        reset();
+    }
+
+    /**
+     * Discards all samples and frames.
+     */
+    public void reset() {
+        Arrays.fill(samples, 0);
+        position = 0;
+        untilNextFrame = samples.length;
+        frameCount = 0;
+    }
+
+    /**
+     * Pushes a chunk of samples.
+     *
+     * @param x The samples
+     * @return The number of frames computed from this chunk
+     */
+    public int push(@Nonnull double[] x) {
+        return push(x, 0, x.length, null);
+    }
+
+    /**
+     * Pushes a chunk of samples.
+     * <p>
+     * If more than ringSize frames are computed from one chunk, only the last ringSize are kept in the ring; use a
+     * listener to see all of them.
+     *
+     * @param x        The array holding the samples
+     * @param offset   The index of the first sample in x
+     * @param length   The number of samples
+     * @param listener If not null, called for every frame computed
+     * @return The number of frames computed from this chunk
+     */
+    public int push(@Nonnull double[] x, int offset, int length, @Nullable FrameListener listener) {
+        int count = 0;
+        for (int i = offset; i < offset + length; i++) {
+            samples[position] = x[i];
+            position = position + 1 == samples.length ? 0 : position + 1;
+
+            untilNextFrame--;
+            if (untilNextFrame == 0) {
+                untilNextFrame = hop;
+                final double[] frame = computeFrame();
+                if (listener != null) {
+                    listener.onFrame(frame, frameCount - 1);
+                }
+                count++;
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * @return The number of frames computed so far.
+     */
+    public long frameCount() {
+        return frameCount;
+    }
+
+    /**
+     * Returns a frame of the ring.
+     *
+     * @param index The index of the frame (0 for the first one); one of the last ringSize frames
+     * @return The frame
+     */
+    @Nonnull
+    public double[] frame(long index) {
+        if (index < 0 || index >= frameCount || index < frameCount - frames.length) {
+            throw new IndexOutOfBoundsException("Frame " + index + " is not available");
+        }
+
+        return frames[(int) (index % frames.length)];
+    }
+
+    /**
+     * @return The latest frame, or null if no frame is computed yet.
+     */
+    @Nullable
+    public double[] latestFrame() {
+        return frameCount == 0 ? null : frame(frameCount - 1);
+    }
+
+    /**
+     * Frequencies of the bins of each frame.
+     *
+     * @param fs The sampling frequency
+     * @return An array with the frequencies
+     */
+    @Nonnull
+    public double[] frequencies(double fs) {
+        return Arrays.copyOf(DSP.fftf(fft.length(), fs), re.length);
+    }
+
+    @Nonnull
+    private double[] computeFrame() {
+        // Windowed samples, oldest first, zero-padded
+        final int n = samples.length;
+        for (int i = 0; i < n; i++) {
+            final int j = position + i < n ? position + i : position + i - n;
+            z[i] = samples[j] * window[i];
+        }
+        Arrays.fill(z, n, z.length, 0);
+
+        try {
+            fft.forwardReal(z, re, im);
+        } catch (BadArrayLengthException e) {
+            // This should never happen
+            throw new RuntimeException(e);
+        }
+
+        final double[] frame = frames[(int) (frameCount % frames.length)];
+        for (int k = 0; k < frame.length; k++) {
+            final double p = re[k] * re[k] + im[k] * im[k];
+            frame[k] = power ? p : Math.sqrt(p);
+        }
+        frameCount++;
+
+        return frame;
+    }
+}
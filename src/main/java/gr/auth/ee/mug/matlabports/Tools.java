@@ -50,9 +50,10 @@ public final class Tools {
 
         final double[] pArr = new double[arr.size()];
 
-        for (int i = 0; i < pArr.length; i++) {
-            final Double a = arr.get(i);
-            pArr[i] = a == null ? nullValue : a;
+        // Iterate, as get(i) may not be O(1)
+        int i = 0;
+        for (Double a : arr) {
+            pArr[i++] = a == null ? nullValue : a;
         }
 
         return pArr;
@@ -65,9 +66,10 @@ public final class Tools {
 
         final int[] pArr = new int[arr.size()];
 
-        for (int i = 0; i < pArr.length; i++) {
-            final Integer a = arr.get(i);
-            pArr[i] = a == null ? nullValue : a;
+        // Iterate, as get(i) may not be O(1)
+        int i = 0;
+        for (Integer a : arr) {
+            pArr[i++] = a == null ? nullValue : a;
         }
 
         return pArr;
@@ -30,6 +30,8 @@ public class ToolsMatrix {
     /**
      * Returns a sub matrix, with the same number of arrays. However, items from n up to
      * (and without) n+l are returned in each array.
+     * <p>
+     * Note - l is the number of items copied, not an end index; the description of l below does not match the code.
      *
      * @param x The input matrix
      * @param n The index to start copying from
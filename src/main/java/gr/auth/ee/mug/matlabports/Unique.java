@@ -0,0 +1,37 @@
+package gr.auth.ee.mug.matlabports;
+
+import javax.annotation.Nonnull;
+
+
+/**
+ * Result of {@link CommonFunctions#uniqueSorted(double[])}.
+ * <p>
+ * MATLAB:
+ * <pre>{@code [values, ia, ic] = unique(x);}</pre>
+ * (with 0-based indices).
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public final class Unique {
+
+    /**
+     * The distinct values, in increasing order (NaNs last, each one distinct).
+     */
+    @Nonnull
+    public final double[] values;
+    /**
+     * For each distinct value, the index of its first occurrence in the input: {@code values[k] == x[ia[k]]}.
+     */
+    @Nonnull
+    public final int[] ia;
+    /**
+     * For each item of the input, the index of its value: {@code x[i] == values[ic[i]]}.
+     */
+    @Nonnull
+    public final int[] ic;
+
+    Unique(@Nonnull double[] values, @Nonnull int[] ia, @Nonnull int[] ic) {
+        this.values = values;
+        this.ia = ia;
+        this.ic = ic;
+    }
+}
@@ -1,7 +1,370 @@
 package gr.auth.ee.mug.matlabports.alternative;
 
-public class Matrix {
+import org.apache.commons.math3.linear.Array2DRowRealMatrix;
+import org.apache.commons.math3.linear.RealMatrix;
 
-    // final double
+import javax.annotation.Nonnull;
 
+import gr.auth.ee.mug.matlabports.CommonFunctions;
+import gr.auth.ee.mug.matlabports.DoubleView;
+import gr.auth.ee.mug.matlabports.exceptions.LengthMismatchException;
+
+
+/**
+ * Matrix of doubles stored in a single array, in row-major order: item (i, j) is {@code data[offset + i * stride + j]}.
+ * <p>
+ * The contiguous counterpart of the {@code double[][]} matrices of {@link gr.auth.ee.mug.matlabports.ToolsMatrix}:
+ * rows follow each other in memory, so traversals are sequential and prefetched. Rows, columns and blocks of rows or
+ * columns are views that share the array, not copies. The column reductions traverse the matrix row by row.
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public final class Matrix {
+
+    @Nonnull
+    private final double[] data;
+    private final int offset;
+    private final int rows;
+    private final int cols;
+    /**
+     * Distance in data between the starts of consecutive rows; at least cols.
+     */
+    private final int stride;
+
+    /**
+     * @param rows The number of rows
+     * @param cols The number of columns
+     */
+    public Matrix(int rows, int cols) {
+        this(new double[checkSize(rows, cols)], 0, rows, cols, cols);
+    }
+
+    private Matrix(@Nonnull double[] data, int offset, int rows, int cols, int stride) {
+        this.data = data;
+        this.offset = offset;
+        this.rows = rows;
+        this.cols = cols;
+        this.stride = stride;
+    }
+
+    /**
+     * A matrix backed by an array, not a copy of it.
+     *
+     * @param data The items, in row-major order
+     * @param rows The number of rows
+     * @param cols The number of columns
+     * @return The matrix.
+     */
+    @Nonnull
+    public static Matrix wrap(@Nonnull double[] data, int rows, int cols) throws LengthMismatchException {
+        if (data.length != checkSize(rows, cols)) {
+            throw new LengthMismatchException("Length " + data.length + " (should be " + rows * cols + ")");
+        }
+
+        return new Matrix(data, 0, rows, cols, cols);
+    }
+
+    /**
+     * @param x The matrix, as an array of rows of equal length
+     * @return A contiguous copy of x.
+     */
+    @Nonnull
+    public static Matrix of(@Nonnull double[][] x) throws LengthMismatchException {
+        final int cols = x.length == 0 ? 0 : x[0].length;
+        final Matrix m = new Matrix(x.length, cols);
+        for (int i = 0; i < x.length; i++) {
+            if (x[i].length != cols) {
+                throw new LengthMismatchException("Length " + x[i].length + " (should be " + cols + ")");
+            }
+            System.arraycopy(x[i], 0, m.data, i * cols, cols);
+        }
+
+        return m;
+    }
+
+    /**
+     * @param x The commons-math matrix
+     * @return A contiguous copy of x.
+     */
+    @Nonnull
+    public static Matrix of(@Nonnull RealMatrix x) {
+        final Matrix m = new Matrix(x.getRowDimension(), x.getColumnDimension());
+        for (int i = 0; i < m.rows; i++) {
+            for (int j = 0; j < m.cols; j++) {
+                m.data[i * m.cols + j] = x.getEntry(i, j);
+            }
+        }
+
+        return m;
+    }
+
+    /**
+     * @return The number of rows.
+     */
+    public int rows() {
+        return rows;
+    }
+
+    /**
+     * @return The number of columns.
+     */
+    public int cols() {
+        return cols;
+    }
+
+    /**
+     * @param i The row
+     * @param j The column
+     * @return The item
+     */
+    public double get(int i, int j) {
+        checkIndices(i, j);
+
+        return data[offset + i * stride + j];
+    }
+
+    /**
+     * @param i The row
+     * @param j The column
+     * @param v The new value of the item
+     */
+    public void set(int i, int j, double v) {
+        checkIndices(i, j);
+
+        data[offset + i * stride + j] = v;
+    }
+
+    /**
+     * MATLAB:
+     * <pre>{@code r = x(i, :);}</pre>
+     *
+     * @param i The row
+     * @return A view of the row.
+     */
+    @Nonnull
+    public DoubleView row(int i) {
+        checkIndex(i, rows);
+
+        return new DoubleView(data, offset + i * stride, 1, cols);
+    }
+
+    /**
+     * MATLAB:
+     * <pre>{@code c = x(:, j);}</pre>
+     *
+     * @param j The column
+     * @return A view of the column.
+     */
+    @Nonnull
+    public DoubleView col(int j) {
+        checkIndex(j, cols);
+
+        return new DoubleView(data, offset + j, stride, rows);
+    }
+
+    /**
+     * Same as {@link gr.auth.ee.mug.matlabports.ToolsMatrix#getRange(double[][], int, int)}, without copying.
+     * <p>
+     * MATLAB:
+     * <pre>{@code y = x(n + 1:n + l, :);}</pre>
+     *
+     * @param n The first row
+     * @param l The number of rows
+     * @return A view of the rows.
+     */
+    @Nonnull
+    public Matrix getRange(int n, int l) {
+        checkRange(n, l, rows);
+
+        return new Matrix(data, offset + n * stride, l, cols, stride);
+    }
+
+    /**
+     * Returns the l columns starting from the n-th, without copying. Here l is a count of columns, which is what the
+     * code of {@link gr.auth.ee.mug.matlabports.ToolsMatrix#getRange2(double[][], int, int)} copies, although its
+     * documentation calls l an end index.
+     * <p>
+     * MATLAB:
+     * <pre>{@code y = x(:, n + 1:n + l);}</pre>
+     *
+     * @param n The first column
+     * @param l The number of columns
+     * @return A view of the columns.
+     */
+    @Nonnull
+    public Matrix getRange2(int n, int l) {
+        checkRange(n, l, cols);
+
+        return new Matrix(data, offset + n, rows, l, stride);
+    }
+
+    /**
+     * Same as {@link gr.auth.ee.mug.matlabports.ToolsMatrix#sum(double[][])}.
+     * <p>
+     * MATLAB:
+     * <pre>{@code y = sum(x, 2);}</pre>
+     *
+     * @return The sum of each row.
+     */
+    @Nonnull
+    public double[] sum() {
+        final double[] y = new double[rows];
+        for (int i = 0; i < rows; i++) {
+            final int start = offset + i * stride;
+            y[i] = CommonFunctions.sum(data, start, start + cols);
+        }
+
+        return y;
+    }
+
+    /**
+     * MATLAB:
+     * <pre>{@code y = sum(x, 1);}</pre>
+     *
+     * @return The sum of each column.
+     */
+    @Nonnull
+    public double[] sumColumns() {
+        final double[] y = new double[cols];
+        for (int i = 0; i < rows; i++) {
+            final int start = offset + i * stride;
+            for (int j = 0; j < cols; j++) {
+                y[j] += data[start + j];
+            }
+        }
+
+        return y;
+    }
+
+    /**
+     * MATLAB:
+     * <pre>{@code y = mean(x, 1);}</pre>
+     *
+     * @return The mean of each column.
+     */
+    @Nonnull
+    public double[] meanColumns() {
+        final double[] y = sumColumns();
+        for (int j = 0; j < cols; j++) {
+            y[j] /= rows;
+        }
+
+        return y;
+    }
+
+    /**
+     * Same as {@link CommonFunctions#max(double[], int, int)} on each column.
+     * <p>
+     * MATLAB:
+     * <pre>{@code y = max(x, [], 1);}</pre>
+     *
+     * @return The maximum of each column.
+     */
+    @Nonnull
+    public double[] maxColumns() {
+        checkNotEmpty();
+
+        final double[] y = new double[cols];
+        System.arraycopy(data, offset, y, 0, cols);
+        for (int i = 1; i < rows; i++) {
+            final int start = offset + i * stride;
+            for (int j = 0; j < cols; j++) {
+                if (y[j] < data[start + j]) {
+                    y[j] = data[start + j];
+                }
+            }
+        }
+
+        return y;
+    }
+
+    /**
+     * Same as {@link CommonFunctions#min(double[], int, int)} on each column.
+     * <p>
+     * MATLAB:
+     * <pre>{@code y = min(x, [], 1);}</pre>
+     *
+     * @return The minimum of each column.
+     */
+    @Nonnull
+    public double[] minColumns() {
+        checkNotEmpty();
+
+        final double[] y = new double[cols];
+        System.arraycopy(data, offset, y, 0, cols);
+        for (int i = 1; i < rows; i++) {
+            final int start = offset + i * stride;
+            for (int j = 0; j < cols; j++) {
+                if (y[j] > data[start + j]) {
+                    y[j] = data[start + j];
+                }
+            }
+        }
+
+        return y;
+    }
+
+    /**
+     * @return A contiguous copy of this matrix, which shares nothing with it.
+     */
+    @Nonnull
+    public Matrix copy() {
+        final Matrix m = new Matrix(rows, cols);
+        for (int i = 0; i < rows; i++) {
+            System.arraycopy(data, offset + i * stride, m.data, i * cols, cols);
+        }
+
+        return m;
+    }
+
+    /**
+     * @return A copy of this matrix, as an array of rows.
+     */
+    @Nonnull
+    public double[][] toArray() {
+        final double[][] y = new double[rows][cols];
+        for (int i = 0; i < rows; i++) {
+            System.arraycopy(data, offset + i * stride, y[i], 0, cols);
+        }
+
+        return y;
+    }
+
+    /**
+     * @return A copy of this matrix, for the operations of commons-math.
+     */
+    @Nonnull
+    public RealMatrix toRealMatrix() {
+        return new Array2DRowRealMatrix(toArray(), false);
+    }
+
+    private void checkIndices(int i, int j) {
+        checkIndex(i, rows);
+        checkIndex(j, cols);
+    }
+
+    private static void checkIndex(int i, int length) {
+        if (i < 0 || i >= length) {
+            throw new IndexOutOfBoundsException("Index " + i + " (length " + length + ")");
+        }
+    }
+
+    private static void checkRange(int n, int l, int length) {
+        if (n < 0 || l < 0 || n > length - l) {
+            throw new IndexOutOfBoundsException("Range " + n + " to " + (n + l) + " (length " + length + ")");
+        }
+    }
+
+    private void checkNotEmpty() {
+        if (rows == 0) {
+            throw new IllegalStateException("No rows");
+        }
+    }
+
+    private static int checkSize(int rows, int cols) {
+        if (rows < 0 || cols < 0 || (long) rows * cols > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Bad size " + rows + "x" + cols);
+        }
+
+        return rows * cols;
+    }
 }
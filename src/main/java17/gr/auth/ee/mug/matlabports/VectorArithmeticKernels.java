@@ -0,0 +1,118 @@
+package gr.auth.ee.mug.matlabports;
+
+import javax.annotation.Nonnull;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+
+/**
+ * {@link ArithmeticKernels} with the Vector API, in the preferred vector shape of the platform. Full vectors are
+ * processed in the main loop, and the last partial vector with a mask of the lanes in range.
+ * <p>
+ * Ints are processed in vectors of half the shape, so that they have as many lanes as the longs they are widened to.
+ * <p>
+ * Loaded by {@link ArithmeticKernels}; compiled only on JDK 17 or later, with {@code jdk.incubator.vector}.
+ */
+final class VectorArithmeticKernels extends ArithmeticKernels {
+
+    private static final VectorSpecies<Double> D = DoubleVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Long> L = VectorSpecies.of(long.class, D.vectorShape());
+    private static final VectorSpecies<Integer> I =
+            VectorSpecies.of(int.class, VectorShape.forBitSize(Math.max(64, D.vectorBitSize() / 2)));
+
+    private static final long EXPONENT_MASK = 0x7ff0000000000000L;
+    private static final long ULP_SHIFT = 52L << 52;
+
+    VectorArithmeticKernels() {
+        if (D.length() < 2 || I.length() != L.length()) {
+            // No SIMD worth the name
+            throw new UnsupportedOperationException("Vector shape " + D.vectorShape());
+        }
+    }
+
+    @Override
+    void addEps(@Nonnull double[] x, @Nonnull double[] y, int n) {
+        int i = 0;
+        for (final int bound = D.loopBound(n); i < bound; i += D.length()) {
+            final DoubleVector v = DoubleVector.fromArray(D, x, i);
+            final LongVector e = v.reinterpretAsLongs().and(EXPONENT_MASK);
+            if (notNormal(e).anyTrue()) {
+                addEps(x, y, i, i + D.length());
+            } else {
+                addUlp(v, e).intoArray(y, i);
+            }
+        }
+        if (i < n) {
+            final VectorMask<Double> m = D.indexInRange(i, n);
+            final DoubleVector v = DoubleVector.fromArray(D, x, i, m);
+            final LongVector e = v.reinterpretAsLongs().and(EXPONENT_MASK);
+            if (notNormal(e).and(m.cast(L)).anyTrue()) {
+                addEps(x, y, i, n);
+            } else {
+                addUlp(v, e).intoArray(y, i, m);
+            }
+        }
+    }
+
+    /**
+     * Zero, subnormal, infinite or NaN lanes, from the exponent bits.
+     */
+    @Nonnull
+    private static VectorMask<Long> notNormal(@Nonnull LongVector e) {
+        return e.compare(VectorOperators.LE, ULP_SHIFT).or(e.compare(VectorOperators.EQ, EXPONENT_MASK));
+    }
+
+    /**
+     * For normal numbers the ulp is a power of two with the exponent decreased by 52.
+     */
+    @Nonnull
+    private static DoubleVector addUlp(@Nonnull DoubleVector v, @Nonnull LongVector e) {
+        return v.add(e.sub(ULP_SHIFT).reinterpretAsDoubles());
+    }
+
+    private static void addEps(@Nonnull double[] x, @Nonnull double[] y, int start, int stop) {
+        for (int i = start; i < stop; i++) {
+            y[i] = x[i] + Math.ulp(x[i]);
+        }
+    }
+
+    @Override
+    void addInPlace(@Nonnull int[] x, long w, int n) {
+        int i = 0;
+        for (final int bound = I.loopBound(n); i < bound; i += I.length()) {
+            saturate(toLongs(IntVector.fromArray(I, x, i)).add(w)).intoArray(x, i);
+        }
+        if (i < n) {
+            final VectorMask<Integer> m = I.indexInRange(i, n);
+            saturate(toLongs(IntVector.fromArray(I, x, i, m)).add(w)).intoArray(x, i, m);
+        }
+    }
+
+    @Override
+    void multiplyInPlace(@Nonnull int[] x, long w, int n) {
+        int i = 0;
+        for (final int bound = I.loopBound(n); i < bound; i += I.length()) {
+            saturate(toLongs(IntVector.fromArray(I, x, i)).mul(w)).intoArray(x, i);
+        }
+        if (i < n) {
+            final VectorMask<Integer> m = I.indexInRange(i, n);
+            saturate(toLongs(IntVector.fromArray(I, x, i, m)).mul(w)).intoArray(x, i, m);
+        }
+    }
+
+    @Nonnull
+    private static LongVector toLongs(@Nonnull IntVector a) {
+        return (LongVector) a.convertShape(VectorOperators.I2L, L, 0);
+    }
+
+    @Nonnull
+    private static IntVector saturate(@Nonnull LongVector a) {
+        return (IntVector) a.max(Integer.MIN_VALUE).min(Integer.MAX_VALUE).convertShape(VectorOperators.L2I, I, 0);
+    }
+}
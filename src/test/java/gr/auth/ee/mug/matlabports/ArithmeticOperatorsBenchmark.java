@@ -0,0 +1,109 @@
+package gr.auth.ee.mug.matlabports;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import gr.auth.ee.mug.matlabports.exceptions.LengthMismatchException;
+
+
+/**
+ * JMH benchmarks of the operations of {@link ArithmeticOperators} that have SIMD kernels, with the scalar loops
+ * ({@link Scalar}) and with the Vector API kernels of {@link ArithmeticKernels} ({@link Vector}, which needs JDK 17 or
+ * later and the vector profile of the pom). Not a unit test; run its main method from the test classpath, with
+ * {@code target/classes/META-INF/versions/17} on it.
+ */
+public class ArithmeticOperatorsBenchmark {
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(ArithmeticOperatorsBenchmark.class.getName()).build()).run();
+    }
+
+    @State(Scope.Thread)
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    @Warmup(iterations = 5, time = 1)
+    @Measurement(iterations = 5, time = 1)
+    public abstract static class Kernels {
+
+        @Param({"1000", "100000"})
+        public int n;
+
+        private double[] x;
+        private double[] y;
+        private int[] xi;
+        private int[] zi;
+
+        @Setup
+        public void setUp() {
+            final Random random = new Random(1);
+            x = new double[n];
+            y = new double[n];
+            xi = new int[n];
+            zi = new int[n];
+            for (int i = 0; i < n; i++) {
+                x[i] = random.nextGaussian();
+                xi[i] = random.nextInt(1000);
+            }
+        }
+
+        @Benchmark
+        public double[] addEps() throws LengthMismatchException {
+            ArithmeticOperators.addEps(x, y);
+            return y;
+        }
+
+        /**
+         * Includes copying the input, as multiplyInPlaceInt.
+         */
+        @Benchmark
+        public int[] addInPlaceInt() {
+            System.arraycopy(xi, 0, zi, 0, n);
+            ArithmeticOperators.addInPlace(zi, 3.0);
+            return zi;
+        }
+
+        @Benchmark
+        public int[] multiplyInPlaceInt() {
+            System.arraycopy(xi, 0, zi, 0, n);
+            ArithmeticOperators.multiplyInPlace(zi, -3.0);
+            return zi;
+        }
+    }
+
+    @Fork(1)
+    public static class Scalar extends Kernels {
+
+        @Setup
+        public void checkKernels() {
+            if (ArithmeticKernels.VECTOR != null) {
+                throw new IllegalStateException("Vector API kernels loaded");
+            }
+        }
+    }
+
+    @Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+    public static class Vector extends Kernels {
+
+        @Setup
+        public void checkKernels() {
+            if (ArithmeticKernels.VECTOR == null) {
+                throw new IllegalStateException("Vector API kernels not available");
+            }
+        }
+    }
+}
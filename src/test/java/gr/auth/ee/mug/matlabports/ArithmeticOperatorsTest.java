@@ -1,5 +1,10 @@
 package gr.auth.ee.mug.matlabports;
 
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Assumptions;
+
+import java.util.Random;
+
 import gr.auth.ee.mug.matlabports.exceptions.LengthMismatchException;
 
 
@@ -18,4 +23,126 @@ public class ArithmeticOperatorsTest {
 
         System.out.println(x);
     }
+
+    @org.junit.jupiter.api.Test
+    void addEps() throws LengthMismatchException {
+        final Random random = new Random(20);
+        final double[] x = new double[]{0, -0.0, 1, -1, Double.MIN_VALUE, Double.MIN_NORMAL, -Double.MIN_NORMAL / 3,
+                Double.MIN_NORMAL * 1e15, Double.MAX_VALUE, -Double.MAX_VALUE, Double.POSITIVE_INFINITY,
+                Double.NEGATIVE_INFINITY, Double.NaN, random.nextGaussian(), Math.scalb(random.nextDouble(), -1040)};
+        final double[] y = new double[x.length];
+        ArithmeticOperators.addEps(x, y);
+        for (int i = 0; i < x.length; i++) {
+            Assertions.assertEquals(x[i] + Math.ulp(x[i]), y[i]);
+        }
+    }
+
+    @org.junit.jupiter.api.Test
+    void intInPlace() {
+        final Random random = new Random(20);
+        final double[] values = new double[]{0, -0.0, 1, -3, 2.5, -0.7, 1e9, -2e9, 3e9, Integer.MAX_VALUE,
+                Integer.MIN_VALUE, 1e20, Double.NaN, Double.POSITIVE_INFINITY};
+        final int[] x = new int[200];
+        for (int i = 0; i < x.length; i++) {
+            x[i] = i < 4 ? (i % 2 == 0 ? Integer.MAX_VALUE : Integer.MIN_VALUE) - i / 2 : random.nextInt();
+        }
+
+        for (double v : values) {
+            final int[] sum = x.clone();
+            final int[] product = x.clone();
+            ArithmeticOperators.addInPlace(sum, v);
+            ArithmeticOperators.multiplyInPlace(product, v);
+            for (int i = 0; i < x.length; i++) {
+                int expected = x[i];
+                expected += v;
+                Assertions.assertEquals(expected, sum[i]);
+                expected = x[i];
+                expected *= v;
+                Assertions.assertEquals(expected, product[i]);
+            }
+        }
+    }
+
+    @org.junit.jupiter.api.Test
+    void lengths() throws LengthMismatchException {
+        // Lengths around the scalar cut-off and around multiples of the vector length, for the masked tails
+        final Random random = new Random(20);
+        for (int n : new int[]{0, 1, 7, 31, 32, 33, 63, 64, 65, 100, 1001}) {
+            final double[] x = randomArray(random, n);
+            final double[] y = new double[n];
+            ArithmeticOperators.addEps(x, y);
+            for (int i = 0; i < n; i++) {
+                Assertions.assertEquals(x[i] + Math.ulp(x[i]), y[i]);
+            }
+
+            final int[] xi = new int[n];
+            for (int i = 0; i < n; i++) {
+                xi[i] = random.nextInt();
+            }
+            final int[] sum = xi.clone();
+            final int[] product = xi.clone();
+            ArithmeticOperators.addInPlace(sum, -7.0);
+            ArithmeticOperators.multiplyInPlace(product, 3.0);
+            for (int i = 0; i < n; i++) {
+                int expected = xi[i];
+                expected += -7.0;
+                Assertions.assertEquals(expected, sum[i]);
+                expected = xi[i];
+                expected *= 3.0;
+                Assertions.assertEquals(expected, product[i]);
+            }
+        }
+    }
+
+    @org.junit.jupiter.api.Test
+    void vectorKernels() {
+        // Only when the vector profile of the pom is active and the JVM has jdk.incubator.vector
+        Assumptions.assumeTrue(ArithmeticKernels.VECTOR != null);
+
+        // Only the first n items are processed
+        final Random random = new Random(20);
+        final double[] x = randomArray(random, 100);
+        final int[] xi = new int[100];
+        for (int i = 0; i < xi.length; i++) {
+            xi[i] = random.nextInt();
+        }
+        for (int n = 0; n < x.length; n++) {
+            final double[] y = new double[x.length];
+            ArithmeticKernels.VECTOR.addEps(x, y, n);
+            for (int i = 0; i < x.length; i++) {
+                Assertions.assertEquals(i < n ? x[i] + Math.ulp(x[i]) : 0, y[i]);
+            }
+
+            final int[] sum = xi.clone();
+            final int[] product = xi.clone();
+            ArithmeticKernels.VECTOR.addInPlace(sum, Integer.MIN_VALUE, n);
+            ArithmeticKernels.VECTOR.multiplyInPlace(product, -2, n);
+            for (int i = 0; i < xi.length; i++) {
+                int expected = xi[i];
+                if (i < n) {
+                    expected += (double) Integer.MIN_VALUE;
+                }
+                Assertions.assertEquals(expected, sum[i]);
+                expected = xi[i];
+                if (i < n) {
+                    expected *= -2.0;
+                }
+                Assertions.assertEquals(expected, product[i]);
+            }
+        }
+    }
+
+    /**
+     * Gaussian values, with some zeros, subnormals, infinities and NaNs.
+     */
+    private static double[] randomArray(Random random, int n) {
+        final double[] special = new double[]{0, -0.0, Double.MIN_VALUE, -Double.MIN_NORMAL / 3, Double.MAX_VALUE,
+                Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NaN};
+        final double[] x = new double[n];
+        for (int i = 0; i < n; i++) {
+            x[i] = random.nextInt(20) == 0 ? special[random.nextInt(special.length)] : random.nextGaussian();
+        }
+
+        return x;
+    }
 }
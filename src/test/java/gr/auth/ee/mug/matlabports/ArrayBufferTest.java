@@ -0,0 +1,50 @@
+package gr.auth.ee.mug.matlabports;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+
+class ArrayBufferTest {
+
+    @Test
+    void intBuffer() {
+        final IntArrayBuffer buffer = new IntArrayBuffer(1);
+        for (int i = 0; i < 100; i++) {
+            buffer.add(i);
+        }
+        Assertions.assertEquals(100, buffer.size());
+        Assertions.assertEquals(99, buffer.last());
+        Assertions.assertThrows(IndexOutOfBoundsException.class, () -> buffer.get(100));
+
+        buffer.set(0, -1);
+        buffer.truncate(50);
+        buffer.removeFirst(10);
+        final int[] a = buffer.toArray();
+        Assertions.assertEquals(40, a.length);
+        for (int i = 0; i < a.length; i++) {
+            Assertions.assertEquals(i + 10, a[i]);
+        }
+
+        // Capacity is kept
+        final int[] array = buffer.array();
+        buffer.clear();
+        Assertions.assertTrue(buffer.isEmpty());
+        buffer.add(7);
+        Assertions.assertSame(array, buffer.array());
+        Assertions.assertArrayEquals(new int[]{7}, buffer.toArray());
+    }
+
+    @Test
+    void doubleAndLongBuffers() {
+        final DoubleArrayBuffer doubles = new DoubleArrayBuffer();
+        final LongArrayBuffer longs = new LongArrayBuffer();
+        for (int i = 0; i < 1000; i++) {
+            doubles.add(i * 0.5);
+            longs.add(i * 10_000_000_000L);
+        }
+        doubles.removeFirst(998);
+        longs.truncate(2);
+        Assertions.assertArrayEquals(new double[]{499, 499.5}, doubles.toArray());
+        Assertions.assertArrayEquals(new long[]{0, 10_000_000_000L}, longs.toArray());
+    }
+}
@@ -0,0 +1,183 @@
+package gr.auth.ee.mug.matlabports;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Random;
+
+import gr.auth.ee.mug.matlabports.CommonFunctions.Summation;
+import gr.auth.ee.mug.matlabports.exceptions.LengthMismatchException;
+
+
+class CommonFunctionsTest {
+
+    @Test
+    void median() {
+        Assertions.assertEquals(2, CommonFunctions.median(new double[]{3, 1, 2}));
+        Assertions.assertEquals(2.5, CommonFunctions.median(new double[]{4, 1, 3, 2}));
+        Assertions.assertEquals(4, CommonFunctions.median(new double[]{Double.NaN, 1, 3, 5}));
+        Assertions.assertEquals(Double.NaN, CommonFunctions.median(new double[]{Double.NaN, 1, Double.NaN}));
+        Assertions.assertEquals(Double.NaN, CommonFunctions.median(new double[0]));
+
+        final Random random = new Random(16);
+        for (int trial = 0; trial < 300; trial++) {
+            final double[] x = randomValues(random, 1 + random.nextInt(2000));
+            final double[] copy = x.clone();
+
+            // The old implementation
+            final double[] y = x.clone();
+            Arrays.sort(y);
+            final int i = y.length / 2 - 1;
+            final double expected = y.length % 2 == 0 ? (y[i] + y[i + 1]) / 2 : y[i + 1];
+
+            Assertions.assertEquals(expected, CommonFunctions.median(x));
+            Assertions.assertArrayEquals(copy, x);
+            Assertions.assertEquals(expected, CommonFunctions.medianInPlace(x));
+        }
+    }
+
+    @Test
+    void prctile() {
+        final double[] x = new double[]{10, 9, 8, 7, 6, 5, 4, 3, 2, 1};
+        Assertions.assertArrayEquals(new double[]{1, 1, 3, 5.5, 9.5, 10},
+                CommonFunctions.prctile(x, new double[]{0, 5, 25, 50, 90, 100}), 1e-12);
+        Assertions.assertEquals(5.5, CommonFunctions.quantile(x, 0.5), 1e-12);
+        Assertions.assertEquals(4, CommonFunctions.prctile(new double[]{Double.NaN, 4}, 50));
+        Assertions.assertEquals(Double.NaN, CommonFunctions.prctile(new double[]{Double.NaN}, 50));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> CommonFunctions.prctile(x, 101));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> CommonFunctions.quantile(x, Double.NaN));
+
+        final Random random = new Random(16);
+        for (int trial = 0; trial < 300; trial++) {
+            final double[] v = randomValues(random, 1 + random.nextInt(2000));
+            final double[] q = new double[1 + random.nextInt(6)];
+            for (int j = 0; j < q.length; j++) {
+                q[j] = random.nextInt(5) == 0 ? random.nextInt(3) / 2.0 : random.nextDouble();
+            }
+
+            // Full sort reference
+            final double[] sorted = Arrays.stream(v).filter(d -> !Double.isNaN(d)).sorted().toArray();
+            final int n = sorted.length;
+            final double[] y = CommonFunctions.quantile(v, q);
+            for (int j = 0; j < q.length; j++) {
+                final double r = Math.min(Math.max(n * q[j] - 0.5, 0), n - 1);
+                final int i = (int) r;
+                final double expected = i == r ? sorted[i] : sorted[i] + (r - i) * (sorted[i + 1] - sorted[i]);
+                Assertions.assertEquals(expected, y[j]);
+            }
+        }
+    }
+
+    @Test
+    void sum() {
+        Assertions.assertEquals(2, CommonFunctions.sum(new double[]{1, 1e100, 1, -1e100}, Summation.KAHAN_BABUSKA));
+        Assertions.assertEquals(Double.POSITIVE_INFINITY,
+                CommonFunctions.sum(new double[]{1, Double.MAX_VALUE, Double.MAX_VALUE}, Summation.KAHAN_BABUSKA));
+        for (Summation summation : Summation.values()) {
+            Assertions.assertEquals(0, CommonFunctions.sum(new double[0], summation));
+            Assertions.assertEquals(Double.NaN, CommonFunctions.sum(new double[]{1, Double.NaN, 2}, summation));
+            Assertions.assertEquals(2.5, CommonFunctions.mean(new double[]{9, 1, 2, 3, 4, 9}, 1, 5, summation));
+        }
+
+        final Random random = new Random(18);
+        final double[] x = new double[1_000_003];
+        BigDecimal exact = BigDecimal.ZERO;
+        for (int i = 0; i < x.length; i++) {
+            x[i] = 1 + random.nextDouble();
+            exact = exact.add(new BigDecimal(x[i]));
+        }
+        final double expected = exact.doubleValue();
+        final double eps = Math.ulp(expected);
+
+        Assertions.assertEquals(expected, CommonFunctions.sum(x, Summation.KAHAN_BABUSKA));
+        Assertions.assertEquals(expected, CommonFunctions.sum(x, Summation.PAIRWISE), 8 * eps);
+        Assertions.assertEquals(expected, CommonFunctions.sum(x, Summation.UNROLLED), 1e-9 * expected);
+        Assertions.assertEquals(CommonFunctions.sum(x), CommonFunctions.sum(x, Summation.NAIVE));
+        Assertions.assertEquals(CommonFunctions.sum(x, 5, 1000, Summation.KAHAN_BABUSKA),
+                CommonFunctions.sum(x, 5, 1000, Summation.PAIRWISE), 1e-12);
+    }
+
+    @Test
+    void unique() throws LengthMismatchException {
+        final double[] x = new double[]{3, 1, Double.NaN, 3, -0.0, 2, 0.0, Double.NaN, 1};
+        Assertions.assertArrayEquals(new boolean[]{true, true, true, false, true, true, false, true, false},
+                CommonFunctions.uniqueSelector(x));
+        Assertions.assertArrayEquals(new double[]{3, 1, Double.NaN, -0.0, 2, Double.NaN}, CommonFunctions.unique(x));
+
+        Assertions.assertArrayEquals(new boolean[]{true, true, false, true, false},
+                CommonFunctions.uniqueSelector(new int[]{0, -1, 0, Integer.MIN_VALUE, -1}));
+
+        Assertions.assertEquals(0, CommonFunctions.unique(new double[0]).length);
+        Assertions.assertEquals(0, CommonFunctions.uniqueSelector(new int[0]).length);
+    }
+
+    @Test
+    void uniqueSorted() {
+        final double[] x = new double[]{3, 1, Double.NaN, 3, -0.0, 2, 0.0, Double.NaN, 1};
+        final Unique u = CommonFunctions.uniqueSorted(x);
+        Assertions.assertArrayEquals(new double[]{-0.0, 1, 2, 3, Double.NaN, Double.NaN}, u.values);
+        Assertions.assertArrayEquals(new int[]{4, 1, 5, 0, 2, 7}, u.ia);
+        Assertions.assertArrayEquals(new int[]{3, 1, 4, 3, 0, 2, 0, 5, 1}, u.ic);
+
+        final Unique empty = CommonFunctions.uniqueSorted(new double[0]);
+        Assertions.assertEquals(0, empty.values.length);
+        Assertions.assertEquals(0, empty.ic.length);
+    }
+
+    @Test
+    void uniqueRandom() throws LengthMismatchException {
+        final Random random = new Random(15);
+        for (int trial = 0; trial < 200; trial++) {
+            final int n = random.nextInt(300);
+            final double[] x = new double[n];
+            final int[] xi = new int[n];
+            for (int i = 0; i < n; i++) {
+                xi[i] = random.nextInt(40) - 20;
+                x[i] = xi[i] / 4.0;
+            }
+
+            // Quadratic reference
+            final boolean[] expected = new boolean[n];
+            for (int i = 0; i < n; i++) {
+                expected[i] = true;
+                for (int j = 0; j < i; j++) {
+                    if (x[i] == x[j]) {
+                        expected[i] = false;
+                        break;
+                    }
+                }
+            }
+            Assertions.assertArrayEquals(expected, CommonFunctions.uniqueSelector(x));
+            Assertions.assertArrayEquals(expected, CommonFunctions.uniqueSelector(xi));
+
+            final Unique u = CommonFunctions.uniqueSorted(x);
+            final double[] stable = CommonFunctions.unique(x);
+            Assertions.assertEquals(stable.length, u.values.length);
+            for (int k = 0; k < u.values.length; k++) {
+                Assertions.assertEquals(x[u.ia[k]], u.values[k]);
+                Assertions.assertTrue(expected[u.ia[k]]);
+                if (k > 0) {
+                    Assertions.assertTrue(u.values[k - 1] < u.values[k]);
+                }
+            }
+            for (int i = 0; i < n; i++) {
+                Assertions.assertEquals(x[i], u.values[u.ic[i]]);
+            }
+        }
+    }
+
+    /**
+     * Values with many repetitions, and some NaNs.
+     */
+    private static double[] randomValues(Random random, int n) {
+        final int levels = 1 + random.nextInt(n);
+        final double[] x = new double[n];
+        for (int i = 0; i < n; i++) {
+            x[i] = random.nextInt(50) == 0 ? Double.NaN : random.nextInt(levels) - levels / 2;
+        }
+
+        return x;
+    }
+}
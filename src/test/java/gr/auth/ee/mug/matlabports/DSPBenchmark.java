@@ -0,0 +1,60 @@
+package gr.auth.ee.mug.matlabports;
+
+import java.util.Random;
+
+
+/**
+ * Micro-benchmarks used to tune the crossover constants of {@link DSP}. Not a unit test; run its main method.
+ */
+public class DSPBenchmark {
+
+    public static void main(String[] args) {
+        autocorrFftCost();
+    }
+
+    /**
+     * Measures the time per multiply-add of the direct auto-correlation and per butterfly of the FFT
+     * auto-correlation. Their ratio is {@link DSP#AUTOCORR_FFT_COST}.
+     */
+    private static void autocorrFftCost() {
+        final Random random = new Random(1);
+
+        for (int n : new int[]{1000, 10000, 100000}) {
+            final double[] x = new double[n];
+            for (int i = 0; i < n; i++) {
+                x[i] = random.nextGaussian();
+            }
+
+            final int m = n / 10;
+            final double direct = time(() -> DSP.autocorrDirect(x, m));
+            final double fft = time(() -> DSP.autocorrFft(x, m));
+
+            final long l = m;
+            final double directOps = (l + 1) * (double) n - l * (l + 1) / 2.0;
+            final int nfft = Various.nextPow2(2 * n - 1);
+            final double fftOps = nfft * (31 - Integer.numberOfLeadingZeros(nfft));
+
+            System.out.printf("autocorr n=%d: %.3f ns/multiply-add, %.3f ns/butterfly, cost=%.2f%n",
+                    n, direct / directOps, fft / fftOps, (fft / fftOps) / (direct / directOps));
+        }
+    }
+
+    /**
+     * @return The median time (in ns) of a task, after warming up for a second.
+     */
+    private static double time(Runnable task) {
+        final int repetitions = 15;
+        final double[] t = new double[repetitions];
+        final long warmUp = System.nanoTime() + 1_000_000_000L;
+        while (System.nanoTime() < warmUp) {
+            task.run();
+        }
+        for (int i = 0; i < repetitions; i++) {
+            final long t0 = System.nanoTime();
+            task.run();
+            t[i] = System.nanoTime() - t0;
+        }
+
+        return CommonFunctions.median(t);
+    }
+}
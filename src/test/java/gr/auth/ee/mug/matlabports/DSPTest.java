@@ -1,8 +1,17 @@
 package gr.auth.ee.mug.matlabports;
 
+import org.apache.commons.math3.linear.ArrayRealVector;
+import org.apache.commons.math3.linear.LUDecomposition;
+import org.apache.commons.math3.linear.MatrixUtils;
+import org.apache.commons.math3.linear.RealMatrix;
+import org.apache.commons.math3.stat.descriptive.rank.Median;
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
 import java.util.concurrent.TimeUnit;
 
 import javax.annotation.Nonnull;
@@ -16,6 +25,65 @@ import static gr.auth.ee.mug.matlabports.DSP.findPeaks;
 
 public class DSPTest {
 
+    @Test
+    void autocorr() {
+        final Random random = new Random(4);
+        for (int n : new int[]{1, 2, 5, 64, 100, 1000}) {
+            final double[] x = new double[n];
+            for (int i = 0; i < n; i++) {
+                x[i] = random.nextGaussian() + 3;
+            }
+            for (int m : new int[]{0, 1, n / 2, n - 1, n, n + 5}) {
+                final double[] r1 = DSP.autocorrDirect(x, m);
+                final double[] r2 = DSP.autocorrFft(x, m);
+                Assertions.assertEquals(m + 1, r2.length);
+                for (int l = 0; l <= m; l++) {
+                    Assertions.assertEquals(r1[l], r2[l], 1e-9 * Math.abs(r1[0]) + 1e-12);
+                }
+            }
+        }
+
+        Assertions.assertFalse(DSP.autocorrUseFft(1000000, 10));
+        Assertions.assertTrue(DSP.autocorrUseFft(1000000, 5000));
+    }
+
+    @Test
+    void dil1dEro1d() throws LengthMismatchException, BadArrayLengthException {
+        final Random random = new Random(1);
+        for (int n = 8; n <= 64; n += 7) {
+            final double[] x = new double[n];
+            final double[] zeros = new double[n];
+            final double[] nans = new double[n];
+            for (int i = 0; i < n; i++) {
+                x[i] = random.nextInt(10);
+                // Signed zeros are equal, so the first one in the window must win, as in CommonFunctions.max
+                zeros[i] = random.nextBoolean() ? 0.0 : -0.0;
+                nans[i] = random.nextInt(5) == 0 ? Double.NaN : random.nextInt(10);
+            }
+            checkDil1dEro1d(x);
+            checkDil1dEro1d(zeros);
+            checkDil1dEro1d(nans);
+        }
+    }
+
+    private static void checkDil1dEro1d(@Nonnull final double[] x)
+            throws LengthMismatchException, BadArrayLengthException {
+        final int n = x.length;
+        final int[] work = new int[n];
+        final double[] y = new double[n];
+        for (int m = 3; 2 * m <= n; m++) {
+            for (boolean shift : new boolean[]{false, true}) {
+                DSP.dil1d(x, y, m, shift, work);
+                Assertions.assertArrayEquals(morphology(x, m, shift, true), y);
+                Assertions.assertArrayEquals(morphology(x, m, shift, true), DSP.dil1d(x, m, shift));
+
+                DSP.ero1d(x, y, m, shift, work);
+                Assertions.assertArrayEquals(morphology(x, m, shift, false), y);
+                Assertions.assertArrayEquals(morphology(x, m, shift, false), DSP.ero1d(x, m, shift));
+            }
+        }
+    }
+
     @Test
     void estimateFs1() throws UnknownTimeUnitException, LengthMismatchException, BadArrayLengthException {
         final double[] t = new double[]{1, 2, 3, 4, 5, 6, 7};
@@ -55,6 +123,54 @@ public class DSPTest {
         assert Math.abs(efs - 1) < 1e-9;
     }
 
+    @Test
+    void filtfilt() throws BadArrayLengthException, LengthMismatchException {
+        final Random random = new Random(5);
+        final double[][] bs = new double[][]{
+                {0.004824343357716, 0.019297373430865, 0.028946060146297, 0.019297373430865, 0.004824343357716},
+                {0.5, 0.5},
+                {2, -1, 0.5}};
+        final double[][] as = new double[][]{
+                {1, -2.369513007182038, 2.313988414415880, -1.054665405878567, 0.187379492368185},
+                {1},
+                {4, 0.4}};
+        for (int k = 0; k < bs.length; k++) {
+            final double[] b = bs[k];
+            final double[] a = as[k];
+            final double[][] x = new double[3][40];
+            for (int c = 0; c < x.length; c++) {
+                for (int i = 0; i < x[c].length; i++) {
+                    x[c][i] = random.nextGaussian() + 5;
+                }
+            }
+
+            final double[] expected = filtfiltReference(b, a, x[0]);
+            Assertions.assertArrayEquals(expected, DSP.filtfilt(b, a, x[0]), 1e-10);
+
+            // In place, and several channels
+            final double[][] y = new double[x.length][];
+            for (int c = 0; c < x.length; c++) {
+                y[c] = x[c].clone();
+            }
+            DSP.filtfilt(b, a, y, y, true);
+            for (int c = 0; c < x.length; c++) {
+                Assertions.assertArrayEquals(filtfiltReference(b, a, x[c]), y[c], 1e-10);
+            }
+
+            // A constant goes through without transients
+            final double[] constant = new double[20];
+            Arrays.fill(constant, 3);
+            final double[] g = DSP.filtfilt(b, a, constant);
+            final double gain = CommonFunctions.sum(b) / CommonFunctions.sum(a);
+            for (double v : g) {
+                Assertions.assertEquals(3 * gain * gain, v, 1e-10);
+            }
+        }
+
+        Assertions.assertThrows(BadArrayLengthException.class,
+                () -> DSP.filtfilt(bs[0], as[0], new double[12]));
+    }
+
     @Test
     void findPeaks1() {
         final double[] x = new double[]{
@@ -86,6 +202,65 @@ public class DSPTest {
         assert Arrays.equals(idx1, idx2);
     }
 
+    @Test
+    void findPeaksRandom() {
+        final Random random = new Random(6);
+        for (int trial = 0; trial < 3000; trial++) {
+            final double[] x = new double[3 + random.nextInt(150)];
+            for (int i = 0; i < x.length; i++) {
+                x[i] = random.nextInt(12) == 0 ? Double.NaN : random.nextInt(8);
+            }
+            final int minPeakDistance = random.nextInt(12);
+            final double minPeakProminence = random.nextInt(4) * 0.75;
+
+            final int[] expected = findPeaksReference(x, minPeakDistance, minPeakProminence);
+            Assertions.assertArrayEquals(expected, findPeaks(x, minPeakDistance, minPeakProminence));
+
+            final Peaks peaks = DSP.findPeaksWithProperties(x, minPeakDistance, minPeakProminence);
+            Assertions.assertArrayEquals(expected, peaks.indices);
+            for (int i = 0; i < peaks.size(); i++) {
+                Assertions.assertEquals(prominenceReference(x, peaks.indices[i]), peaks.prominences[i]);
+            }
+        }
+    }
+
+    @Test
+    void findPeaksWidths() {
+        final double[] x = new double[]{0, 1, 4, 1, 0, 2, 2, 1, 3};
+        final Peaks peaks = DSP.findPeaksWithProperties(x, 0, 0);
+        Assertions.assertArrayEquals(new int[]{2, 5}, peaks.indices);
+        Assertions.assertArrayEquals(new double[]{4, 1}, peaks.prominences);
+        Assertions.assertArrayEquals(new double[]{4.0 / 3, 1.75}, peaks.widths, 1e-12);
+    }
+
+    @Test
+    void imopenImclose() throws LengthMismatchException {
+        final Random random = new Random(2);
+        final MorphologyWorkspace workspace = new MorphologyWorkspace();
+        for (int m = 1; m <= 40; m += 3) {
+            final double[] x = new double[m];
+            for (int i = 0; i < m; i++) {
+                x[i] = random.nextInt(10);
+            }
+            for (int n = 1; n <= 12; n++) {
+                final double[] opened = padMorphologyTrim(x, n, true);
+                final double[] closed = padMorphologyTrim(x, n, false);
+                Assertions.assertArrayEquals(opened, DSP.imopen(x, n));
+                Assertions.assertArrayEquals(closed, DSP.imclose(x, n));
+                Assertions.assertArrayEquals(ArithmeticOperators.subtract(x, opened), DSP.imtophat(x, n));
+                Assertions.assertArrayEquals(ArithmeticOperators.subtract(closed, x), DSP.imbothat(x, n));
+
+                // In place
+                final double[] y = x.clone();
+                DSP.imopen(y, y, n, workspace);
+                Assertions.assertArrayEquals(opened, y);
+                System.arraycopy(x, 0, y, 0, m);
+                DSP.imbothat(y, y, n, workspace);
+                Assertions.assertArrayEquals(ArithmeticOperators.subtract(closed, x), y);
+            }
+        }
+    }
+
     @Test
     void medfilt1() {
         double[] x = new double[]{1, 2, 3, 4, 5, 6};
@@ -94,9 +269,255 @@ public class DSPTest {
         printArray(y);
     }
 
+    @Test
+    void medfilt1Sliding() {
+        final Random random = new Random(3);
+        final Median median = new Median();
+        for (int len = 1; len <= 50; len += 7) {
+            final double[] x = new double[len];
+            for (int i = 0; i < len; i++) {
+                x[i] = random.nextInt(8) == 0 ? Double.NaN : random.nextInt(20) - 10;
+            }
+            for (int n = 1; n <= 12; n++) {
+                final double[] y1 = new double[len];
+                final double[] y2 = new double[len];
+                for (int i = 0; i < len; i++) {
+                    // Reference: zero-padded and truncated windows
+                    final double[] w1 = new double[n];
+                    final double[] w2 = new double[n];
+                    for (int j = 0; j < n; j++) {
+                        final int k = i - n / 2 + j;
+                        w1[j] = k >= 0 && k < len ? x[k] : 0;
+                        w2[j] = k >= 0 && k < len ? x[k] : Double.NaN;
+                    }
+                    y1[i] = median.evaluate(w1);
+                    y2[i] = median.evaluate(w2);
+                }
+                Assertions.assertArrayEquals(y1, DSP.medfilt1(x, n));
+                Assertions.assertArrayEquals(y2, DSP.medfilt1(x, n, true));
+            }
+        }
+    }
+
+    /**
+     * Reference (brute-force) dilation/erosion.
+     */
+    @Nonnull
+    private static double[] morphology(@Nonnull final double[] x, final int m, final boolean shift, final boolean dil) {
+        int nl = (m - 1) / 2;
+        int nr = (m - 1) / 2;
+        if (m % 2 == 0) {
+            nl = dil ? m / 2 : m / 2 - 1;
+            nr = dil ? m / 2 - 1 : m / 2;
+        }
+        if (shift) {
+            nl--;
+            nr++;
+        }
+
+        final double[] y = new double[x.length];
+        for (int i = 0; i < x.length; i++) {
+            final int i1 = i >= x.length - m ? i - nl : i < m ? 0 : i - nl;
+            final int i2 = i >= x.length - m ? x.length - 1 : i + nr;
+            y[i] = dil ? CommonFunctions.max(x, i1, i2) : CommonFunctions.min(x, i1, i2);
+        }
+
+        return y;
+    }
+
+    /**
+     * Reference image-opening/closing: pads with the edge values, erodes/dilates, and trims.
+     */
+    @Nonnull
+    private static double[] padMorphologyTrim(@Nonnull final double[] x, final int n, final boolean open)
+            throws LengthMismatchException {
+        final int m = x.length;
+        final double[] y = new double[m + 2 * n];
+        for (int i = 0; i < n; i++) {
+            y[i] = x[0];
+            y[y.length - 1 - i] = x[m - 1];
+        }
+        System.arraycopy(x, 0, y, n, m);
+
+        final double[] z = open ? DSP.dil1d(DSP.ero1d(y, n), n) : DSP.ero1d(DSP.dil1d(y, n), n);
+        return Arrays.copyOfRange(z, n, n + m);
+    }
+
     private void printArray(@Nonnull final double[] x) {
         for (int i = 0; i < x.length; i++) {
             System.out.println(i + ": " + x[i]);
         }
     }
+
+    /**
+     * Reference filtfilt, following MATLAB's implementation step by step.
+     */
+    @Nonnull
+    private static double[] filtfiltReference(@Nonnull double[] b, @Nonnull double[] a, @Nonnull double[] x) {
+        final int nfilt = Math.max(b.length, a.length);
+        final double[] bn = new double[nfilt];
+        final double[] an = new double[nfilt];
+        for (int i = 0; i < b.length; i++) {
+            bn[i] = b[i] / a[0];
+        }
+        for (int i = 0; i < a.length; i++) {
+            an[i] = a[i] / a[0];
+        }
+        final int nfact = 3 * (nfilt - 1);
+
+        // zi = (eye(nfilt - 1) - [-a(2:nfilt), [eye(nfilt - 2); zeros(1, nfilt - 2)]]) \ (b(2:nfilt) - b(1) * a(2:nfilt))
+        final double[] zi = new double[nfilt - 1];
+        if (nfilt > 1) {
+            final RealMatrix m = MatrixUtils.createRealIdentityMatrix(nfilt - 1);
+            final double[] rhs = new double[nfilt - 1];
+            for (int i = 0; i < nfilt - 1; i++) {
+                m.addToEntry(i, 0, an[i + 1]);
+                if (i < nfilt - 2) {
+                    m.addToEntry(i, i + 1, -1);
+                }
+                rhs[i] = bn[i + 1] - bn[0] * an[i + 1];
+            }
+            System.arraycopy(new LUDecomposition(m).getSolver().solve(new ArrayRealVector(rhs)).toArray(), 0,
+                    zi, 0, nfilt - 1);
+        }
+
+        final int n = x.length;
+        final double[] xt = new double[nfact];
+        final double[] xt2 = new double[nfact];
+        for (int i = 0; i < nfact; i++) {
+            xt[i] = 2 * x[0] - x[nfact - i];
+            xt2[i] = 2 * x[n - 1] - x[n - 2 - i];
+        }
+
+        final double[] z = new double[nfilt - 1];
+        for (int i = 0; i < z.length; i++) {
+            z[i] = zi[i] * (nfact > 0 ? xt[0] : x[0]);
+        }
+        filter(bn, an, xt, z);
+        final double[] y = x.clone();
+        filter(bn, an, y, z);
+        filter(bn, an, xt2, z);
+
+        reverse(xt2);
+        reverse(y);
+        reverse(xt);
+        for (int i = 0; i < z.length; i++) {
+            z[i] = zi[i] * (nfact > 0 ? xt2[0] : y[0]);
+        }
+        filter(bn, an, xt2, z);
+        filter(bn, an, y, z);
+        reverse(y);
+
+        return y;
+    }
+
+    /**
+     * MATLAB: {@code [x, z] = filter(b, a, x, z);}
+     */
+    private static void filter(@Nonnull double[] b, @Nonnull double[] a, @Nonnull double[] x, @Nonnull double[] z) {
+        final int order = z.length;
+        for (int i = 0; i < x.length; i++) {
+            final double v = x[i];
+            final double r = b[0] * v + (order > 0 ? z[0] : 0);
+            for (int k = 0; k < order; k++) {
+                z[k] = b[k + 1] * v - a[k + 1] * r + (k + 1 < order ? z[k + 1] : 0);
+            }
+            x[i] = r;
+        }
+    }
+
+    private static void reverse(@Nonnull double[] x) {
+        for (int i = 0, j = x.length - 1; i < j; i++, j--) {
+            final double t = x[i];
+            x[i] = x[j];
+            x[j] = t;
+        }
+    }
+
+    /**
+     * Reference findPeaks: local maxima, then prominence and distance checks by brute force.
+     */
+    @Nonnull
+    private static int[] findPeaksReference(@Nonnull double[] x, int minPeakDistance, double minPeakProminence) {
+        final List<Integer> peaks = new ArrayList<>();
+        for (int i = 1; i < x.length - 1; i++) {
+            if (x[i] <= x[i - 1]) {
+                continue;
+            }
+            int j = i + 1;
+            while (j < x.length && x[j] == x[i]) {
+                j++;
+            }
+            if (j < x.length && x[i] > x[j]) {
+                peaks.add(i);
+            }
+            i = j - 1;
+        }
+
+        if (minPeakProminence > 0) {
+            peaks.removeIf(i -> !(prominenceReference(x, i) > minPeakProminence));
+        }
+
+        if (minPeakDistance > 0) {
+            // Highest first; ties in order of index
+            final List<Integer> sorted = new ArrayList<>(peaks);
+            sorted.sort((i, j) -> Double.compare(x[j], x[i]));
+            final List<Integer> accepted = new ArrayList<>();
+            for (int i : sorted) {
+                if (accepted.stream().allMatch(j -> Math.abs(i - j) > minPeakDistance)) {
+                    accepted.add(i);
+                }
+            }
+            peaks.retainAll(accepted);
+        }
+
+        return peaks.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Reference prominence: each side extends to the nearest higher local maximum.
+     */
+    private static double prominenceReference(@Nonnull double[] x, int peak) {
+        final List<Integer> maxima = new ArrayList<>();
+        for (int i = 1; i < x.length - 1; i++) {
+            if (x[i] <= x[i - 1]) {
+                continue;
+            }
+            int j = i + 1;
+            while (j < x.length && x[j] == x[i]) {
+                j++;
+            }
+            if (j < x.length && x[i] > x[j]) {
+                maxima.add(i);
+            }
+            i = j - 1;
+        }
+
+        int left = 0;
+        int right = x.length - 1;
+        for (int i : maxima) {
+            if (x[i] > x[peak]) {
+                if (i < peak) {
+                    left = i;
+                } else if (right == x.length - 1) {
+                    right = i;
+                }
+            }
+        }
+
+        double leftMin = x[left];
+        for (int i = left + 1; i < peak; i++) {
+            if (x[i] < leftMin) {
+                leftMin = x[i];
+            }
+        }
+        double rightMin = x[peak];
+        for (int i = peak + 1; i <= right; i++) {
+            if (x[i] < rightMin) {
+                rightMin = x[i];
+            }
+        }
+
+        return x[peak] - Math.max(leftMin, rightMin);
+    }
 }
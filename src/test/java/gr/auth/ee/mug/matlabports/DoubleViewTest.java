@@ -0,0 +1,110 @@
+package gr.auth.ee.mug.matlabports;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import gr.auth.ee.mug.matlabports.exceptions.LengthMismatchException;
+
+import static gr.auth.ee.mug.matlabports.SelectorsSetters.END;
+
+
+class DoubleViewTest {
+
+    @Test
+    void ranges() {
+        final double[] x = {0, 1, 2, 3, 4, 5, 6, 7, 8, 9};
+        Assertions.assertArrayEquals(new double[]{1, 3, 5, 7, 9}, DoubleView.of(x, 1, 2, END).toArray());
+        Assertions.assertArrayEquals(new double[]{0, 2, 4, 6}, DoubleView.of(x, 0, 2, END - 2).toArray());
+        Assertions.assertArrayEquals(new double[]{9, 6, 3, 0}, DoubleView.of(x, END, -3, 0).toArray());
+        Assertions.assertArrayEquals(new double[]{5, 3}, DoubleView.of(x, 5, -2, 2).toArray());
+        Assertions.assertArrayEquals(new double[]{4}, DoubleView.of(x, 4, 1, 4).toArray());
+        Assertions.assertEquals(0, DoubleView.of(x, 5, 1, 4).length());
+        Assertions.assertEquals(0, DoubleView.of(x, 4, -1, 5).length());
+        Assertions.assertEquals(0, DoubleView.of(new double[0], 0, 1, END).length());
+
+        // Views of views, and writing through them
+        final DoubleView v = DoubleView.of(x, 1, 2, END);
+        Assertions.assertArrayEquals(new double[]{7, 3}, v.view(END - 1, -2, 0).toArray());
+        Assertions.assertArrayEquals(new double[]{9, 7, 5, 3, 1}, v.flip().toArray());
+        v.view(0, 3, END).set(1, -7);
+        Assertions.assertEquals(-7, x[7]);
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> DoubleView.of(x, 0, 0, 5));
+        Assertions.assertThrows(IndexOutOfBoundsException.class, () -> DoubleView.of(x, 0, 1, 10));
+        Assertions.assertThrows(IndexOutOfBoundsException.class, () -> DoubleView.of(x, 0, -1, -11));
+        Assertions.assertThrows(IndexOutOfBoundsException.class, () -> DoubleView.of(x, 0, 1, Integer.MAX_VALUE));
+        Assertions.assertThrows(IndexOutOfBoundsException.class,
+                () -> DoubleView.of(x, Integer.MIN_VALUE, 1, Integer.MAX_VALUE));
+        Assertions.assertThrows(IndexOutOfBoundsException.class, () -> DoubleView.of(x, END, -1, Integer.MIN_VALUE));
+        Assertions.assertThrows(IndexOutOfBoundsException.class, () -> v.get(5));
+    }
+
+    @Test
+    void sameAsCopies() throws LengthMismatchException {
+        final Random random = new Random(24);
+        final double[] x = new double[1001];
+        final double[] y = new double[1001];
+        for (int i = 0; i < x.length; i++) {
+            x[i] = random.nextGaussian();
+            y[i] = random.nextGaussian();
+        }
+
+        for (int step : new int[]{1, 2, 7, -1, -3}) {
+            final DoubleView vx = step > 0 ? DoubleView.of(x, 3, step, END) : DoubleView.of(x, END, step, 3);
+            final DoubleView vy = step > 0 ? DoubleView.of(y, 3, step, END) : DoubleView.of(y, END, step, 3);
+            final double[] cx = vx.toArray();
+            final double[] cy = vy.toArray();
+
+            Assertions.assertEquals(CommonFunctions.sum(cx), CommonFunctions.sum(vx), 1e-12);
+            Assertions.assertEquals(CommonFunctions.mean(cx), CommonFunctions.mean(vx), 1e-12);
+            Assertions.assertEquals(CommonFunctions.normL1(cx), CommonFunctions.normL1(vx), 1e-12);
+            Assertions.assertEquals(CommonFunctions.normL2(cx), CommonFunctions.normL2(vx), 1e-12);
+            Assertions.assertEquals(CommonFunctions.innerProduct(cx, cy), CommonFunctions.innerProduct(vx, vy), 1e-12);
+            Assertions.assertEquals(CommonFunctions.maxIdx(cx, 0, cx.length - 1), CommonFunctions.maxIdx(vx));
+            Assertions.assertEquals(CommonFunctions.minIdx(cx, 0, cx.length - 1), CommonFunctions.minIdx(vx));
+            Assertions.assertEquals(CommonFunctions.max(cx, 0, cx.length - 1), CommonFunctions.max(vx));
+            Assertions.assertEquals(CommonFunctions.min(cx, 0, cx.length - 1), CommonFunctions.min(vx));
+
+            final double[] z = new double[2 * cx.length];
+            final DoubleView vz = DoubleView.of(z, 1, 2, END);
+            ArithmeticOperators.add(vx, vy, vz);
+            Assertions.assertArrayEquals(ArithmeticOperators.add(cx, cy), vz.toArray());
+            ArithmeticOperators.subtract(vx, vy, vz);
+            Assertions.assertArrayEquals(ArithmeticOperators.subtract(cx, cy), vz.toArray());
+        }
+
+        final double[] c = x.clone();
+        final DoubleView v = DoubleView.of(c, END, -2, 0);
+        ArithmeticOperators.addInPlace(v, 1);
+        ArithmeticOperators.multiplyInPlace(v, 2);
+        for (int i = 0; i < c.length; i++) {
+            Assertions.assertEquals(i % 2 == 0 ? (x[i] + 1) * 2 : x[i], c[i]);
+        }
+
+        // Output overlapping an input: x(2:end) = x(1:end-1) + y
+        final double[] s = {1, 2, 3, 4, 5};
+        ArithmeticOperators.add(DoubleView.of(s, 0, 1, END - 1), DoubleView.of(new double[]{10, 10, 10, 10}),
+                DoubleView.of(s, 1, 1, END));
+        Assertions.assertArrayEquals(new double[]{1, 11, 12, 13, 14}, s);
+        // x(2:end) = x(1:end-1) - y
+        final double[] t = {1, 2, 3, 4, 5};
+        ArithmeticOperators.subtract(DoubleView.of(t, 0, 1, END - 1), DoubleView.of(new double[]{1, 1, 1, 1}),
+                DoubleView.of(t, 1, 1, END));
+        Assertions.assertArrayEquals(new double[]{1, 0, 1, 2, 3}, t);
+        // x = flip(x) + 0
+        final double[] f = {1, 2, 3, 4};
+        final DoubleView vf = DoubleView.of(f);
+        ArithmeticOperators.add(vf, DoubleView.of(new double[4]), vf.flip());
+        Assertions.assertArrayEquals(new double[]{4, 3, 2, 1}, f);
+        // x = x - flip(x)
+        final double[] g = {1, 2, 3, 4};
+        final DoubleView vg = DoubleView.of(g);
+        ArithmeticOperators.subtract(vg, vg.flip(), vg);
+        Assertions.assertArrayEquals(new double[]{-3, -1, 1, 3}, g);
+
+        Assertions.assertThrows(LengthMismatchException.class,
+                () -> CommonFunctions.innerProduct(DoubleView.of(x), DoubleView.of(x, 0, 2, END)));
+    }
+}
@@ -0,0 +1,91 @@
+package gr.auth.ee.mug.matlabports;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import gr.auth.ee.mug.matlabports.exceptions.LengthMismatchException;
+
+
+class ExprTest {
+
+    @Test
+    void sameAsOperators() throws LengthMismatchException {
+        final Random random = new Random(21);
+        for (int n : new int[]{0, 1, 255, 256, 257, 1000}) {
+            final double[] x = random(random, n);
+            final double[] y = random(random, n);
+            final int[] k = new int[n];
+            for (int i = 0; i < n; i++) {
+                k[i] = random.nextInt(10);
+            }
+
+            // (2 x + 1) .* y - k, element by element, and x ./ y
+            final double[] z = new double[n];
+            final double[] q = new double[n];
+            for (int i = 0; i < n; i++) {
+                z[i] = (x[i] * 2 + 1) * y[i] - k[i];
+                q[i] = x[i] / y[i];
+            }
+            final Expr e = Expr.of(x).mul(2).add(1).mul(Expr.of(y)).sub(Expr.of(k));
+            Assertions.assertArrayEquals(z, e.toArray());
+            Assertions.assertArrayEquals(q, Expr.of(x).div(Expr.of(y)).toArray());
+
+            double sum = 0;
+            double dot = 0;
+            for (int i = 0; i < n; i++) {
+                sum += z[i];
+                dot += z[i] * x[i];
+            }
+            Assertions.assertEquals(sum, e.sum());
+            Assertions.assertEquals(dot, e.dot(Expr.of(x)));
+            if (n > 0) {
+                Assertions.assertEquals(CommonFunctions.max(z, 0, n - 1), e.max());
+                Assertions.assertEquals(CommonFunctions.min(z, 0, n - 1), e.min());
+            }
+
+            final boolean[] less = LogicalOperators.less(z, 0.5);
+            final boolean[] both = LogicalOperators.and(less, LogicalOperators.more(x, 0));
+            Assertions.assertArrayEquals(less, e.lt(0.5).toArray());
+            final BooleanExpr b = e.lt(0.5).and(Expr.of(x).gt(0));
+            Assertions.assertArrayEquals(both, b.toArray());
+            Assertions.assertEquals(CommonFunctions.sum(both), b.count());
+            Assertions.assertEquals(CommonFunctions.sum(both) > 0, b.any());
+            Assertions.assertEquals(CommonFunctions.sum(both) == n, b.all());
+            Assertions.assertEquals(n - CommonFunctions.sum(both), b.not().count());
+            Assertions.assertEquals(n, Expr.of(x).le(Expr.of(x)).or(BooleanExpr.of(both)).count());
+
+            // In place
+            e.into(x);
+            Assertions.assertArrayEquals(z, x);
+        }
+
+        Assertions.assertThrows(LengthMismatchException.class, () -> Expr.of(new double[3]).add(Expr.of(new int[4])));
+        Assertions.assertThrows(LengthMismatchException.class, () -> Expr.of(new double[3]).into(new double[2]));
+    }
+
+    @Test
+    void corr() throws LengthMismatchException {
+        final Random random = new Random(21);
+        final double[] x = random(random, 1000);
+        final double[] y = random(random, 1000);
+
+        // The definition, with ArithmeticOperators
+        final double[] x0 = ArithmeticOperators.add(x, -CommonFunctions.mean(x));
+        final double[] y0 = ArithmeticOperators.add(y, -CommonFunctions.mean(y));
+        final double expected = CommonFunctions.innerProduct(x0, y0)
+                / (CommonFunctions.normL2(x0) * CommonFunctions.normL2(y0));
+
+        Assertions.assertEquals(expected, DSP.corr(x, y));
+    }
+
+    private static double[] random(Random random, int n) {
+        final double[] x = new double[n];
+        for (int i = 0; i < n; i++) {
+            x[i] = random.nextGaussian();
+        }
+
+        return x;
+    }
+}
@@ -0,0 +1,84 @@
+package gr.auth.ee.mug.matlabports;
+
+import org.apache.commons.math3.transform.DftNormalization;
+import org.apache.commons.math3.transform.FastFourierTransformer;
+import org.apache.commons.math3.transform.TransformType;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import gr.auth.ee.mug.matlabports.exceptions.BadArrayLengthException;
+
+
+class FFTTest {
+
+    private static final double TOLERANCE = 1e-9;
+
+    @Test
+    void complex() throws BadArrayLengthException {
+        final Random random = new Random(1);
+        for (int n = 1; n <= 1024; n *= 2) {
+            final double[][] expected = new double[2][n];
+            final double[] re = new double[n];
+            final double[] im = new double[n];
+            final double[] z = new double[2 * n];
+            for (int i = 0; i < n; i++) {
+                re[i] = expected[0][i] = z[2 * i] = random.nextGaussian();
+                im[i] = expected[1][i] = z[2 * i + 1] = random.nextGaussian();
+            }
+
+            FastFourierTransformer.transformInPlace(expected, DftNormalization.STANDARD, TransformType.FORWARD);
+            FFT.of(n).forward(re, im);
+            FFT.of(n).forward(z);
+            for (int i = 0; i < n; i++) {
+                Assertions.assertEquals(expected[0][i], re[i], TOLERANCE);
+                Assertions.assertEquals(expected[1][i], im[i], TOLERANCE);
+                Assertions.assertEquals(expected[0][i], z[2 * i], TOLERANCE);
+                Assertions.assertEquals(expected[1][i], z[2 * i + 1], TOLERANCE);
+            }
+
+            FastFourierTransformer.transformInPlace(expected, DftNormalization.STANDARD, TransformType.INVERSE);
+            FFT.of(n).inverse(re, im);
+            FFT.of(n).inverse(z);
+            for (int i = 0; i < n; i++) {
+                Assertions.assertEquals(expected[0][i], re[i], TOLERANCE);
+                Assertions.assertEquals(expected[1][i], im[i], TOLERANCE);
+                Assertions.assertEquals(expected[0][i], z[2 * i], TOLERANCE);
+                Assertions.assertEquals(expected[1][i], z[2 * i + 1], TOLERANCE);
+            }
+        }
+    }
+
+    @Test
+    void real() throws BadArrayLengthException {
+        final Random random = new Random(2);
+        for (int n = 1; n <= 1024; n *= 2) {
+            final double[][] expected = new double[2][n];
+            final double[] x = new double[n];
+            for (int i = 0; i < n; i++) {
+                x[i] = expected[0][i] = random.nextGaussian();
+            }
+
+            FastFourierTransformer.transformInPlace(expected, DftNormalization.STANDARD, TransformType.FORWARD);
+            final double[] re = new double[n / 2 + 1];
+            final double[] im = new double[n / 2 + 1];
+            FFT.of(n).forwardReal(x, re, im);
+            for (int i = 0; i <= n / 2; i++) {
+                Assertions.assertEquals(expected[0][i], re[i], TOLERANCE);
+                Assertions.assertEquals(expected[1][i], im[i], TOLERANCE);
+            }
+
+            final double[] y = new double[n];
+            FFT.of(n).inverseReal(re, im, y);
+            Assertions.assertArrayEquals(x, y, TOLERANCE);
+        }
+    }
+
+    @Test
+    void plans() {
+        Assertions.assertSame(FFT.of(64), FFT.of(64));
+        Assertions.assertEquals(64, FFT.of(64).length());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> FFT.of(12));
+    }
+}
@@ -1,7 +1,10 @@
 package gr.auth.ee.mug.matlabports;
 
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import java.util.Random;
+
 import gr.auth.ee.mug.matlabports.exceptions.BadArrayLengthException;
 import gr.auth.ee.mug.matlabports.exceptions.LengthMismatchException;
 
@@ -22,4 +25,55 @@ public class IIRFilterTest {
 
         System.out.println(y);
     }
+
+    @Test
+    void blocks() throws BadArrayLengthException, LengthMismatchException {
+        // MATLAB: [b, a] = butter(4, 0.2);
+        final double[] b = new double[]{
+                0.004824343357716, 0.019297373430865, 0.028946060146297, 0.019297373430865, 0.004824343357716};
+        final double[] a = new double[]{
+                1, -2.369513007182038, 2.313988414415880, -1.054665405878567, 0.187379492368185};
+
+        final Random random = new Random(1);
+        final double[] x = new double[300];
+        for (int i = 0; i < x.length; i++) {
+            x[i] = random.nextGaussian();
+        }
+
+        // Reference: direct evaluation of the difference equation over the whole signal
+        final double[] expected = new double[x.length];
+        for (int i = 0; i < x.length; i++) {
+            expected[i] = b[0] * x[i];
+            for (int j = 1; j < b.length; j++) {
+                if (i - j >= 0) {
+                    expected[i] += b[j] * x[i - j] - a[j] * expected[i - j];
+                }
+            }
+        }
+
+        // Blocks of varying length (shorter than the filter order too), in place
+        final IIRFilter filter = new IIRFilter(b, a);
+        int i = 0;
+        int length = 1;
+        while (i < x.length) {
+            final int n = Math.min(length, x.length - i);
+            final double[] block = new double[n];
+            System.arraycopy(x, i, block, 0, n);
+            filter.apply(block, block);
+            for (int j = 0; j < n; j++) {
+                Assertions.assertEquals(expected[i + j], block[j]);
+            }
+            i += n;
+            length = length % 11 + 1;
+        }
+
+        // Sample by sample, after a reset
+        filter.reset();
+        for (i = 0; i < x.length; i++) {
+            Assertions.assertEquals(expected[i], filter.step(x[i]));
+        }
+
+        // Pure gain
+        Assertions.assertEquals(6, new IIRFilter(new double[]{2}, new double[]{1}).step(3));
+    }
 }
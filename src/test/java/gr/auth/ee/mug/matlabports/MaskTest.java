@@ -0,0 +1,91 @@
+package gr.auth.ee.mug.matlabports;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import gr.auth.ee.mug.matlabports.exceptions.LengthMismatchException;
+
+
+class MaskTest {
+
+    @Test
+    void sameAsBooleanSelectors() throws LengthMismatchException {
+        final Random random = new Random(22);
+        for (int n : new int[]{0, 1, 63, 64, 65, 200, 1000}) {
+            final double[] x = new double[n];
+            final int[] xi = new int[n];
+            final long[] xl = new long[n];
+            for (int i = 0; i < n; i++) {
+                x[i] = random.nextInt(5) == 0 ? Double.NaN : random.nextInt(7);
+                xi[i] = i;
+                xl[i] = -i;
+            }
+
+            final boolean[] b = LogicalOperators.less(x, 3);
+            final boolean[] c = LogicalOperators.moreeq(x, 2);
+            final Mask mb = Mask.less(x, 3);
+            final Mask mc = Mask.moreeq(x, 2);
+            Assertions.assertArrayEquals(b, mb.toBooleanArray());
+            Assertions.assertArrayEquals(c, mc.toBooleanArray());
+            Assertions.assertEquals(mb, Mask.of(b));
+            Assertions.assertArrayEquals(LogicalOperators.lesseq(x, 3), Mask.lesseq(x, 3).toBooleanArray());
+            Assertions.assertArrayEquals(LogicalOperators.more(x, 3), Mask.more(x, 3).toBooleanArray());
+            Assertions.assertArrayEquals(LogicalOperators.isEqual(x, 3), Mask.isEqual(x, 3).toBooleanArray());
+            Assertions.assertEquals(mb, Expr.of(x).lt(3).toMask());
+
+            // Algebra
+            final boolean[] and = LogicalOperators.and(b, c);
+            final boolean[] not = LogicalOperators.not(b);
+            final boolean[] or = new boolean[n];
+            final boolean[] xor = new boolean[n];
+            for (int i = 0; i < n; i++) {
+                or[i] = b[i] || c[i];
+                xor[i] = b[i] ^ c[i];
+            }
+            Assertions.assertArrayEquals(and, mb.and(mc).toBooleanArray());
+            Assertions.assertArrayEquals(or, mb.or(mc).toBooleanArray());
+            Assertions.assertArrayEquals(xor, mb.xor(mc).toBooleanArray());
+            Assertions.assertArrayEquals(not, mb.not().toBooleanArray());
+            Assertions.assertEquals(CommonFunctions.sum(not), mb.not().count());
+            Assertions.assertEquals(n, mb.or(mb.not()).count());
+            Assertions.assertTrue(mb.or(mb.not()).all());
+            Assertions.assertFalse(mb.and(mb.not()).any());
+
+            // Selection
+            Assertions.assertEquals(CommonFunctions.sum(b), mb.count());
+            Assertions.assertArrayEquals(SelectorsSetters.find(b), SelectorsSetters.find(mb));
+            Assertions.assertArrayEquals(SelectorsSetters.select(x, b), SelectorsSetters.select(x, mb));
+            Assertions.assertArrayEquals(SelectorsSetters.select(xi, b), SelectorsSetters.select(xi, mb));
+            Assertions.assertArrayEquals(SelectorsSetters.select(xl, b), SelectorsSetters.select(xl, mb));
+
+            final double[] y1 = x.clone();
+            final double[] y2 = x.clone();
+            final Mask all = new Mask(n).not();
+            SelectorsSetters.set(y1, or, -1);
+            SelectorsSetters.set(y2, mb.or(mc), -1);
+            Assertions.assertArrayEquals(y1, y2);
+            SelectorsSetters.set(y2, all, 5);
+            for (double v : y2) {
+                Assertions.assertEquals(5, v);
+            }
+        }
+    }
+
+    @Test
+    void bits() {
+        final Mask m = new Mask(130);
+        m.set(0, true);
+        m.set(64, true);
+        m.set(129, true);
+        m.set(64, false);
+        Assertions.assertArrayEquals(new int[]{0, 129}, m.find());
+        Assertions.assertTrue(m.get(129));
+        Assertions.assertFalse(m.get(64));
+        Assertions.assertEquals(128, m.not().count());
+        Assertions.assertThrows(IndexOutOfBoundsException.class, () -> m.get(130));
+        Assertions.assertThrows(LengthMismatchException.class, () -> m.and(new Mask(129)));
+        Assertions.assertThrows(LengthMismatchException.class, () -> SelectorsSetters.select(new double[3], m));
+    }
+}
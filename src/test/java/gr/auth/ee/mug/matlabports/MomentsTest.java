@@ -0,0 +1,96 @@
+package gr.auth.ee.mug.matlabports;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+
+class MomentsTest {
+
+    @Test
+    void sameAsTwoPass() {
+        final Random random = new Random(17);
+        for (int trial = 0; trial < 50; trial++) {
+            final int n = 2 + random.nextInt(5000);
+            final double[] x = new double[n];
+            for (int i = 0; i < n; i++) {
+                // Large offset, to make the naive formulas fail
+                x[i] = 1e6 + random.nextGaussian() + (random.nextInt(10) == 0 ? 3 * random.nextDouble() : 0);
+            }
+            final double[] expected = twoPass(x);
+
+            // Whole array, value by value, and in random chunks merged in random order
+            final Moments whole = new Moments();
+            whole.add(x);
+            final Moments single = new Moments();
+            for (double v : x) {
+                single.add(v);
+            }
+            final Moments merged = new Moments();
+            int i = 0;
+            while (i < n) {
+                final int e = Math.min(n, i + 1 + random.nextInt(3000));
+                final Moments chunk = new Moments();
+                chunk.add(x, i, e);
+                if (random.nextBoolean()) {
+                    merged.merge(chunk);
+                } else {
+                    chunk.merge(merged);
+                    merged.reset();
+                    merged.merge(chunk);
+                }
+                i = e;
+            }
+
+            for (Moments m : new Moments[]{whole, single, merged}) {
+                Assertions.assertEquals(n, m.count());
+                Assertions.assertEquals(expected[0], m.mean(), 1e-7);
+                Assertions.assertEquals(expected[1], m.var(true), 1e-9 * expected[1]);
+                Assertions.assertEquals(expected[2], m.skewness(), 1e-7);
+                Assertions.assertEquals(expected[3], m.kurtosis(), 1e-7);
+            }
+            Assertions.assertEquals(expected[1], CommonFunctions.var(x, true), 1e-9 * expected[1]);
+            Assertions.assertEquals(Math.sqrt(expected[1] * (n - 1) / n), CommonFunctions.std(x, false),
+                    1e-9 * Math.sqrt(expected[1]));
+            Assertions.assertEquals(expected[2], CommonFunctions.skewness(x), 1e-7);
+            Assertions.assertEquals(expected[3], CommonFunctions.kurtosis(x), 1e-7);
+        }
+    }
+
+    @Test
+    void empty() {
+        final Moments m = new Moments();
+        Assertions.assertEquals(0, m.count());
+        Assertions.assertEquals(Double.NaN, m.mean());
+        Assertions.assertEquals(Double.NaN, m.var(false));
+        m.merge(new Moments());
+        Assertions.assertEquals(0, m.count());
+        m.add(5);
+        Assertions.assertEquals(5, m.mean());
+        Assertions.assertEquals(0, m.var(false));
+    }
+
+    /**
+     * Mean, unbiased variance, skewness and kurtosis.
+     */
+    private static double[] twoPass(double[] x) {
+        final int n = x.length;
+        double mu = 0;
+        for (double v : x) {
+            mu += v;
+        }
+        mu /= n;
+        double m2 = 0;
+        double m3 = 0;
+        double m4 = 0;
+        for (double v : x) {
+            final double d = v - mu;
+            m2 += d * d;
+            m3 += d * d * d;
+            m4 += d * d * d * d;
+        }
+
+        return new double[]{mu, m2 / (n - 1), m3 / n / Math.pow(m2 / n, 1.5), m4 / n / (m2 / n * m2 / n)};
+    }
+}
@@ -0,0 +1,101 @@
+package gr.auth.ee.mug.matlabports;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import gr.auth.ee.mug.matlabports.exceptions.BadArrayLengthException;
+import gr.auth.ee.mug.matlabports.exceptions.LengthMismatchException;
+
+
+class MultichannelIIRFilterTest {
+
+    /**
+     * MATLAB: {@code [b, a] = butter(4, 0.2);}
+     */
+    private static final double[] B = new double[]{
+            0.004824343357716, 0.019297373430865, 0.028946060146297, 0.019297373430865, 0.004824343357716};
+    private static final double[] A = new double[]{
+            1, -2.369513007182038, 2.313988414415880, -1.054665405878567, 0.187379492368185};
+
+    private static final int CHANNELS = 6;
+    private static final int BLOCK = 50;
+    private static final int BLOCKS = 8;
+
+    @Test
+    void channelMajor() throws BadArrayLengthException, LengthMismatchException {
+        final double[][] x = randomSignals(CHANNELS, BLOCK * BLOCKS);
+        final double[][] expected = expected(x);
+
+        final MultichannelIIRFilter filter = new MultichannelIIRFilter(B, A, CHANNELS);
+        for (int k = 0; k < BLOCKS; k++) {
+            final double[][] block = new double[CHANNELS][BLOCK];
+            for (int c = 0; c < CHANNELS; c++) {
+                System.arraycopy(x[c], k * BLOCK, block[c], 0, BLOCK);
+            }
+            filter.apply(block, block);
+            for (int c = 0; c < CHANNELS; c++) {
+                for (int i = 0; i < BLOCK; i++) {
+                    Assertions.assertEquals(expected[c][k * BLOCK + i], block[c][i]);
+                }
+            }
+        }
+    }
+
+    @Test
+    void interleaved() throws BadArrayLengthException, LengthMismatchException {
+        final double[][] x = randomSignals(CHANNELS, BLOCK * BLOCKS);
+        final double[][] expected = expected(x);
+
+        // Blocks of varying length, shorter than the filter order too
+        final MultichannelIIRFilter filter = new MultichannelIIRFilter(B, A, CHANNELS);
+        int i = 0;
+        int length = 1;
+        while (i < x[0].length) {
+            final int n = Math.min(length, x[0].length - i);
+            final double[] block = new double[n * CHANNELS];
+            for (int j = 0; j < n; j++) {
+                for (int c = 0; c < CHANNELS; c++) {
+                    block[j * CHANNELS + c] = x[c][i + j];
+                }
+            }
+            final double[] y = new double[block.length];
+            filter.applyInterleaved(block, y);
+            for (int j = 0; j < n; j++) {
+                for (int c = 0; c < CHANNELS; c++) {
+                    Assertions.assertEquals(expected[c][i + j], y[j * CHANNELS + c]);
+                }
+            }
+            i += n;
+            length = length % 13 + 1;
+        }
+
+        Assertions.assertThrows(BadArrayLengthException.class,
+                () -> filter.applyInterleaved(new double[CHANNELS + 1], new double[CHANNELS + 1]));
+    }
+
+    /**
+     * One IIRFilter per channel, over the whole signal.
+     */
+    private static double[][] expected(double[][] x) throws BadArrayLengthException, LengthMismatchException {
+        final double[][] y = new double[x.length][x[0].length];
+        for (int c = 0; c < x.length; c++) {
+            new IIRFilter(B, A).apply(x[c], y[c]);
+        }
+
+        return y;
+    }
+
+    private static double[][] randomSignals(int channels, int n) {
+        final Random random = new Random(n);
+        final double[][] x = new double[channels][n];
+        for (int c = 0; c < channels; c++) {
+            for (int i = 0; i < n; i++) {
+                x[c][i] = random.nextGaussian();
+            }
+        }
+
+        return x;
+    }
+}
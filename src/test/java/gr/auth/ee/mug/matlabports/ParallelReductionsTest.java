@@ -0,0 +1,75 @@
+package gr.auth.ee.mug.matlabports;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import gr.auth.ee.mug.matlabports.exceptions.LengthMismatchException;
+
+
+class ParallelReductionsTest {
+
+    @Test
+    void sameAsSequential() throws LengthMismatchException {
+        final ForkJoinPool pool = new ForkJoinPool(3);
+        final ParallelReductions parallel = new ParallelReductions(pool, 100);
+        final Random random = new Random(19);
+        for (int trial = 0; trial < 200; trial++) {
+            final int n = 1 + random.nextInt(5000);
+            final double[] x = new double[n];
+            final double[] y = new double[n];
+            for (int i = 0; i < n; i++) {
+                // Few levels, for ties, and some NaNs
+                x[i] = random.nextInt(30) == 0 ? Double.NaN : random.nextInt(n) - n / 2;
+                y[i] = random.nextGaussian();
+            }
+            final int i1 = random.nextInt(n);
+            final int i2 = i1 + random.nextInt(n - i1);
+
+            Assertions.assertEquals(CommonFunctions.maxIdx(x, i1, i2), parallel.maxIdx(x, i1, i2));
+            Assertions.assertEquals(CommonFunctions.minIdx(x, i1, i2), parallel.minIdx(x, i1, i2));
+            Assertions.assertEquals(CommonFunctions.max(y, i1, i2), parallel.max(y, i1, i2));
+            Assertions.assertEquals(CommonFunctions.min(y, i1, i2), parallel.min(y, i1, i2));
+
+            final double tolerance = 1e-12 * n;
+            Assertions.assertEquals(CommonFunctions.sum(y), parallel.sum(y), tolerance);
+            Assertions.assertEquals(CommonFunctions.mean(y, i1, i2 + 1), parallel.mean(y, i1, i2 + 1), tolerance);
+            Assertions.assertEquals(CommonFunctions.normL1(y), parallel.normL1(y), tolerance);
+            Assertions.assertEquals(CommonFunctions.normL2(y), parallel.normL2(y), tolerance);
+            Assertions.assertEquals(CommonFunctions.innerProduct(x, y), parallel.innerProduct(x, y), tolerance);
+        }
+        pool.shutdown();
+
+        Assertions.assertThrows(LengthMismatchException.class,
+                () -> parallel.innerProduct(new double[3], new double[4]));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new ParallelReductions(pool, 0));
+    }
+
+    @Test
+    void deterministic() throws LengthMismatchException {
+        final Random random = new Random(19);
+        final double[] x = new double[1_000_003];
+        final double[] y = new double[x.length];
+        for (int i = 0; i < x.length; i++) {
+            x[i] = random.nextGaussian() * 1e6;
+            y[i] = random.nextGaussian();
+        }
+
+        final ForkJoinPool referencePool = new ForkJoinPool(1);
+        final ParallelReductions reference = new ParallelReductions(referencePool, 1000);
+        for (int parallelism : new int[]{2, 5, 8}) {
+            final ForkJoinPool pool = new ForkJoinPool(parallelism);
+            final ParallelReductions parallel = new ParallelReductions(pool, 1000);
+            for (int repetition = 0; repetition < 3; repetition++) {
+                Assertions.assertEquals(reference.sum(x), parallel.sum(x));
+                Assertions.assertEquals(reference.sum(x, 17, 999_999), parallel.sum(x, 17, 999_999));
+                Assertions.assertEquals(reference.normL2(x), parallel.normL2(x));
+                Assertions.assertEquals(reference.innerProduct(x, y), parallel.innerProduct(x, y));
+            }
+            pool.shutdown();
+        }
+        referencePool.shutdown();
+    }
+}
@@ -0,0 +1,94 @@
+package gr.auth.ee.mug.matlabports;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+
+class PeakDetectorTest {
+
+    @Test
+    void sameAsFindPeaks() {
+        final Random random = new Random(7);
+        for (int trial = 0; trial < 3000; trial++) {
+            final double[] x = new double[random.nextInt(200)];
+            final int levels = 2 + random.nextInt(10);
+            for (int i = 0; i < x.length; i++) {
+                x[i] = random.nextInt(15) == 0 ? Double.NaN : random.nextInt(levels) * 0.1;
+            }
+            final int minPeakDistance = random.nextInt(10);
+            final double minPeakProminence = random.nextInt(4) * 0.15;
+
+            // Chunks of random length, including empty ones
+            final PeakDetector detector = new PeakDetector(minPeakDistance, minPeakProminence);
+            final List<Long> indices = new ArrayList<>();
+            final PeakDetector.PeakListener listener = (index, value) -> {
+                Assertions.assertEquals(x[(int) index], value);
+                indices.add(index);
+            };
+            int i = 0;
+            int reported = 0;
+            while (i < x.length) {
+                final int length = Math.min(random.nextInt(8), x.length - i);
+                reported += detector.push(x, i, length, listener);
+                i += length;
+            }
+            Assertions.assertEquals(x.length, detector.sampleCount());
+            reported += detector.finish(listener);
+
+            final int[] expected = DSP.findPeaks(x, minPeakDistance, minPeakProminence);
+            Assertions.assertEquals(expected.length, indices.size());
+            Assertions.assertEquals(expected.length, reported);
+            for (int k = 0; k < expected.length; k++) {
+                Assertions.assertEquals(expected[k], (long) indices.get(k));
+            }
+        }
+    }
+
+    @Test
+    void denseNoise() {
+        // Peaks closer than minPeakDistance almost everywhere: they must still be reported while pushing
+        final Random random = new Random(13);
+        final double[] x = new double[200_000];
+        for (int i = 0; i < x.length; i++) {
+            x[i] = random.nextGaussian();
+        }
+
+        for (int minPeakDistance : new int[]{20, 50}) {
+            for (double minPeakProminence : new double[]{0, 0.5, 1}) {
+                final PeakDetector detector = new PeakDetector(minPeakDistance, minPeakProminence);
+                final List<Long> indices = new ArrayList<>();
+                final PeakDetector.PeakListener listener = (index, value) -> indices.add(index);
+                for (int i = 0; i < x.length; i += 1000) {
+                    detector.push(x, i, 1000, listener);
+                }
+                final int pushed = indices.size();
+                final int finished = detector.finish(listener);
+
+                final int[] expected = DSP.findPeaks(x, minPeakDistance, minPeakProminence);
+                Assertions.assertEquals(expected.length, pushed + finished);
+                for (int k = 0; k < expected.length; k++) {
+                    Assertions.assertEquals(expected[k], (long) indices.get(k));
+                }
+                // Only the peaks near the end are left for finish
+                Assertions.assertTrue(pushed > 0);
+                Assertions.assertTrue(finished < 10, "Peaks held until finish: " + finished);
+            }
+        }
+    }
+
+    @Test
+    void latency() {
+        // A peak is reported as soon as the signal drops enough after it
+        final PeakDetector detector = new PeakDetector(0, 1);
+        final List<Long> indices = new ArrayList<>();
+        detector.push(new double[]{0, 3, 2.5, 2.5}, (index, value) -> indices.add(index));
+        Assertions.assertTrue(indices.isEmpty());
+        detector.push(new double[]{1.5}, (index, value) -> indices.add(index));
+        Assertions.assertEquals(1, indices.size());
+        Assertions.assertEquals(1, (long) indices.get(0));
+    }
+}
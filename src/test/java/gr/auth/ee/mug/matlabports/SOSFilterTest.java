@@ -0,0 +1,169 @@
+package gr.auth.ee.mug.matlabports;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import gr.auth.ee.mug.matlabports.exceptions.BadArrayLengthException;
+import gr.auth.ee.mug.matlabports.exceptions.LengthMismatchException;
+
+
+class SOSFilterTest {
+
+    /**
+     * MATLAB: {@code [b, a] = butter(4, 0.2);}
+     */
+    private static final double[] B = new double[]{
+            0.004824343357716, 0.019297373430865, 0.028946060146297, 0.019297373430865, 0.004824343357716};
+    private static final double[] A = new double[]{
+            1, -2.369513007182038, 2.313988414415880, -1.054665405878567, 0.187379492368185};
+
+    @Test
+    void transferFunction() throws BadArrayLengthException, LengthMismatchException {
+        final double[] x = randomSignal(500);
+
+        final double[] expected = new double[x.length];
+        new IIRFilter(B, A).apply(x, expected);
+
+        final SOSFilter filter = new SOSFilter(B, A);
+        Assertions.assertEquals(2, filter.getSections());
+        final double[] y = new double[x.length];
+        filter.apply(x, y);
+        Assertions.assertArrayEquals(expected, y, 1e-9);
+
+        // Sample by sample, after a reset
+        filter.reset();
+        for (int i = 0; i < x.length; i++) {
+            Assertions.assertEquals(expected[i], filter.step(x[i]), 1e-9);
+        }
+    }
+
+    @Test
+    void delaysAndOddOrder() throws BadArrayLengthException, LengthMismatchException {
+        final double[] b = new double[]{0, 0.5, 0.25};
+        final double[] a = new double[]{2, -0.5, 0.1, 0.05};
+        final double[] x = randomSignal(200);
+
+        // IIRFilter assumes a[0] = 1
+        final double[] an = new double[a.length];
+        final double[] bn = new double[b.length];
+        for (int i = 0; i < a.length; i++) {
+            an[i] = a[i] / a[0];
+        }
+        for (int i = 0; i < b.length; i++) {
+            bn[i] = b[i] / a[0];
+        }
+        final double[] expected = new double[x.length];
+        new IIRFilter(bn, an).apply(x, expected);
+
+        final double[] y = x.clone();
+        new SOSFilter(b, a).apply(y, y);
+        Assertions.assertArrayEquals(expected, y, 1e-9);
+    }
+
+    @Test
+    void sections() throws BadArrayLengthException, LengthMismatchException {
+        final double[][] sos = new double[][]{
+                {1, 2, 1, 1, -1.2, 0.5},
+                {1, -2, 1, 2, -0.4, 0.2},
+                {1, 0, -1, 1, 0.1, 0.3},
+                {1, 1, 0, 1, -0.9, 0}};
+        final double gain = 0.3;
+        final double[] x = randomSignal(300);
+
+        // Cascade of IIRFilters, one per section
+        double[] expected = x.clone();
+        for (int k = 0; k < sos.length; k++) {
+            final double g = k == 0 ? gain : 1;
+            final double a0 = sos[k][3];
+            final double[] b = new double[]{g * sos[k][0] / a0, g * sos[k][1] / a0, g * sos[k][2] / a0};
+            final double[] a = new double[]{1, sos[k][4] / a0, sos[k][5] / a0};
+            final double[] y = new double[x.length];
+            new IIRFilter(b, a).apply(expected, y);
+            expected = y;
+        }
+
+        // Blocks of varying length, including single samples
+        final SOSFilter filter = new SOSFilter(sos, gain);
+        int i = 0;
+        int length = 1;
+        while (i < x.length) {
+            final int n = Math.min(length, x.length - i);
+            final double[] block = new double[n];
+            System.arraycopy(x, i, block, 0, n);
+            filter.apply(block, block);
+            for (int j = 0; j < n; j++) {
+                Assertions.assertEquals(expected[i + j], block[j], 1e-9);
+            }
+            i += n;
+            length = length % 17 + 1;
+        }
+    }
+
+    @Test
+    void highOrder() throws BadArrayLengthException, LengthMismatchException {
+        // Poles close to the unit circle and zeros on it
+        final double[][] sos = new double[4][];
+        final double[] radii = new double[]{0.99, 0.97, 0.94, 0.9};
+        final double[] poleAngles = new double[]{0.1, 0.4, 0.8, 1.2};
+        final double[] zeroAngles = new double[]{2.0, 2.3, 2.6, 2.9};
+        for (int k = 0; k < sos.length; k++) {
+            final double r = radii[k];
+            sos[k] = new double[]{
+                    1, -2 * Math.cos(zeroAngles[k]), 1, 1, -2 * r * Math.cos(poleAngles[k]), r * r};
+        }
+
+        // The 8th-order transfer function of the cascade
+        double[] b = new double[]{1};
+        double[] a = new double[]{1};
+        for (double[] row : sos) {
+            b = convolve(b, new double[]{row[0], row[1], row[2]});
+            a = convolve(a, new double[]{row[3], row[4], row[5]});
+        }
+        Assertions.assertEquals(9, a.length);
+
+        final double[] x = randomSignal(2000);
+        final double[] expected = new double[x.length];
+        new SOSFilter(sos).apply(x, expected);
+
+        final SOSFilter filter = new SOSFilter(b, a);
+        Assertions.assertEquals(4, filter.getSections());
+        final double[] y = new double[x.length];
+        filter.apply(x, y);
+        double scale = 0;
+        for (double v : expected) {
+            scale = Math.max(scale, Math.abs(v));
+        }
+        Assertions.assertArrayEquals(expected, y, 1e-10 * scale);
+    }
+
+    @Test
+    void zeroLeadingCoefficient() {
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> new SOSFilter(new double[]{1, 0.5}, new double[]{0, 1}));
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> new SOSFilter(new double[][]{{1, 0, 0, 1, 0, 0}, {1, 0, 0, 0, 0.5, 0}}));
+    }
+
+    private static double[] convolve(double[] p, double[] q) {
+        final double[] r = new double[p.length + q.length - 1];
+        for (int i = 0; i < p.length; i++) {
+            for (int j = 0; j < q.length; j++) {
+                r[i + j] += p[i] * q[j];
+            }
+        }
+
+        return r;
+    }
+
+    private static double[] randomSignal(int n) {
+        final Random random = new Random(n);
+        final double[] x = new double[n];
+        for (int i = 0; i < n; i++) {
+            x[i] = random.nextGaussian();
+        }
+
+        return x;
+    }
+}
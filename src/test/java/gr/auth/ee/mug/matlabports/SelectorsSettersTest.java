@@ -3,6 +3,12 @@ package gr.auth.ee.mug.matlabports;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import java.util.Arrays;
+import java.util.Random;
+
+import gr.auth.ee.mug.matlabports.exceptions.BadArrayLengthException;
+import gr.auth.ee.mug.matlabports.exceptions.LengthMismatchException;
+
 import static gr.auth.ee.mug.matlabports.SelectorsSetters.END;
 
 
@@ -47,4 +53,68 @@ class SelectorsSettersTest {
         Assertions.assertNotNull(b);
         Assertions.assertArrayEquals(b, bb);
     }
-}
\ No newline at end of file
+
+    @Test
+    @SuppressWarnings("deprecation")
+    void selectRangeSameAsSelector() throws LengthMismatchException {
+        final double[] x = {0, 1, 2, 3, 4, 5, 6, 7, 8, 9};
+        final int[][] ranges = {{1, 2, END}, {0, 3, END - 1}, {END, -2, 0}, {5, -2, 2}, {5, 1, 4}, {7, -1, 7}};
+        for (int[] r : ranges) {
+            final boolean[] b = SelectorsSetters.createSelector(r[0], r[1], r[2], x.length);
+            Assertions.assertArrayEquals(SelectorsSetters.select(x, b), SelectorsSetters.select(x, r[0], r[1], r[2]));
+        }
+    }
+
+    @Test
+    void selectWhere() throws LengthMismatchException, BadArrayLengthException {
+        final Random random = new Random(23);
+        final double[] mixed = new double[1000];
+        for (int i = 0; i < mixed.length; i++) {
+            mixed[i] = random.nextInt(10) == 0 ? Double.NaN : random.nextGaussian();
+        }
+        // Unselected tail, so that the branch-free copy must stop at the last selected item
+        final double[] mixedTail = mixed.clone();
+        Arrays.fill(mixedTail, 900, 1000, -1);
+        final double[] all = new double[100];
+        Arrays.fill(all, 0.5);
+        final double[] none = new double[100];
+        Arrays.fill(none, Double.NaN);
+        final double[] first = none.clone();
+        first[0] = 0.5;
+        final double[] last = none.clone();
+        last[99] = 0.5;
+
+        final double[][] cases = {{}, {0.5}, {Double.NaN}, all, none, first, last, mixed, mixedTail};
+        for (double[] x : cases) {
+            final double[] y = new double[x.length];
+
+            final boolean[] more = LogicalOperators.more(x, 0.2);
+            final boolean[] less = LogicalOperators.less(x, 0.7);
+            final boolean[] range = LogicalOperators.and(more, less);
+            Assertions.assertArrayEquals(SelectorsSetters.select(x, more), SelectorsSetters.selectMore(x, 0.2));
+            Assertions.assertArrayEquals(SelectorsSetters.select(x, less), SelectorsSetters.selectLess(x, 0.7));
+            Assertions.assertArrayEquals(SelectorsSetters.select(x, range), SelectorsSetters.selectRange(x, 0.2, 0.7));
+            Assertions.assertArrayEquals(SelectorsSetters.select(x, range),
+                    SelectorsSetters.selectWhere(x, v -> v > 0.2 && v < 0.7));
+
+            final int count = SelectorsSetters.selectMore(x, 0.2, y);
+            Assertions.assertEquals(CommonFunctions.sum(more), count);
+            Assertions.assertArrayEquals(SelectorsSetters.select(x, more), Arrays.copyOf(y, count));
+            Assertions.assertEquals(CommonFunctions.sum(less), SelectorsSetters.selectLess(x, 0.7, y));
+            Assertions.assertEquals(CommonFunctions.sum(range), SelectorsSetters.selectRange(x, 0.2, 0.7, y));
+            Assertions.assertEquals(0, SelectorsSetters.selectRange(x, Double.NaN, 0.7, y));
+            Assertions.assertEquals(0, SelectorsSetters.selectMore(x, Double.NaN).length);
+
+            Assertions.assertEquals(CommonFunctions.sum(more), SelectorsSetters.countWhere(x, v -> v > 0.2));
+            Assertions.assertArrayEquals(SelectorsSetters.find(less), SelectorsSetters.findWhere(x, v -> v < 0.7));
+
+            final DoubleArrayBuffer buffer = new DoubleArrayBuffer();
+            buffer.add(-1);
+            SelectorsSetters.selectWhere(x, v -> v > 0.2, buffer);
+            Assertions.assertEquals(count + 1, buffer.size());
+        }
+
+        Assertions.assertThrows(BadArrayLengthException.class,
+                () -> SelectorsSetters.selectMore(new double[3], 0, new double[2]));
+    }
+}
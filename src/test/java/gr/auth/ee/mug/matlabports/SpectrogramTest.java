@@ -0,0 +1,66 @@
+package gr.auth.ee.mug.matlabports;
+
+import org.apache.commons.math3.transform.DftNormalization;
+import org.apache.commons.math3.transform.FastFourierTransformer;
+import org.apache.commons.math3.transform.TransformType;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+
+class SpectrogramTest {
+
+    @Test
+    void chunks() {
+        final Random random = new Random(1);
+        final int windowLength = 50;
+        final int hop = 20;
+        final double[] x = new double[1000];
+        for (int i = 0; i < x.length; i++) {
+            x[i] = Math.sin(0.3 * i) + random.nextGaussian();
+        }
+
+        // Push in chunks of random length, collecting copies of the frames
+        final Spectrogram spectrogram = new Spectrogram(windowLength, hop, Spectrogram.Window.HAMMING, false, 4);
+        final List<double[]> frames = new ArrayList<>();
+        int i = 0;
+        while (i < x.length) {
+            final int length = Math.min(random.nextInt(30), x.length - i);
+            spectrogram.push(x, i, length, (frame, index) -> {
+                Assertions.assertEquals(frames.size(), index);
+                frames.add(frame.clone());
+            });
+            i += length;
+        }
+
+        Assertions.assertEquals((x.length - windowLength) / hop + 1, frames.size());
+        Assertions.assertEquals(frames.size(), spectrogram.frameCount());
+        Assertions.assertArrayEquals(frames.get(frames.size() - 1), spectrogram.latestFrame());
+        Assertions.assertThrows(IndexOutOfBoundsException.class, () -> spectrogram.frame(0));
+
+        // Compare with windowing and transforming each frame separately
+        final double[] w = DSP.hamming(windowLength);
+        for (int f = 0; f < frames.size(); f++) {
+            final double[][] data = new double[2][64];
+            for (int j = 0; j < windowLength; j++) {
+                data[0][j] = x[f * hop + j] * w[j];
+            }
+            FastFourierTransformer.transformInPlace(data, DftNormalization.STANDARD, TransformType.FORWARD);
+
+            final double[] frame = frames.get(f);
+            Assertions.assertEquals(33, frame.length);
+            for (int k = 0; k < frame.length; k++) {
+                Assertions.assertEquals(Math.hypot(data[0][k], data[1][k]), frame[k], 1e-9);
+            }
+        }
+    }
+
+    @Test
+    void frequencies() {
+        final double[] f = new Spectrogram(8, 4).frequencies(100);
+        Assertions.assertArrayEquals(new double[]{0, 12.5, 25, 37.5, 50}, f, 1e-12);
+    }
+}
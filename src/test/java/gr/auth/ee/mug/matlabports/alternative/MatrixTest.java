@@ -0,0 +1,89 @@
+package gr.auth.ee.mug.matlabports.alternative;
+
+import org.apache.commons.math3.linear.RealMatrix;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import gr.auth.ee.mug.matlabports.CommonFunctions;
+import gr.auth.ee.mug.matlabports.ToolsMatrix;
+import gr.auth.ee.mug.matlabports.exceptions.LengthMismatchException;
+
+
+class MatrixTest {
+
+    @Test
+    void sameAsJagged() throws LengthMismatchException {
+        final Random random = new Random(25);
+        final double[][] x = new double[7][5];
+        for (double[] r : x) {
+            for (int j = 0; j < r.length; j++) {
+                r[j] = random.nextGaussian();
+            }
+        }
+        final Matrix m = Matrix.of(x);
+
+        Assertions.assertArrayEquals(ToolsMatrix.sum(x), m.sum());
+        Assertions.assertArrayEquals(ToolsMatrix.getRange(x, 2, 3), m.getRange(2, 3).toArray());
+
+        // Columns 1 to 3 of rows 2 to 4, as a view of a view
+        final Matrix block = m.getRange(2, 3).getRange2(1, 3);
+        Assertions.assertEquals(3, block.rows());
+        Assertions.assertEquals(3, block.cols());
+        for (int i = 0; i < 3; i++) {
+            for (int j = 0; j < 3; j++) {
+                Assertions.assertEquals(x[2 + i][1 + j], block.get(i, j));
+            }
+            Assertions.assertArrayEquals(block.row(i).toArray(), block.toArray()[i]);
+        }
+
+        for (int j = 0; j < 5; j++) {
+            final double[] c = new double[7];
+            for (int i = 0; i < 7; i++) {
+                c[i] = x[i][j];
+            }
+            Assertions.assertArrayEquals(c, m.col(j).toArray());
+            Assertions.assertEquals(CommonFunctions.sum(c), m.sumColumns()[j], 1e-12);
+            Assertions.assertEquals(CommonFunctions.mean(c), m.meanColumns()[j], 1e-12);
+            Assertions.assertEquals(CommonFunctions.max(c, 0, 6), m.maxColumns()[j]);
+            Assertions.assertEquals(CommonFunctions.min(c, 0, 6), m.minColumns()[j]);
+        }
+        Assertions.assertArrayEquals(new double[]{block.get(0, 1), block.get(1, 1), block.get(2, 1)},
+                block.col(1).toArray());
+        Assertions.assertArrayEquals(Matrix.of(ToolsMatrix.getRange(x, 2, 3)).getRange2(1, 3).sumColumns(),
+                block.sumColumns(), 1e-12);
+
+        // Views share the array, copies do not
+        final Matrix copy = block.copy();
+        block.set(1, 1, 42);
+        Assertions.assertEquals(42, m.get(3, 2));
+        Assertions.assertEquals(x[3][2], copy.get(1, 1));
+        m.col(4).set(6, -1);
+        Assertions.assertEquals(-1, m.get(6, 4));
+    }
+
+    @Test
+    void realMatrix() throws LengthMismatchException {
+        final Matrix m = Matrix.wrap(new double[]{1, 2, 3, 4, 5, 6}, 2, 3);
+        final RealMatrix r = m.getRange2(1, 2).toRealMatrix();
+        Assertions.assertArrayEquals(new double[][]{{2, 3}, {5, 6}}, r.getData());
+        Assertions.assertArrayEquals(r.multiply(r.transpose()).getData(),
+                Matrix.of(r.multiply(r.transpose())).toArray());
+    }
+
+    @Test
+    void errors() {
+        Assertions.assertThrows(LengthMismatchException.class, () -> Matrix.wrap(new double[5], 2, 3));
+        Assertions.assertThrows(LengthMismatchException.class, () -> Matrix.of(new double[][]{{1, 2}, {3}}));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new Matrix(-1, 2));
+
+        final Matrix m = new Matrix(2, 3);
+        Assertions.assertThrows(IndexOutOfBoundsException.class, () -> m.get(2, 0));
+        Assertions.assertThrows(IndexOutOfBoundsException.class, () -> m.get(0, 3));
+        Assertions.assertThrows(IndexOutOfBoundsException.class, () -> m.getRange(1, 2));
+        Assertions.assertThrows(IndexOutOfBoundsException.class, () -> m.getRange2(-1, 2));
+        Assertions.assertThrows(IllegalStateException.class, () -> m.getRange(1, 0).maxColumns());
+        Assertions.assertEquals(0, m.getRange2(3, 0).sum()[0]);
+    }
+}